@@ -2,11 +2,51 @@ CREATE TABLE configuration (
   tenant_id BIGINT NOT NULL,
   content_type VARCHAR(50) NOT NULL,
   resource_name VARCHAR(120) NOT NULL,
-  resource_content LONGBLOB NOT NULL
+  resource_content LONGBLOB NOT NULL,
+  resource_hash VARCHAR(64)
 );
 ALTER TABLE configuration ADD CONSTRAINT pk_configuration PRIMARY KEY (tenant_id, content_type, resource_name);
 CREATE INDEX idx_configuration ON configuration (tenant_id, content_type);
 
+CREATE TABLE configuration_content (
+  resource_hash VARCHAR(64) NOT NULL,
+  resource_content LONGBLOB NOT NULL
+);
+ALTER TABLE configuration_content ADD CONSTRAINT pk_configuration_content PRIMARY KEY (resource_hash);
+
+CREATE TABLE configuration_history (
+  revision BIGINT NOT NULL,
+  tenant_id BIGINT NOT NULL,
+  content_type VARCHAR(50) NOT NULL,
+  resource_name VARCHAR(120) NOT NULL,
+  resource_hash VARCHAR(64)
+);
+ALTER TABLE configuration_history ADD CONSTRAINT pk_configuration_history PRIMARY KEY (tenant_id, content_type, resource_name, revision);
+CREATE INDEX idx_configuration_history ON configuration_history (revision);
+
+CREATE TABLE configuration_revision (
+  revision BIGINT NOT NULL,
+  created BIGINT NOT NULL,
+  description VARCHAR(255)
+);
+ALTER TABLE configuration_revision ADD CONSTRAINT pk_configuration_revision PRIMARY KEY (revision);
+
+CREATE TABLE configuration_change (
+  change_id BIGINT NOT NULL,
+  tenant_id BIGINT,
+  content_type VARCHAR(50),
+  created BIGINT NOT NULL
+);
+ALTER TABLE configuration_change ADD CONSTRAINT pk_configuration_change PRIMARY KEY (change_id);
+
+CREATE TABLE configuration_change_counter (
+  last_change_id BIGINT NOT NULL
+);
+
+CREATE TABLE configuration_revision_counter (
+  last_revision BIGINT NOT NULL
+);
+
 
 CREATE TABLE contract_data (
   tenantid BIGINT NOT NULL,
@@ -1,4 +1,10 @@
 DROP TABLE configuration;
+DROP TABLE configuration_revision;
+DROP TABLE configuration_change;
+DROP TABLE configuration_change_counter;
+DROP TABLE configuration_revision_counter;
+DROP TABLE configuration_history;
+DROP TABLE configuration_content;
 DROP TABLE arch_contract_data;
 DROP TABLE contract_data;
 DROP TABLE actormember;
@@ -4,3 +4,5 @@ INSERT INTO sequence VALUES (-1, 3, 1);
 INSERT INTO sequence VALUES (-1, 4, 1);
 INSERT INTO sequence VALUES (-1, 30, 1);
 INSERT INTO sequence VALUES (-1, 31, 1);
+INSERT INTO configuration_change_counter VALUES (0);
+INSERT INTO configuration_revision_counter VALUES (0);
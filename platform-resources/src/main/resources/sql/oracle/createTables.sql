@@ -2,11 +2,51 @@ CREATE TABLE configuration (
   tenant_id NUMBER(19, 0) NOT NULL,
   content_type VARCHAR2(50 CHAR) NOT NULL,
   resource_name VARCHAR2(120 CHAR) NOT NULL,
-  resource_content BLOB NOT NULL
+  resource_content BLOB NOT NULL,
+  resource_hash VARCHAR2(64 CHAR)
 );
 ALTER TABLE configuration ADD CONSTRAINT pk_configuration PRIMARY KEY (tenant_id, content_type, resource_name);
 CREATE INDEX idx_configuration ON configuration (tenant_id, content_type);
 
+CREATE TABLE configuration_content (
+  resource_hash VARCHAR2(64 CHAR) NOT NULL,
+  resource_content BLOB NOT NULL
+);
+ALTER TABLE configuration_content ADD CONSTRAINT pk_configuration_content PRIMARY KEY (resource_hash);
+
+CREATE TABLE configuration_history (
+  revision NUMBER(19, 0) NOT NULL,
+  tenant_id NUMBER(19, 0) NOT NULL,
+  content_type VARCHAR2(50 CHAR) NOT NULL,
+  resource_name VARCHAR2(120 CHAR) NOT NULL,
+  resource_hash VARCHAR2(64 CHAR)
+);
+ALTER TABLE configuration_history ADD CONSTRAINT pk_configuration_history PRIMARY KEY (tenant_id, content_type, resource_name, revision);
+CREATE INDEX idx_configuration_history ON configuration_history (revision);
+
+CREATE TABLE configuration_revision (
+  revision NUMBER(19, 0) NOT NULL,
+  created NUMBER(19, 0) NOT NULL,
+  description VARCHAR2(255 CHAR)
+);
+ALTER TABLE configuration_revision ADD CONSTRAINT pk_configuration_revision PRIMARY KEY (revision);
+
+CREATE TABLE configuration_change (
+  change_id NUMBER(19, 0) NOT NULL,
+  tenant_id NUMBER(19, 0),
+  content_type VARCHAR2(50 CHAR),
+  created NUMBER(19, 0) NOT NULL
+);
+ALTER TABLE configuration_change ADD CONSTRAINT pk_configuration_change PRIMARY KEY (change_id);
+
+CREATE TABLE configuration_change_counter (
+  last_change_id NUMBER(19, 0) NOT NULL
+);
+
+CREATE TABLE configuration_revision_counter (
+  last_revision NUMBER(19, 0) NOT NULL
+);
+
 CREATE TABLE contract_data (
   tenantid NUMBER(19, 0) NOT NULL,
   id NUMBER(19, 0) NOT NULL,
@@ -1,4 +1,10 @@
 DROP TABLE configuration cascade constraints purge;
+DROP TABLE configuration_revision cascade constraints purge;
+DROP TABLE configuration_change cascade constraints purge;
+DROP TABLE configuration_change_counter cascade constraints purge;
+DROP TABLE configuration_revision_counter cascade constraints purge;
+DROP TABLE configuration_history cascade constraints purge;
+DROP TABLE configuration_content cascade constraints purge;
 DROP TABLE arch_contract_data cascade constraints purge;
 DROP TABLE contract_data cascade constraints purge;
 DROP TABLE actormember cascade constraints purge;
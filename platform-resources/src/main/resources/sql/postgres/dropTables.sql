@@ -1,4 +1,10 @@
 DROP TABLE IF EXISTS configuration;
+DROP TABLE IF EXISTS configuration_revision;
+DROP TABLE IF EXISTS configuration_change;
+DROP TABLE IF EXISTS configuration_change_counter;
+DROP TABLE IF EXISTS configuration_revision_counter;
+DROP TABLE IF EXISTS configuration_history;
+DROP TABLE IF EXISTS configuration_content;
 DROP TABLE IF EXISTS arch_contract_data;
 DROP TABLE IF EXISTS contract_data;
 DROP TABLE IF EXISTS actormember;
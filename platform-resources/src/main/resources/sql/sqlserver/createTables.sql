@@ -2,7 +2,8 @@ CREATE TABLE configuration (
   tenant_id NUMERIC(19, 0) NOT NULL,
   content_type  NVARCHAR(50) NOT NULL,
   resource_name  NVARCHAR(120) NOT NULL,
-  resource_content  VARBINARY(MAX) NOT NULL
+  resource_content  VARBINARY(MAX) NOT NULL,
+  resource_hash  NVARCHAR(64)
 )
 GO
 ALTER TABLE configuration ADD CONSTRAINT pk_configuration PRIMARY KEY (tenant_id, content_type, resource_name)
@@ -10,6 +11,56 @@ GO
 CREATE INDEX idx_configuration ON configuration (tenant_id, content_type)
 GO
 
+CREATE TABLE configuration_content (
+  resource_hash NVARCHAR(64) NOT NULL,
+  resource_content VARBINARY(MAX) NOT NULL
+)
+GO
+ALTER TABLE configuration_content ADD CONSTRAINT pk_configuration_content PRIMARY KEY (resource_hash)
+GO
+
+CREATE TABLE configuration_history (
+  revision NUMERIC(19, 0) NOT NULL,
+  tenant_id NUMERIC(19, 0) NOT NULL,
+  content_type NVARCHAR(50) NOT NULL,
+  resource_name NVARCHAR(120) NOT NULL,
+  resource_hash NVARCHAR(64)
+)
+GO
+ALTER TABLE configuration_history ADD CONSTRAINT pk_configuration_history PRIMARY KEY (tenant_id, content_type, resource_name, revision)
+GO
+CREATE INDEX idx_configuration_history ON configuration_history (revision)
+GO
+
+CREATE TABLE configuration_revision (
+  revision NUMERIC(19, 0) NOT NULL,
+  created NUMERIC(19, 0) NOT NULL,
+  description NVARCHAR(255)
+)
+GO
+ALTER TABLE configuration_revision ADD CONSTRAINT pk_configuration_revision PRIMARY KEY (revision)
+GO
+
+CREATE TABLE configuration_change (
+  change_id NUMERIC(19, 0) NOT NULL,
+  tenant_id NUMERIC(19, 0),
+  content_type NVARCHAR(50),
+  created NUMERIC(19, 0) NOT NULL
+)
+GO
+ALTER TABLE configuration_change ADD CONSTRAINT pk_configuration_change PRIMARY KEY (change_id)
+GO
+
+CREATE TABLE configuration_change_counter (
+  last_change_id NUMERIC(19, 0) NOT NULL
+)
+GO
+
+CREATE TABLE configuration_revision_counter (
+  last_revision NUMERIC(19, 0) NOT NULL
+)
+GO
+
 CREATE TABLE contract_data (
   tenantid NUMERIC(19, 0) NOT NULL,
   id NUMERIC(19, 0) NOT NULL,
@@ -1,5 +1,17 @@
 DROP TABLE configuration
 GO
+DROP TABLE configuration_revision
+GO
+DROP TABLE configuration_change
+GO
+DROP TABLE configuration_change_counter
+GO
+DROP TABLE configuration_revision_counter
+GO
+DROP TABLE configuration_history
+GO
+DROP TABLE configuration_content
+GO
 DROP TABLE arch_contract_data
 GO
 DROP TABLE contract_data
@@ -10,3 +10,7 @@ INSERT INTO sequence VALUES (-1, 30, 1)
 GO
 INSERT INTO sequence VALUES (-1, 31, 1)
 GO
+INSERT INTO configuration_change_counter VALUES (0)
+GO
+INSERT INTO configuration_revision_counter VALUES (0)
+GO
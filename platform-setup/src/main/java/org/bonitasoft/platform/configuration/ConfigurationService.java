@@ -15,9 +15,23 @@
 package org.bonitasoft.platform.configuration;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.ConfigurationChange;
+import org.bonitasoft.platform.configuration.model.ConfigurationChangeReport;
+import org.bonitasoft.platform.configuration.model.ConfigurationIndex;
+import org.bonitasoft.platform.configuration.model.ConfigurationProperties;
+import org.bonitasoft.platform.configuration.model.ConfigurationRevision;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.ModifiedConfigurations;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.configuration.util.FullBonitaConfigurationConsumer;
 import org.bonitasoft.platform.exception.PlatformException;
 
 /**
@@ -171,6 +185,52 @@ public interface ConfigurationService {
      */
     BonitaConfiguration getTenantPortalConfiguration(long tenantId, String file);
 
+    /**
+     * Retrieves the files of a type for several tenants at once, with a single query per few hundred tenants.
+     *
+     * @param type tenant configuration type, such as {@link ConfigurationType#TENANT_ENGINE}
+     * @param tenantIds ids of the tenants
+     * @return files of each tenant, ordered by resource name, in tenant id order. Every requested tenant has an entry, empty if it has no file.
+     */
+    Map<Long, List<BonitaConfiguration>> getTenantsConfigurations(ConfigurationType type, Collection<Long> tenantIds);
+
+    /**
+     * Retrieves the configuration files of a type whose content differs from the one known by the caller.
+     * Content hashes are hexadecimal SHA-256 digests, as computed by {@link org.bonitasoft.platform.configuration.util.ContentDigest}.
+     * Files missing from knownHashes are considered as modified. Files of knownHashes missing in database are reported as deleted.
+     * In tenant overlay mode, tenant files are resolved from the tenant template, as in {@link #getTenantsConfigurations(ConfigurationType, Collection)}.
+     *
+     * @param type configuration type
+     * @param tenantId tenant identifier, 0 for non-tenant resources
+     * @param knownHashes content hash of each file known by the caller, keyed by resource name
+     * @return each modified file, and the name of each deleted file
+     */
+    ModifiedConfigurations getModifiedConfigurations(ConfigurationType type, long tenantId, Map<String, String> knownHashes);
+
+    /**
+     * Retrieves name, size and hash of the configuration files of a type, without reading their content.
+     *
+     * @param type configuration type
+     * @param tenantId tenant identifier, 0 for non-tenant resources
+     * @return a list of BonitaConfigurationDescriptor that represents each file
+     */
+    List<BonitaConfigurationDescriptor> getConfigurationDescriptors(ConfigurationType type, long tenantId);
+
+    /**
+     * Retrieves name, size and hash of all configuration files, including licenses, without reading their content.
+     *
+     * @return a list of BonitaConfigurationDescriptor that represents each file
+     */
+    List<BonitaConfigurationDescriptor> getAllConfigurationDescriptors();
+
+    /**
+     * Reads the content of a single configuration file.
+     *
+     * @param descriptor descriptor of the file, as returned by {@link #getConfigurationDescriptors(ConfigurationType, long)}
+     * @return the file, or null if it no longer exists
+     */
+    BonitaConfiguration loadConfiguration(BonitaConfigurationDescriptor descriptor);
+
     /**
      * Read configuration files located under configuration root folder
      * each file is stored in database
@@ -197,6 +257,26 @@ public interface ConfigurationService {
      */
     void storeAllConfiguration(File configurationRootFolder) throws PlatformException;
 
+    /**
+     * make configuration in database identical to configuration files, excluding licenses files, by writing only differences:
+     * new files are inserted, modified files are updated, and files that no longer exist are deleted.
+     * Files are compared using their content hash.
+     *
+     * @param configurationRootFolder root folder containing configuration files
+     * @return the list of added, updated and deleted files
+     * @throws PlatformException
+     */
+    ConfigurationChangeReport storeModifiedConfiguration(File configurationRootFolder) throws PlatformException;
+
+    /**
+     * store only the given files, leaving other files in database untouched. Written files whose content did not change are skipped.
+     *
+     * @param writtenFiles files created or modified in a configuration folder
+     * @param deletedFiles files deleted from a configuration folder, only their tenant id, type and name are used
+     * @return the list of added, updated and deleted files
+     */
+    ConfigurationChangeReport storeConfigurationFiles(List<FullBonitaConfiguration> writtenFiles, List<BonitaConfigurationDescriptor> deletedFiles);
+
     /**
      * write all configuration files
      * directory structure :
@@ -214,6 +294,122 @@ public interface ConfigurationService {
      */
     void writeAllConfigurationToFolder(File configurationFolder, File licenseFolder) throws PlatformException;
 
+    /**
+     * retrieve all configuration files and write them to folders, as {@link #writeAllConfigurationToFolder(File, File)} does.
+     * Files byte-identical to their copy in previous folders are hard-linked from there instead of being written again.
+     *
+     * @param configurationFolder folder to write configuration files to
+     * @param licenseFolder folder to write license files to
+     * @param previousConfigurationFolder folder holding previously pulled configuration files
+     * @param previousLicenseFolder folder holding previously pulled license files
+     * @throws PlatformException
+     */
+    void writeAllConfigurationToFolder(File configurationFolder, File licenseFolder, File previousConfigurationFolder, File previousLicenseFolder)
+            throws PlatformException;
+
+    /**
+     * Reads all configuration files, including licenses, through a forward-only cursor.
+     * Files are handed to the consumer one by one, ordered by tenant id, type and name, so that they are never all held in memory.
+     *
+     * @param consumer receives each file
+     * @param fetchSize number of rows fetched per database round-trip, or 0 to use the database vendor default
+     * @throws PlatformException when thrown by the consumer
+     */
+    void streamAllConfiguration(FullBonitaConfigurationConsumer consumer, int fetchSize) throws PlatformException;
+
+    /**
+     * write all configuration files, including licenses, to a single ZIP archive with a manifest of their tenant ids, types and hashes.
+     * Files are streamed from database to the archive, see {@link org.bonitasoft.platform.configuration.util.ConfigurationArchive} for its layout.
+     *
+     * @param outputStream stream to write the archive to. It is not closed.
+     * @throws PlatformException
+     */
+    void exportAllConfiguration(OutputStream outputStream) throws PlatformException;
+
+    /**
+     * replace all configuration files, including licenses, by those of an archive written by {@link #exportAllConfiguration(OutputStream)}.
+     * Files are checked against the manifest of the archive, and nothing is modified if the archive is corrupted or incomplete.
+     *
+     * @param inputStream stream to read the archive from. It is not closed.
+     * @throws PlatformException
+     */
+    void importAllConfiguration(InputStream inputStream) throws PlatformException;
+
+    /**
+     * record the current configuration, including licenses, as a new revision.
+     * Only files modified since the latest revision are added to the history, and identical contents are stored once.
+     *
+     * @param description description of the revision
+     * @return the created revision, or the latest one if configuration did not change since
+     */
+    long createConfigurationRevision(String description);
+
+    /**
+     * @return all configuration revisions, oldest first
+     */
+    List<ConfigurationRevision> getConfigurationRevisions();
+
+    /**
+     * compare two configuration revisions without reading file contents
+     *
+     * @param fromRevision revision to compare from
+     * @param toRevision revision to compare to
+     * @return files added, updated and deleted from fromRevision to toRevision
+     * @throws IllegalArgumentException if one of the revisions does not exist
+     */
+    ConfigurationChangeReport diffConfigurationRevisions(long fromRevision, long toRevision);
+
+    /**
+     * replace all configuration files, including licenses, by those of a revision.
+     * Configuration before the rollback is recorded as a revision, so that the rollback can be reverted.
+     *
+     * @param revision revision to restore
+     * @return the revision recording the restored configuration
+     * @throws IllegalArgumentException if the revision does not exist
+     */
+    long rollbackConfiguration(long revision);
+
+    /**
+     * poll the configuration change feed. Every store and delete method adds a change to the feed, with an id greater than all previous ones.
+     * This reads a single row, so nodes can call it often and only call {@link #getConfigurationChangesSince(long)} when it changed.
+     *
+     * @return id of the latest configuration change, or 0 if configuration never changed
+     */
+    long getLastConfigurationChangeId();
+
+    /**
+     * Change ids are consecutive, and only the latest changes are kept, see
+     * {@link org.bonitasoft.platform.configuration.util.RecordConfigurationChangeInTransaction#CHANGE_RETENTION}: when the first returned change is
+     * not changeId + 1, older changes were deleted and the caller must consider the whole configuration as changed.
+     *
+     * @param changeId id of the latest change already known, 0 to get all changes
+     * @return changes with an id greater than changeId, ordered by id. Modified files can then be fetched using
+     *         {@link #getModifiedConfigurations(ConfigurationType, long, Map)}
+     */
+    List<ConfigurationChange> getConfigurationChangesSince(long changeId);
+
+    /**
+     * Reads all configuration files, including licenses, into an immutable index, meant to be kept by callers looking files up on hot paths.
+     * Tenant templates are applied to tenant files only in tenant overlay mode, see
+     * {@link org.bonitasoft.platform.configuration.impl.ConfigurationServiceImpl#setTenantOverlay(boolean)}.
+     *
+     * @return files indexed by tenant, type and name. Its change id can be compared to {@link #getLastConfigurationChangeId()} to know when it
+     *         must be read again.
+     */
+    ConfigurationIndex getConfigurationIndex();
+
+    /**
+     * Reads a <code>.properties</code> file and parses it. Files having the same content are parsed once, see {@link ConfigurationProperties}.
+     * In tenant overlay mode, the tenant template file is read when the tenant does not have its own file.
+     *
+     * @param type type of the file
+     * @param tenantId tenant id of the file, 0 for platform files
+     * @param resourceName name of the file
+     * @return an immutable view of the parsed file, or null if there is no such file
+     * @throws IllegalArgumentException if the file holds a malformed Unicode escape
+     */
+    ConfigurationProperties getConfigurationProperties(ConfigurationType type, long tenantId, String resourceName);
+
     /**
      * read licensesFolder for license files
      * sub-folders are ignored
@@ -232,6 +428,16 @@ public interface ConfigurationService {
      */
     List<BonitaConfiguration> getLicenses() throws PlatformException;
 
+    /**
+     * Creates the configuration of a new tenant from tenant templates: engine, portal and security scripts files are copied inside the
+     * database, in a single transaction, without transferring their content.
+     * In tenant overlay mode, nothing is copied as tenant files are resolved from tenant templates.
+     *
+     * @param tenantId the tenant id. The tenant must not have any engine, portal or security scripts file yet.
+     * @throws IllegalArgumentException when tenantId value is out of range (<= 0 )
+     */
+    void createTenantConfigurationFromTemplate(long tenantId);
+
     /**
      * Delete all configuration files for a tenant
      *
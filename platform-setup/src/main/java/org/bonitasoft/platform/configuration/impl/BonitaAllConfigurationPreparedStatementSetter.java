@@ -18,49 +18,34 @@ import java.sql.SQLException;
 import java.util.List;
 
 import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.configuration.util.ContentCompression;
+import org.bonitasoft.platform.configuration.util.ContentDigest;
+import org.bonitasoft.platform.dialect.Dialect;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
-import org.springframework.jdbc.support.lob.TemporaryLobCreator;
 
 /**
  * @author Laurent Leseigneur
  */
 public class BonitaAllConfigurationPreparedStatementSetter implements BatchPreparedStatementSetter, ConfigurationColumns {
 
-    public static final String INSERT_CONFIGURATION = "INSERT into configuration(tenant_id, content_type, resource_name, resource_content) values (?,?,?,?)";
+    public static final String INSERT_CONFIGURATION = "INSERT into configuration(tenant_id, content_type, resource_name, resource_content, resource_hash) values (?,?,?,?,?)";
     private final List<FullBonitaConfiguration> bonitaConfigurations;
 
-    String dbVendor;
+    private final Dialect dialect;
 
-    public BonitaAllConfigurationPreparedStatementSetter(List<FullBonitaConfiguration> bonitaConfigurations, String dbVendor) {
+    public BonitaAllConfigurationPreparedStatementSetter(List<FullBonitaConfiguration> bonitaConfigurations, Dialect dialect) {
         this.bonitaConfigurations = bonitaConfigurations;
-        this.dbVendor = dbVendor;
-        if (this.dbVendor == null) {
-            this.dbVendor = System.getProperty("sysprop.bonita.db.vendor");
-        }
+        this.dialect = dialect;
     }
 
     @Override
     public void setValues(PreparedStatement ps, int i) throws SQLException {
-        final TemporaryLobCreator temporaryLobCreator = new TemporaryLobCreator();
-
         final FullBonitaConfiguration bonitaConfiguration = bonitaConfigurations.get(i);
         ps.setLong(COLUMN_INDEX_TENANT_ID, bonitaConfiguration.getTenantId());
         ps.setString(COLUMN_INDEX_TYPE, bonitaConfiguration.getConfigurationType());
         ps.setString(COLUMN_INDEX_RESOURCE_NAME, bonitaConfiguration.getResourceName());
-        switch (dbVendor) {
-            case "h2":
-            case "postgres":
-                ps.setBytes(COLUMN_INDEX_RESOURCE_CONTENT, bonitaConfiguration.getResourceContent());
-                break;
-            case "oracle":
-            case "mysql":
-            case "sqlserver":
-                temporaryLobCreator.setBlobAsBytes(ps, COLUMN_INDEX_RESOURCE_CONTENT, bonitaConfiguration.getResourceContent());
-                break;
-            default:
-                throw new IllegalArgumentException(new StringBuilder("unsupported db vendor:").append(dbVendor).toString());
-
-        }
+        dialect.setResourceContent(ps, COLUMN_INDEX_RESOURCE_CONTENT, ContentCompression.encode(bonitaConfiguration.getResourceContent()));
+        ps.setString(COLUMN_INDEX_RESOURCE_HASH, ContentDigest.digest(bonitaConfiguration.getResourceContent()));
 
     }
 
@@ -11,41 +11,38 @@
  * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
  * Floor, Boston, MA 02110-1301, USA.
  **/
-
 package org.bonitasoft.platform.configuration.impl;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
 
-import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 
 /**
  * @author Laurent Leseigneur
  */
-public class BonitaAllConfigurationContentTypeCleaner implements BatchPreparedStatementSetter {
-
-    public static final String DELETE_CONFIGURATION = "DELETE from configuration where tenant_id = ? and content_type = ? and resource_name = ? ";
+public class BonitaConfigurationDescriptorCleaner implements BatchPreparedStatementSetter {
 
-    private final List<FullBonitaConfiguration> bonitaConfigurations;
+    public static final String DELETE_CONFIGURATION = "DELETE from configuration where tenant_id = ? and content_type = ? and resource_name = ?";
 
-    public BonitaAllConfigurationContentTypeCleaner(List<FullBonitaConfiguration> bonitaConfigurations) {
-        this.bonitaConfigurations = bonitaConfigurations;
+    private final List<BonitaConfigurationDescriptor> descriptors;
 
+    public BonitaConfigurationDescriptorCleaner(List<BonitaConfigurationDescriptor> descriptors) {
+        this.descriptors = descriptors;
     }
 
     @Override
     public void setValues(PreparedStatement ps, int i) throws SQLException {
-        final FullBonitaConfiguration bonitaConfiguration = bonitaConfigurations.get(i);
-        ps.setLong(1, bonitaConfiguration.getTenantId());
-        ps.setString(2, bonitaConfiguration.getConfigurationType());
-        ps.setString(3, bonitaConfiguration.getResourceName());
-
+        final BonitaConfigurationDescriptor descriptor = descriptors.get(i);
+        ps.setLong(1, descriptor.getTenantId());
+        ps.setString(2, descriptor.getConfigurationType());
+        ps.setString(3, descriptor.getResourceName());
     }
 
     @Override
     public int getBatchSize() {
-        return bonitaConfigurations.size();
+        return descriptors.size();
     }
 }
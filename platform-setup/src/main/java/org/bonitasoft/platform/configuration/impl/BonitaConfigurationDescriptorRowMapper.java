@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.impl;
+
+import static org.bonitasoft.platform.configuration.impl.ConfigurationFields.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Maps configuration rows without reading column resource_content.
+ */
+public class BonitaConfigurationDescriptorRowMapper implements RowMapper<BonitaConfigurationDescriptor> {
+
+    private static final String SELECT_DESCRIPTOR_COLUMNS = "SELECT tenant_id, content_type, resource_name, %s(resource_content) AS resource_length, resource_hash FROM configuration";
+
+    public static final String SELECT_DESCRIPTORS_FOR_TYPE = SELECT_DESCRIPTOR_COLUMNS + " WHERE tenant_id = ? AND content_type = ? ORDER BY resource_name";
+    public static final String SELECT_ALL_DESCRIPTORS = SELECT_DESCRIPTOR_COLUMNS + " ORDER BY tenant_id, content_type, resource_name";
+
+    /**
+     * descriptors of the files of a revision, see {@link BonitaConfigurationHistoryCopier}
+     */
+    public static final String SELECT_DESCRIPTORS_AT_REVISION = "SELECT h.tenant_id, h.content_type, h.resource_name, %s(cc.resource_content) AS resource_length,"
+            + " h.resource_hash FROM configuration_history h JOIN configuration_content cc ON cc.resource_hash = h.resource_hash WHERE"
+            + BonitaConfigurationHistoryCopier.STATE_AT_REVISION + " ORDER BY h.tenant_id, h.content_type, h.resource_name";
+
+    /**
+     * @param query one of the SELECT_*DESCRIPTORS* queries
+     * @param dialect database dialect
+     * @return query that computes the content length using the dialect function
+     */
+    public static String forDialect(String query, Dialect dialect) {
+        return String.format(query, dialect.getContentLengthFunction());
+    }
+
+    @Override
+    public BonitaConfigurationDescriptor mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new BonitaConfigurationDescriptor(rs.getString(RESOURCE_NAME), rs.getString(CONTENT_TYPE), rs.getLong(TENANT_ID), rs.getLong(RESOURCE_LENGTH),
+                rs.getString(RESOURCE_HASH));
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+/**
+ * Copies configuration to its history and back, without reading content.
+ * <ul>
+ * <li>table configuration_content holds each distinct content once, keyed by its hash</li>
+ * <li>table configuration_history holds, for each file, one row per revision where its hash changed, with a null hash when it was deleted</li>
+ * </ul>
+ * The state of a file at a revision is its history row with the greatest revision lower or equal to it.
+ * As a batch setter, copies the content of the given files to configuration_content.
+ */
+public class BonitaConfigurationHistoryCopier implements BatchPreparedStatementSetter {
+
+    private static final String SAME_FILE_AS_H = " h2.tenant_id = h.tenant_id AND h2.content_type = h.content_type AND h2.resource_name = h.resource_name";
+
+    /**
+     * condition on history rows aliased h, parameter is the revision
+     */
+    static final String STATE_AT_REVISION = " h.revision = (SELECT MAX(h2.revision) FROM configuration_history h2 WHERE" + SAME_FILE_AS_H
+            + " AND h2.revision <= ?)";
+
+    public static final String SELECT_CONFIGURATION_WITHOUT_HASH = "SELECT tenant_id, content_type, resource_name, resource_content FROM configuration"
+            + " WHERE resource_hash IS NULL";
+
+    public static final String UPDATE_HASH = "UPDATE configuration SET resource_hash = ? WHERE tenant_id = ? AND content_type = ? AND resource_name = ?";
+
+    public static final String SELECT_FILES_WITH_NEW_CONTENT = "SELECT c.tenant_id, c.content_type, c.resource_name, 0 AS resource_length, c.resource_hash"
+            + " FROM configuration c WHERE NOT EXISTS (SELECT 1 FROM configuration_content cc WHERE cc.resource_hash = c.resource_hash)";
+
+    public static final String COPY_CONTENT = "INSERT INTO configuration_content(resource_hash, resource_content)"
+            + " SELECT resource_hash, resource_content FROM configuration WHERE tenant_id = ? AND content_type = ? AND resource_name = ?";
+
+    public static final String INSERT_CHANGED_FILES_HISTORY = "INSERT INTO configuration_history(revision, tenant_id, content_type, resource_name, resource_hash)"
+            + " SELECT ?, c.tenant_id, c.content_type, c.resource_name, c.resource_hash FROM configuration c"
+            + " WHERE NOT EXISTS (SELECT 1 FROM configuration_history h WHERE h.tenant_id = c.tenant_id AND h.content_type = c.content_type"
+            + " AND h.resource_name = c.resource_name AND h.resource_hash = c.resource_hash"
+            + " AND h.revision = (SELECT MAX(h2.revision) FROM configuration_history h2 WHERE" + SAME_FILE_AS_H + "))";
+
+    public static final String INSERT_DELETED_FILES_HISTORY = "INSERT INTO configuration_history(revision, tenant_id, content_type, resource_name, resource_hash)"
+            + " SELECT ?, h.tenant_id, h.content_type, h.resource_name, NULL FROM configuration_history h"
+            + " WHERE h.resource_hash IS NOT NULL AND h.revision = (SELECT MAX(h2.revision) FROM configuration_history h2 WHERE" + SAME_FILE_AS_H + ")"
+            + " AND NOT EXISTS (SELECT 1 FROM configuration c WHERE c.tenant_id = h.tenant_id AND c.content_type = h.content_type"
+            + " AND c.resource_name = h.resource_name)";
+
+    public static final String RESTORE_REVISION = "INSERT INTO configuration(tenant_id, content_type, resource_name, resource_content, resource_hash)"
+            + " SELECT h.tenant_id, h.content_type, h.resource_name, cc.resource_content, h.resource_hash"
+            + " FROM configuration_history h JOIN configuration_content cc ON cc.resource_hash = h.resource_hash WHERE" + STATE_AT_REVISION;
+
+    private final List<BonitaConfigurationDescriptor> descriptors;
+
+    /**
+     * @param descriptors files whose content is copied, one per distinct hash
+     */
+    public BonitaConfigurationHistoryCopier(List<BonitaConfigurationDescriptor> descriptors) {
+        this.descriptors = descriptors;
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+        final BonitaConfigurationDescriptor descriptor = descriptors.get(i);
+        ps.setLong(1, descriptor.getTenantId());
+        ps.setString(2, descriptor.getConfigurationType());
+        ps.setString(3, descriptor.getResourceName());
+    }
+
+    @Override
+    public int getBatchSize() {
+        return descriptors.size();
+    }
+}
@@ -20,6 +20,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.util.ContentCompression;
 import org.springframework.jdbc.core.RowMapper;
 
 /**
@@ -29,9 +30,47 @@ public class BonitaConfigurationRowMapper implements RowMapper<BonitaConfigurati
 
     public static final String SELECT_CONFIGURATION_FOR_TYPE = "SELECT tenant_id, content_type, resource_name, resource_content FROM configuration WHERE tenant_id = ? AND content_type = ? ORDER BY resource_name";
     public static final String SELECT_CONFIGURATION = "SELECT tenant_id, content_type, resource_name, resource_content FROM configuration WHERE tenant_id = ? AND content_type = ? AND resource_name = ?";
+    /**
+     * selects files of a tenant type, completed by the files of its template that the tenant does not override
+     */
+    public static final String SELECT_OVERLAID_CONFIGURATION_FOR_TYPE = "SELECT tenant_id, content_type, resource_name, resource_content FROM configuration WHERE tenant_id = ? AND content_type = ?"
+            + " UNION ALL SELECT tpl.tenant_id, tpl.content_type, tpl.resource_name, tpl.resource_content FROM configuration tpl WHERE tpl.tenant_id = 0 AND tpl.content_type = ?"
+            + " AND NOT EXISTS (SELECT ovr.resource_name FROM configuration ovr WHERE ovr.tenant_id = ? AND ovr.content_type = ? AND ovr.resource_name = tpl.resource_name)"
+            + " ORDER BY resource_name";
+    public static final String SELECT_RESOURCE_HASH = "SELECT resource_hash FROM configuration WHERE tenant_id = ? AND content_type = ? AND resource_name = ?";
+
+    public static final String SELECT_RESOURCE_HASHES_FOR_TYPE = "SELECT resource_name, resource_hash FROM configuration WHERE tenant_id = ? AND content_type = ? ORDER BY resource_name";
+
+    private static final String SELECT_CONFIGURATION_FOR_NAMES = "SELECT tenant_id, content_type, resource_name, resource_content FROM configuration WHERE tenant_id = ? AND content_type = ? AND resource_name IN (%s) ORDER BY resource_name";
+
+    private static final String SELECT_CONFIGURATION_FOR_TENANTS = "SELECT tenant_id, content_type, resource_name, resource_content FROM configuration WHERE content_type = ? AND tenant_id IN (%s) ORDER BY tenant_id, resource_name";
+
+    /**
+     * @param tenantCount number of tenant ids bound after the content type
+     * @return query selecting files of a type for several tenants, ordered by tenant id and resource name
+     */
+    public static String selectConfigurationForTenants(int tenantCount) {
+        return String.format(SELECT_CONFIGURATION_FOR_TENANTS, parameters(tenantCount));
+    }
+
+    /**
+     * @param nameCount number of resource names bound after the tenant id and the content type
+     * @return query selecting files of a tenant and a type by name, ordered by resource name
+     */
+    public static String selectConfigurationForNames(int nameCount) {
+        return String.format(SELECT_CONFIGURATION_FOR_NAMES, parameters(nameCount));
+    }
+
+    private static String parameters(int count) {
+        final StringBuilder parameters = new StringBuilder("?");
+        for (int i = 1; i < count; i++) {
+            parameters.append(", ?");
+        }
+        return parameters.toString();
+    }
 
     @Override
     public BonitaConfiguration mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return new BonitaConfiguration(rs.getString(RESOURCE_NAME), rs.getBytes(RESOURCE_CONTENT));
+        return new BonitaConfiguration(rs.getString(RESOURCE_NAME), ContentCompression.decode(rs.getBytes(RESOURCE_CONTENT)));
     }
 }
@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+/**
+ * Copies the files of tenant templates to a tenant, without reading their content: one statement per tenant type.
+ */
+public class BonitaConfigurationTenantTemplateCopier implements BatchPreparedStatementSetter {
+
+    public static final String COPY_TENANT_TEMPLATE_CONFIGURATION = "INSERT INTO configuration(tenant_id, content_type, resource_name, resource_content, resource_hash)"
+            + " SELECT ?, ?, resource_name, resource_content, resource_hash FROM configuration WHERE tenant_id = 0 AND content_type = ?";
+
+    private final long tenantId;
+
+    private final List<ConfigurationType> tenantTypes;
+
+    /**
+     * @param tenantId tenant to copy template files to
+     * @param tenantTypes tenant types to fill from their {@link ConfigurationType#getTenantTemplateType() template type}
+     */
+    public BonitaConfigurationTenantTemplateCopier(long tenantId, List<ConfigurationType> tenantTypes) {
+        this.tenantId = tenantId;
+        this.tenantTypes = tenantTypes;
+    }
+
+    @Override
+    public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
+        final ConfigurationType tenantType = tenantTypes.get(i);
+        preparedStatement.setLong(1, tenantId);
+        preparedStatement.setString(2, tenantType.name());
+        preparedStatement.setString(3, tenantType.getTenantTemplateType().name());
+    }
+
+    @Override
+    public int getBatchSize() {
+        return tenantTypes.size();
+    }
+}
@@ -0,0 +1,790 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.impl;
+
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.*;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bonitasoft.platform.configuration.ConfigurationService;
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.ConfigurationChange;
+import org.bonitasoft.platform.configuration.model.ConfigurationChangeReport;
+import org.bonitasoft.platform.configuration.model.ConfigurationFile;
+import org.bonitasoft.platform.configuration.model.ConfigurationIndex;
+import org.bonitasoft.platform.configuration.model.ConfigurationProperties;
+import org.bonitasoft.platform.configuration.model.ConfigurationRevision;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.ModifiedConfigurations;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.configuration.util.ConfigurationPropertiesCache;
+import org.bonitasoft.platform.configuration.util.FullBonitaConfigurationConsumer;
+import org.bonitasoft.platform.exception.PlatformException;
+
+/**
+ * Read-through cache in front of a {@link ConfigurationService}.
+ * <p>
+ * Lists of files are cached per (tenant id, {@link ConfigurationType}) and evicted in least-recently-used order as soon as the cache holds more than
+ * <code>maxEntries</code> entries or more than <code>maxBytes</code> bytes of resource content.
+ * Every store and delete method called on this service invalidates the entries it may have modified. Writes done directly on the database, or through
+ * another service instance, are not seen until the matching entries are invalidated, for instance by calling {@link #refresh()} periodically.
+ * <p>
+ * Files are cached as immutable {@link ConfigurationFile} copies: each call returns new {@link BonitaConfiguration} objects, that callers may modify
+ * without altering the cache.
+ */
+public class CachedConfigurationService implements ConfigurationService {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final long NON_TENANT_RESOURCE = 0;
+
+    private final ConfigurationService delegate;
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long cachedBytes;
+
+    /**
+     * incremented on each invalidation, so that a value loaded concurrently with an invalidation is never put in cache
+     */
+    private long generation;
+
+    /**
+     * id of the latest configuration change taken into account by {@link #refresh()}, -1 before the first refresh
+     */
+    private long knownChangeId = -1;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private final ConfigurationPropertiesCache propertiesCache = new ConfigurationPropertiesCache();
+
+    public CachedConfigurationService(ConfigurationService delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    public CachedConfigurationService(ConfigurationService delegate, int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("cache bounds must be positive: maxEntries=" + maxEntries + " maxBytes=" + maxBytes);
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public List<BonitaConfiguration> getPlatformPortalConf() {
+        return getOrLoad(PLATFORM_PORTAL, NON_TENANT_RESOURCE, new Loader<RuntimeException>() {
+
+            @Override
+            public List<BonitaConfiguration> load() {
+                return delegate.getPlatformPortalConf();
+            }
+        });
+    }
+
+    @Override
+    public List<BonitaConfiguration> getPlatformInitEngineConf() {
+        return getOrLoad(PLATFORM_INIT_ENGINE, NON_TENANT_RESOURCE, new Loader<RuntimeException>() {
+
+            @Override
+            public List<BonitaConfiguration> load() {
+                return delegate.getPlatformInitEngineConf();
+            }
+        });
+    }
+
+    @Override
+    public List<BonitaConfiguration> getPlatformEngineConf() {
+        return getOrLoad(PLATFORM_ENGINE, NON_TENANT_RESOURCE, new Loader<RuntimeException>() {
+
+            @Override
+            public List<BonitaConfiguration> load() {
+                return delegate.getPlatformEngineConf();
+            }
+        });
+    }
+
+    @Override
+    public List<BonitaConfiguration> getTenantTemplateEngineConf() {
+        return getOrLoad(TENANT_TEMPLATE_ENGINE, NON_TENANT_RESOURCE, new Loader<RuntimeException>() {
+
+            @Override
+            public List<BonitaConfiguration> load() {
+                return delegate.getTenantTemplateEngineConf();
+            }
+        });
+    }
+
+    @Override
+    public List<BonitaConfiguration> getTenantTemplateSecurityScripts() {
+        return getOrLoad(TENANT_TEMPLATE_SECURITY_SCRIPTS, NON_TENANT_RESOURCE, new Loader<RuntimeException>() {
+
+            @Override
+            public List<BonitaConfiguration> load() {
+                return delegate.getTenantTemplateSecurityScripts();
+            }
+        });
+    }
+
+    @Override
+    public List<BonitaConfiguration> getTenantEngineConf(final long tenantId) {
+        return getOrLoad(TENANT_ENGINE, tenantId, new Loader<RuntimeException>() {
+
+            @Override
+            public List<BonitaConfiguration> load() {
+                return delegate.getTenantEngineConf(tenantId);
+            }
+        });
+    }
+
+    @Override
+    public List<BonitaConfiguration> getTenantSecurityScripts(final long tenantId) {
+        return getOrLoad(TENANT_SECURITY_SCRIPTS, tenantId, new Loader<RuntimeException>() {
+
+            @Override
+            public List<BonitaConfiguration> load() {
+                return delegate.getTenantSecurityScripts(tenantId);
+            }
+        });
+    }
+
+    @Override
+    public List<BonitaConfiguration> getTenantTemplatePortalConf() {
+        return getOrLoad(TENANT_TEMPLATE_PORTAL, NON_TENANT_RESOURCE, new Loader<RuntimeException>() {
+
+            @Override
+            public List<BonitaConfiguration> load() {
+                return delegate.getTenantTemplatePortalConf();
+            }
+        });
+    }
+
+    @Override
+    public List<BonitaConfiguration> getTenantPortalConf(final long tenantId) {
+        return getOrLoad(TENANT_PORTAL, tenantId, new Loader<RuntimeException>() {
+
+            @Override
+            public List<BonitaConfiguration> load() {
+                return delegate.getTenantPortalConf(tenantId);
+            }
+        });
+    }
+
+    @Override
+    public BonitaConfiguration getTenantPortalConfiguration(long tenantId, String file) {
+        List<ConfigurationFile> cached = getCached(TENANT_PORTAL, tenantId);
+        if (cached == null) {
+            return delegate.getTenantPortalConfiguration(tenantId, file);
+        }
+        for (ConfigurationFile configurationFile : cached) {
+            if (configurationFile.getResourceName().equals(file)) {
+                return configurationFile.toBonitaConfiguration();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Map<Long, List<BonitaConfiguration>> getTenantsConfigurations(ConfigurationType type, Collection<Long> tenantIds) {
+        final Map<Long, List<BonitaConfiguration>> configurationsByTenant = new TreeMap<>();
+        final List<Long> missingTenantIds = new ArrayList<>();
+        for (Long tenantId : new TreeSet<>(tenantIds)) {
+            final List<ConfigurationFile> cached = getCached(type, tenantId);
+            if (cached != null) {
+                configurationsByTenant.put(tenantId, toBonitaConfigurations(cached));
+            } else {
+                missingTenantIds.add(tenantId);
+            }
+        }
+        if (!missingTenantIds.isEmpty()) {
+            final long loadGeneration = currentGeneration();
+            for (Map.Entry<Long, List<BonitaConfiguration>> loaded : delegate.getTenantsConfigurations(type, missingTenantIds).entrySet()) {
+                configurationsByTenant.put(loaded.getKey(), putInCache(type, loaded.getKey(), loaded.getValue(), loadGeneration));
+            }
+        }
+        return new LinkedHashMap<>(configurationsByTenant);
+    }
+
+    @Override
+    public ModifiedConfigurations getModifiedConfigurations(ConfigurationType type, long tenantId, Map<String, String> knownHashes) {
+        // caller already holds the content, only hashes are compared: always ask the database
+        return delegate.getModifiedConfigurations(type, tenantId, knownHashes);
+    }
+
+    @Override
+    public List<BonitaConfigurationDescriptor> getConfigurationDescriptors(ConfigurationType type, long tenantId) {
+        return delegate.getConfigurationDescriptors(type, tenantId);
+    }
+
+    @Override
+    public List<BonitaConfigurationDescriptor> getAllConfigurationDescriptors() {
+        return delegate.getAllConfigurationDescriptors();
+    }
+
+    @Override
+    public BonitaConfiguration loadConfiguration(BonitaConfigurationDescriptor descriptor) {
+        List<ConfigurationFile> cached = getCached(ConfigurationType.valueOf(descriptor.getConfigurationType()), descriptor.getTenantId());
+        if (cached != null) {
+            for (ConfigurationFile configurationFile : cached) {
+                if (configurationFile.getResourceName().equals(descriptor.getResourceName())) {
+                    return configurationFile.toBonitaConfiguration();
+                }
+            }
+        }
+        return delegate.loadConfiguration(descriptor);
+    }
+
+    @Override
+    public List<BonitaConfiguration> getLicenses() throws PlatformException {
+        return getOrLoad(LICENSES, NON_TENANT_RESOURCE, new Loader<PlatformException>() {
+
+            @Override
+            public List<BonitaConfiguration> load() throws PlatformException {
+                return delegate.getLicenses();
+            }
+        });
+    }
+
+    @Override
+    public void storePlatformInitEngineConf(List<BonitaConfiguration> bonitaConfigurations) {
+        try {
+            delegate.storePlatformInitEngineConf(bonitaConfigurations);
+        } finally {
+            invalidate(PLATFORM_INIT_ENGINE, NON_TENANT_RESOURCE);
+        }
+    }
+
+    @Override
+    public void storePlatformEngineConf(List<BonitaConfiguration> bonitaConfigurations) {
+        try {
+            delegate.storePlatformEngineConf(bonitaConfigurations);
+        } finally {
+            invalidate(PLATFORM_ENGINE, NON_TENANT_RESOURCE);
+        }
+    }
+
+    @Override
+    public void storeTenantTemplateEngineConf(List<BonitaConfiguration> bonitaConfigurations) {
+        try {
+            delegate.storeTenantTemplateEngineConf(bonitaConfigurations);
+        } finally {
+            invalidateTemplate(TENANT_TEMPLATE_ENGINE);
+        }
+    }
+
+    @Override
+    public void storeTenantTemplateSecurityScripts(List<BonitaConfiguration> bonitaConfigurations) {
+        try {
+            delegate.storeTenantTemplateSecurityScripts(bonitaConfigurations);
+        } finally {
+            invalidateTemplate(TENANT_TEMPLATE_SECURITY_SCRIPTS);
+        }
+    }
+
+    @Override
+    public void storeTenantEngineConf(List<BonitaConfiguration> bonitaConfigurations, long tenantId) {
+        try {
+            delegate.storeTenantEngineConf(bonitaConfigurations, tenantId);
+        } finally {
+            invalidate(TENANT_ENGINE, tenantId);
+        }
+    }
+
+    @Override
+    public void storeTenantSecurityScripts(List<BonitaConfiguration> bonitaConfigurations, long tenantId) {
+        try {
+            delegate.storeTenantSecurityScripts(bonitaConfigurations, tenantId);
+        } finally {
+            invalidate(TENANT_SECURITY_SCRIPTS, tenantId);
+        }
+    }
+
+    @Override
+    public void storeTenantTemplatePortalConf(List<BonitaConfiguration> bonitaConfigurations) {
+        try {
+            delegate.storeTenantTemplatePortalConf(bonitaConfigurations);
+        } finally {
+            invalidateTemplate(TENANT_TEMPLATE_PORTAL);
+        }
+    }
+
+    @Override
+    public void storeTenantPortalConf(List<BonitaConfiguration> bonitaConfigurations, long tenantId) {
+        try {
+            delegate.storeTenantPortalConf(bonitaConfigurations, tenantId);
+        } finally {
+            invalidate(TENANT_PORTAL, tenantId);
+        }
+    }
+
+    @Override
+    public void storePlatformPortalConf(List<BonitaConfiguration> bonitaConfigurations) {
+        try {
+            delegate.storePlatformPortalConf(bonitaConfigurations);
+        } finally {
+            invalidate(PLATFORM_PORTAL, NON_TENANT_RESOURCE);
+        }
+    }
+
+    @Override
+    public void storeTenantConfiguration(File configurationRootFolder, long tenantId) throws PlatformException {
+        try {
+            delegate.storeTenantConfiguration(configurationRootFolder, tenantId);
+        } finally {
+            invalidate(TENANT_PORTAL, tenantId);
+        }
+    }
+
+    @Override
+    public void storePlatformConfiguration(File configurationRootFolder) throws PlatformException {
+        try {
+            delegate.storePlatformConfiguration(configurationRootFolder);
+        } finally {
+            invalidate(PLATFORM_ENGINE, NON_TENANT_RESOURCE);
+        }
+    }
+
+    @Override
+    public void storeAllConfiguration(File configurationRootFolder) throws PlatformException {
+        try {
+            delegate.storeAllConfiguration(configurationRootFolder);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public ConfigurationChangeReport storeModifiedConfiguration(File configurationRootFolder) throws PlatformException {
+        try {
+            return delegate.storeModifiedConfiguration(configurationRootFolder);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public ConfigurationChangeReport storeConfigurationFiles(List<FullBonitaConfiguration> writtenFiles, List<BonitaConfigurationDescriptor> deletedFiles) {
+        try {
+            return delegate.storeConfigurationFiles(writtenFiles, deletedFiles);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public void writeAllConfigurationToFolder(File configurationFolder, File licenseFolder) throws PlatformException {
+        delegate.writeAllConfigurationToFolder(configurationFolder, licenseFolder);
+    }
+
+    @Override
+    public void writeAllConfigurationToFolder(File configurationFolder, File licenseFolder, File previousConfigurationFolder, File previousLicenseFolder)
+            throws PlatformException {
+        delegate.writeAllConfigurationToFolder(configurationFolder, licenseFolder, previousConfigurationFolder, previousLicenseFolder);
+    }
+
+    @Override
+    public void streamAllConfiguration(FullBonitaConfigurationConsumer consumer, int fetchSize) throws PlatformException {
+        delegate.streamAllConfiguration(consumer, fetchSize);
+    }
+
+    @Override
+    public void exportAllConfiguration(OutputStream outputStream) throws PlatformException {
+        delegate.exportAllConfiguration(outputStream);
+    }
+
+    @Override
+    public void importAllConfiguration(InputStream inputStream) throws PlatformException {
+        try {
+            delegate.importAllConfiguration(inputStream);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public long createConfigurationRevision(String description) {
+        return delegate.createConfigurationRevision(description);
+    }
+
+    @Override
+    public List<ConfigurationRevision> getConfigurationRevisions() {
+        return delegate.getConfigurationRevisions();
+    }
+
+    @Override
+    public ConfigurationChangeReport diffConfigurationRevisions(long fromRevision, long toRevision) {
+        return delegate.diffConfigurationRevisions(fromRevision, toRevision);
+    }
+
+    @Override
+    public long rollbackConfiguration(long revision) {
+        try {
+            return delegate.rollbackConfiguration(revision);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public void storeLicenses(File licensesFolder) throws PlatformException {
+        try {
+            delegate.storeLicenses(licensesFolder);
+        } finally {
+            invalidate(LICENSES, NON_TENANT_RESOURCE);
+        }
+    }
+
+    @Override
+    public void createTenantConfigurationFromTemplate(long tenantId) {
+        try {
+            delegate.createTenantConfigurationFromTemplate(tenantId);
+        } finally {
+            invalidateTenant(tenantId);
+        }
+    }
+
+    @Override
+    public void deleteTenantConfiguration(long tenantId) {
+        try {
+            delegate.deleteTenantConfiguration(tenantId);
+        } finally {
+            invalidateTenant(tenantId);
+        }
+    }
+
+    @Override
+    public void deleteAllConfiguration() {
+        try {
+            delegate.deleteAllConfiguration();
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public long getLastConfigurationChangeId() {
+        return delegate.getLastConfigurationChangeId();
+    }
+
+    @Override
+    public List<ConfigurationChange> getConfigurationChangesSince(long changeId) {
+        return delegate.getConfigurationChangesSince(changeId);
+    }
+
+    @Override
+    public ConfigurationIndex getConfigurationIndex() {
+        return delegate.getConfigurationIndex();
+    }
+
+    @Override
+    public ConfigurationProperties getConfigurationProperties(ConfigurationType type, long tenantId, String resourceName) {
+        final List<ConfigurationFile> cached = getCached(type, tenantId);
+        if (cached == null) {
+            return delegate.getConfigurationProperties(type, tenantId, resourceName);
+        }
+        for (ConfigurationFile configurationFile : cached) {
+            if (configurationFile.getResourceName().equals(resourceName)) {
+                return propertiesCache.parse(null, configurationFile.getContentBytes());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Invalidates the entries modified through any service instance since the previous call, using the configuration change feed.
+     * Meant to be called periodically: when configuration did not change, only the change counter is read. The first call, and a call missing
+     * changes already deleted from the feed, invalidate all entries.
+     *
+     * @return id of the latest configuration change taken into account
+     */
+    public long refresh() {
+        final long lastChangeId = delegate.getLastConfigurationChangeId();
+        final long knownChangeId = getKnownChangeId();
+        if (knownChangeId == lastChangeId) {
+            return knownChangeId;
+        }
+        if (knownChangeId < 0) {
+            invalidateAll();
+            setKnownChangeId(lastChangeId);
+            return lastChangeId;
+        }
+        final List<ConfigurationChange> changes = delegate.getConfigurationChangesSince(knownChangeId);
+        if (changes.isEmpty() || changes.get(0).getChangeId() != knownChangeId + 1) {
+            // changes missed by this instance were deleted from the feed
+            invalidateAll();
+            setKnownChangeId(lastChangeId);
+            return lastChangeId;
+        }
+        long refreshedChangeId = knownChangeId;
+        for (ConfigurationChange change : changes) {
+            invalidate(change);
+            refreshedChangeId = change.getChangeId();
+        }
+        setKnownChangeId(refreshedChangeId);
+        return refreshedChangeId;
+    }
+
+    private void invalidate(ConfigurationChange change) {
+        if (change.getTenantId() == null) {
+            invalidateAll();
+        } else if (change.getConfigurationType() == null) {
+            invalidateTenant(change.getTenantId());
+        } else if (change.getTenantId() == NON_TENANT_RESOURCE) {
+            invalidateTemplate(ConfigurationType.valueOf(change.getConfigurationType()));
+        } else {
+            invalidate(ConfigurationType.valueOf(change.getConfigurationType()), change.getTenantId());
+        }
+    }
+
+    private synchronized long getKnownChangeId() {
+        return knownChangeId;
+    }
+
+    private synchronized void setKnownChangeId(long knownChangeId) {
+        this.knownChangeId = knownChangeId;
+    }
+
+    /**
+     * @return number of lookups served from cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of lookups that had to be read from the underlying service
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return number of entries removed to respect the cache bounds
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return number of (tenant id, configuration type) entries currently cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return total size in bytes of the resource contents currently cached
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * Removes the cached files of the given type and tenant.
+     */
+    public synchronized void invalidate(ConfigurationType type, long tenantId) {
+        generation++;
+        remove(new CacheKey(tenantId, type));
+    }
+
+    /**
+     * Removes the cached files of the given tenant template and of all tenants created from it, as tenant files may be resolved from their template.
+     */
+    public synchronized void invalidateTemplate(ConfigurationType templateType) {
+        generation++;
+        final Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+            if (entry.getKey().type == templateType || entry.getKey().type.getTenantTemplateType() == templateType) {
+                cachedBytes -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached files of the given tenant.
+     */
+    public synchronized void invalidateTenant(long tenantId) {
+        generation++;
+        final Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+            if (entry.getKey().tenantId == tenantId) {
+                cachedBytes -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached files.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        cachedBytes = 0;
+        propertiesCache.clear();
+    }
+
+    private synchronized List<ConfigurationFile> getCached(ConfigurationType type, long tenantId) {
+        final CacheEntry entry = entries.get(new CacheKey(tenantId, type));
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.files;
+    }
+
+    /**
+     * @return the cached files of the given type and tenant, or the files read by the loader, that are put in cache unless an invalidation
+     *         happened while they were read
+     */
+    private <E extends Exception> List<BonitaConfiguration> getOrLoad(ConfigurationType type, long tenantId, Loader<E> loader) throws E {
+        final List<ConfigurationFile> cached = getCached(type, tenantId);
+        if (cached != null) {
+            return toBonitaConfigurations(cached);
+        }
+        // read before loading, so that an invalidation happening during the load prevents caching outdated files
+        final long loadGeneration = currentGeneration();
+        return putInCache(type, tenantId, loader.load(), loadGeneration);
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    private synchronized List<BonitaConfiguration> putInCache(ConfigurationType type, long tenantId, List<BonitaConfiguration> configurations,
+            long loadGeneration) {
+        if (configurations == null) {
+            return null;
+        }
+        if (loadGeneration == generation) {
+            final CacheEntry entry = new CacheEntry(type, tenantId, configurations);
+            if (entry.weight <= maxBytes) {
+                final CacheKey key = new CacheKey(tenantId, type);
+                remove(key);
+                entries.put(key, entry);
+                cachedBytes += entry.weight;
+                evictIfNeeded();
+            }
+        }
+        // the cache holds its own copy of the content, the loaded objects can be handed to the caller
+        return configurations;
+    }
+
+    private static List<BonitaConfiguration> toBonitaConfigurations(List<ConfigurationFile> files) {
+        final List<BonitaConfiguration> bonitaConfigurations = new ArrayList<>(files.size());
+        for (ConfigurationFile file : files) {
+            bonitaConfigurations.add(file.toBonitaConfiguration());
+        }
+        return bonitaConfigurations;
+    }
+
+    private void remove(CacheKey key) {
+        final CacheEntry previous = entries.remove(key);
+        if (previous != null) {
+            cachedBytes -= previous.weight;
+        }
+    }
+
+    private void evictIfNeeded() {
+        final Iterator<CacheEntry> eldestFirst = entries.values().iterator();
+        while ((entries.size() > maxEntries || cachedBytes > maxBytes) && eldestFirst.hasNext()) {
+            cachedBytes -= eldestFirst.next().weight;
+            eldestFirst.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reads files from the underlying service on a cache miss.
+     */
+    private interface Loader<E extends Exception> {
+
+        List<BonitaConfiguration> load() throws E;
+    }
+
+    private static final class CacheKey {
+
+        private final long tenantId;
+
+        private final ConfigurationType type;
+
+        private CacheKey(long tenantId, ConfigurationType type) {
+            this.tenantId = tenantId;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            CacheKey that = (CacheKey) o;
+            return tenantId == that.tenantId && type == that.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (int) (tenantId ^ (tenantId >>> 32)) + type.hashCode();
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final List<ConfigurationFile> files;
+
+        private final long weight;
+
+        private CacheEntry(ConfigurationType type, long tenantId, List<BonitaConfiguration> configurations) {
+            final List<ConfigurationFile> copies = new ArrayList<>(configurations.size());
+            long size = 0;
+            for (BonitaConfiguration configuration : configurations) {
+                // content is copied, so that the caller may modify its array afterwards
+                final ConfigurationFile file = ConfigurationFile.of(type, tenantId, configuration.getResourceName(),
+                        configuration.getResourceContent().clone());
+                copies.add(file);
+                size += file.getContentLength();
+            }
+            this.files = Collections.unmodifiableList(copies);
+            this.weight = size;
+        }
+    }
+}
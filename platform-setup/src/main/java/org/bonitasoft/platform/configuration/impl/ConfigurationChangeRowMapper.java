@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.impl;
+
+import static org.bonitasoft.platform.configuration.impl.ConfigurationFields.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.bonitasoft.platform.configuration.model.ConfigurationChange;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Maps rows of table configuration_change.
+ * <p>
+ * Table configuration_change_counter holds a single row with the id of the latest change. Incrementing it locks the row until the end of the
+ * transaction, so that changes are committed in the order of their ids and a node that has seen a change id has also seen all previous ones.
+ */
+public class ConfigurationChangeRowMapper implements RowMapper<ConfigurationChange> {
+
+    public static final String SELECT_LAST_CHANGE_ID = "SELECT last_change_id FROM configuration_change_counter";
+
+    public static final String INCREMENT_LAST_CHANGE_ID = "UPDATE configuration_change_counter SET last_change_id = last_change_id + 1";
+
+    public static final String INSERT_FIRST_CHANGE_ID = "INSERT INTO configuration_change_counter(last_change_id) VALUES (1)";
+
+    public static final String INSERT_CHANGE = "INSERT INTO configuration_change(change_id, tenant_id, content_type, created) VALUES (?, ?, ?, ?)";
+
+    public static final String DELETE_CHANGES_UP_TO = "DELETE FROM configuration_change WHERE change_id <= ?";
+
+    public static final String SELECT_CHANGES_SINCE = "SELECT change_id, tenant_id, content_type, created FROM configuration_change WHERE change_id > ?"
+            + " ORDER BY change_id";
+
+    @Override
+    public ConfigurationChange mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Long tenantId = rs.getLong(TENANT_ID);
+        if (rs.wasNull()) {
+            tenantId = null;
+        }
+        return new ConfigurationChange(rs.getLong("change_id"), tenantId, rs.getString(CONTENT_TYPE), rs.getLong("created"));
+    }
+}
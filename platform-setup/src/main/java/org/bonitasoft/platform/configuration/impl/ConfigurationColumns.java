@@ -22,4 +22,5 @@ public interface ConfigurationColumns {
     int COLUMN_INDEX_TYPE = 2;
     int COLUMN_INDEX_RESOURCE_NAME = 3;
     int COLUMN_INDEX_RESOURCE_CONTENT = 4;
+    int COLUMN_INDEX_RESOURCE_HASH = 5;
 }
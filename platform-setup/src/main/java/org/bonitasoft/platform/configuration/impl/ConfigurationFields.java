@@ -23,4 +23,6 @@ public interface ConfigurationFields {
     String CONTENT_TYPE = "content_type";
     String RESOURCE_NAME = "resource_name";
     String RESOURCE_CONTENT = "resource_content";
+    String RESOURCE_HASH = "resource_hash";
+    String RESOURCE_LENGTH = "resource_length";
 }
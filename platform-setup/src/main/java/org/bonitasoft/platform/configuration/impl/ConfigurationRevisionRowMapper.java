@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.bonitasoft.platform.configuration.model.ConfigurationRevision;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Maps rows of table configuration_revision.
+ * <p>
+ * Table configuration_revision_counter holds a single row with the latest revision number. Incrementing it locks the row until the end of the
+ * transaction, so that concurrent revisions get distinct numbers and are created one after the other.
+ */
+public class ConfigurationRevisionRowMapper implements RowMapper<ConfigurationRevision> {
+
+    public static final String SELECT_REVISIONS = "SELECT revision, created, description FROM configuration_revision ORDER BY revision";
+
+    public static final String COUNT_REVISION = "SELECT COUNT(*) FROM configuration_revision WHERE revision = ?";
+
+    public static final String SELECT_LAST_REVISION = "SELECT last_revision FROM configuration_revision_counter";
+
+    public static final String INCREMENT_LAST_REVISION = "UPDATE configuration_revision_counter SET last_revision = last_revision + 1";
+
+    public static final String DECREMENT_LAST_REVISION = "UPDATE configuration_revision_counter SET last_revision = last_revision - 1";
+
+    public static final String INSERT_FIRST_REVISION = "INSERT INTO configuration_revision_counter(last_revision)"
+            + " SELECT COALESCE(MAX(revision), 0) + 1 FROM configuration_revision";
+
+    public static final String INSERT_REVISION = "INSERT INTO configuration_revision(revision, created, description) VALUES (?, ?, ?)";
+
+    @Override
+    public ConfigurationRevision mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new ConfigurationRevision(rs.getLong("revision"), rs.getLong("created"), rs.getString("description"));
+    }
+}
@@ -16,32 +16,77 @@ package org.bonitasoft.platform.configuration.impl;
 import static org.bonitasoft.platform.configuration.type.ConfigurationType.*;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.naming.NamingException;
 import javax.sql.DataSource;
 
-import org.apache.commons.io.IOUtils;
 import org.bonitasoft.platform.configuration.ConfigurationService;
 import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.ConfigurationChange;
+import org.bonitasoft.platform.configuration.model.ConfigurationChangeReport;
+import org.bonitasoft.platform.configuration.model.ConfigurationFile;
+import org.bonitasoft.platform.configuration.model.ConfigurationIndex;
+import org.bonitasoft.platform.configuration.model.ConfigurationProperties;
+import org.bonitasoft.platform.configuration.model.ConfigurationRevision;
 import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.ModifiedConfigurations;
 import org.bonitasoft.platform.configuration.type.ConfigurationType;
-import org.bonitasoft.platform.configuration.util.AllConfigurationResourceVisitor;
-import org.bonitasoft.platform.configuration.util.CleanAndStoreAllConfigurationInTransaction;
 import org.bonitasoft.platform.configuration.util.CleanAndStoreConfigurationInTransaction;
+import org.bonitasoft.platform.configuration.util.ConfigurationArchive;
+import org.bonitasoft.platform.configuration.util.ConfigurationBatches;
+import org.bonitasoft.platform.configuration.util.ConfigurationFolderScanner;
+import org.bonitasoft.platform.configuration.util.ConfigurationFolderWriter;
 import org.bonitasoft.platform.configuration.util.ConfigurationResourceVisitor;
+import org.bonitasoft.platform.configuration.util.ConfigurationSnapshot;
+import org.bonitasoft.platform.configuration.util.CopyTenantTemplateConfigurationInTransaction;
+import org.bonitasoft.platform.configuration.util.ConfigurationPropertiesCache;
+import org.bonitasoft.platform.configuration.util.CreateConfigurationRevisionInTransaction;
 import org.bonitasoft.platform.configuration.util.DeleteAllConfigurationInTransaction;
+import org.bonitasoft.platform.configuration.util.FullBonitaConfigurationConsumer;
 import org.bonitasoft.platform.configuration.util.DeleteTenantConfigurationInTransaction;
+import org.bonitasoft.platform.configuration.util.DiffConfigurationRevisionsInTransaction;
+import org.bonitasoft.platform.configuration.util.ExportConfigurationArchiveInTransaction;
+import org.bonitasoft.platform.configuration.util.GetAllConfigurationDescriptorsInTransaction;
 import org.bonitasoft.platform.configuration.util.GetAllConfigurationInTransaction;
+import org.bonitasoft.platform.configuration.util.GetConfigurationChangesInTransaction;
+import org.bonitasoft.platform.configuration.util.GetConfigurationDescriptorsInTransaction;
 import org.bonitasoft.platform.configuration.util.GetConfigurationInTransaction;
+import org.bonitasoft.platform.configuration.util.GetConfigurationPropertiesInTransaction;
+import org.bonitasoft.platform.configuration.util.GetConfigurationRevisionsInTransaction;
 import org.bonitasoft.platform.configuration.util.GetConfigurationsInTransaction;
+import org.bonitasoft.platform.configuration.util.GetLastConfigurationChangeIdInTransaction;
+import org.bonitasoft.platform.configuration.util.GetModifiedConfigurationsInTransaction;
+import org.bonitasoft.platform.configuration.util.GetOverlaidConfigurationsInTransaction;
+import org.bonitasoft.platform.configuration.util.GetTenantsConfigurationsInTransaction;
+import org.bonitasoft.platform.configuration.util.ImportConfigurationArchiveInTransaction;
 import org.bonitasoft.platform.configuration.util.LicensesResourceVisitor;
+import org.bonitasoft.platform.configuration.util.ParallelConfigurationTransfer;
+import org.bonitasoft.platform.configuration.util.RecordConfigurationChangeInTransaction;
+import org.bonitasoft.platform.configuration.util.RollbackConfigurationInTransaction;
+import org.bonitasoft.platform.configuration.util.StoreConfigurationFilesInTransaction;
 import org.bonitasoft.platform.configuration.util.StoreConfigurationInTransaction;
+import org.bonitasoft.platform.configuration.util.StoreModifiedConfigurationInTransaction;
+import org.bonitasoft.platform.configuration.util.StoreTenantOverridesInTransaction;
+import org.bonitasoft.platform.configuration.util.StreamAllConfigurationInTransaction;
+import org.bonitasoft.platform.configuration.util.StreamingStoreAllConfigurationInTransaction;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.bonitasoft.platform.dialect.DialectFactory;
 import org.bonitasoft.platform.exception.PlatformException;
 import org.bonitasoft.platform.setup.DataSourceLookup;
 import org.slf4j.Logger;
@@ -51,6 +96,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionTemplate;
 
 /**
@@ -61,6 +107,39 @@ public class ConfigurationServiceImpl implements ConfigurationService {
 
     private static final int NON_TENANT_RESOURCE = 0;
 
+    /**
+     * system property to tune the number of rows fetched per round-trip when writing all configuration to folder
+     */
+    public static final String FETCH_SIZE = "org.bonitasoft.platform.setup.fetch.size";
+
+    /**
+     * system property to set the number of threads, and connections, used to push and pull all configuration. Default is 1, tenants are then
+     * processed sequentially in a single transaction. It should not exceed the size of the connection pool: a parallel push otherwise fails after
+     * {@link #PARALLEL_TIMEOUT}.
+     */
+    public static final String PARALLELISM = "org.bonitasoft.platform.setup.parallelism";
+
+    /**
+     * system property to choose, when pushing in parallel, between all-or-nothing semantics (true, the default) and per tenant transactions (false)
+     */
+    public static final String PARALLEL_ATOMIC = "org.bonitasoft.platform.setup.parallel.atomic";
+
+    /**
+     * system property to set, in milliseconds, how long a thread pushing in parallel waits for files, or for the other threads, before rolling back.
+     * Default is {@value ParallelConfigurationTransfer#DEFAULT_TIMEOUT_MILLIS}.
+     */
+    public static final String PARALLEL_TIMEOUT = "org.bonitasoft.platform.setup.parallel.timeout";
+
+    /**
+     * system property to enable tenant overlay mode, see {@link #setTenantOverlay(boolean)}
+     */
+    public static final String TENANT_OVERLAY = "org.bonitasoft.platform.setup.tenant.overlay";
+
+    /**
+     * system property giving the path of a local configuration snapshot, see {@link #setSnapshotFile(Path)}. No snapshot is used when not set.
+     */
+    public static final String SNAPSHOT_FILE = "org.bonitasoft.platform.setup.snapshot.file";
+
     private final static Logger LOGGER = LoggerFactory.getLogger(ConfigurationServiceImpl.class);
 
     private JdbcTemplate jdbcTemplate;
@@ -70,6 +149,18 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     @Value("${db.vendor}")
     private String dbVendor;
 
+    private Dialect dialect;
+
+    private boolean tenantOverlay = Boolean.getBoolean(TENANT_OVERLAY);
+
+    private volatile Path snapshotFile = System.getProperty(SNAPSHOT_FILE) == null ? null : Paths.get(System.getProperty(SNAPSHOT_FILE));
+
+    private volatile ConfigurationSnapshot snapshot;
+
+    private final Object snapshotLock = new Object();
+
+    private final ConfigurationPropertiesCache propertiesCache = new ConfigurationPropertiesCache();
+
     @Autowired
     public ConfigurationServiceImpl(JdbcTemplate jdbcTemplate,
             TransactionTemplate transactionTemplate) {
@@ -169,16 +260,36 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     @Override
     public void storeAllConfiguration(File configurationRootFolder) throws PlatformException {
         final Path path = configurationRootFolder.toPath();
-        List<FullBonitaConfiguration> fullBonitaConfigurations = new ArrayList<>();
-        AllConfigurationResourceVisitor allConfigurationResourceVisitor = new AllConfigurationResourceVisitor(fullBonitaConfigurations);
+        final int parallelism = Integer.getInteger(PARALLELISM, 1);
+        if (parallelism <= 1) {
+            try {
+                executeAndRecordChange(null, null, new StreamingStoreAllConfigurationInTransaction(jdbcTemplate, getDialect(), path,
+                        new ConfigurationFolderScanner(), ConfigurationBatches.getMaxRows(getDialect())));
+            } catch (StreamingStoreAllConfigurationInTransaction.IngestionException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+        new ParallelConfigurationTransfer(jdbcTemplate, transactionTemplate, getDialect(), parallelism,
+                Long.getLong(PARALLEL_TIMEOUT, ParallelConfigurationTransfer.DEFAULT_TIMEOUT_MILLIS)).storeAll(path, new ConfigurationFolderScanner(),
+                        Boolean.parseBoolean(System.getProperty(PARALLEL_ATOMIC, "true")));
+    }
+
+    @Override
+    public ConfigurationChangeReport storeModifiedConfiguration(File configurationRootFolder) throws PlatformException {
         try {
-            Files.walkFileTree(path, allConfigurationResourceVisitor);
-            transactionTemplate.execute(new CleanAndStoreAllConfigurationInTransaction(jdbcTemplate, dbVendor, fullBonitaConfigurations));
-        } catch (IOException e) {
-            throw new PlatformException(e);
+            return executeAndRecordChange(null, null, new StoreModifiedConfigurationInTransaction(jdbcTemplate, getDialect(),
+                    configurationRootFolder.toPath(), new ConfigurationFolderScanner()));
+        } catch (StreamingStoreAllConfigurationInTransaction.IngestionException e) {
+            throw e.getCause();
         }
     }
 
+    @Override
+    public ConfigurationChangeReport storeConfigurationFiles(List<FullBonitaConfiguration> writtenFiles, List<BonitaConfigurationDescriptor> deletedFiles) {
+        return executeAndRecordChange(null, null, new StoreConfigurationFilesInTransaction(jdbcTemplate, getDialect(), writtenFiles, deletedFiles));
+    }
+
     @Override
     public void storeTenantTemplatePortalConf(List<BonitaConfiguration> bonitaConfigurations) {
         storeConfiguration(bonitaConfigurations, ConfigurationType.TENANT_TEMPLATE_PORTAL, NON_TENANT_RESOURCE);
@@ -208,24 +319,119 @@ public class ConfigurationServiceImpl implements ConfigurationService {
 
     @Override
     public BonitaConfiguration getTenantPortalConfiguration(long tenantId, String file) {
-        return getBonitaConfiguration(ConfigurationType.TENANT_PORTAL, tenantId, file);
+        final BonitaConfiguration bonitaConfiguration = getBonitaConfiguration(ConfigurationType.TENANT_PORTAL, tenantId, file);
+        if (bonitaConfiguration == null && tenantOverlay) {
+            return getBonitaConfiguration(ConfigurationType.TENANT_TEMPLATE_PORTAL, NON_TENANT_RESOURCE, file);
+        }
+        return bonitaConfiguration;
+    }
+
+    @Override
+    public Map<Long, List<BonitaConfiguration>> getTenantsConfigurations(ConfigurationType type, Collection<Long> tenantIds) {
+        if (tenantIds.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        final boolean overlaid = tenantOverlay && type.getTenantTemplateType() != null;
+        return transactionTemplate.execute(new GetTenantsConfigurationsInTransaction(jdbcTemplate, type, tenantIds, overlaid));
+    }
+
+    @Override
+    public ModifiedConfigurations getModifiedConfigurations(ConfigurationType type, long tenantId, Map<String, String> knownHashes) {
+        return transactionTemplate.execute(new GetModifiedConfigurationsInTransaction(jdbcTemplate, tenantId, type, knownHashes,
+                isOverlaid(type, tenantId)));
+    }
+
+    @Override
+    public List<BonitaConfigurationDescriptor> getConfigurationDescriptors(ConfigurationType type, long tenantId) {
+        return transactionTemplate.execute(new GetConfigurationDescriptorsInTransaction(jdbcTemplate, getDialect(), tenantId, type));
+    }
+
+    @Override
+    public List<BonitaConfigurationDescriptor> getAllConfigurationDescriptors() {
+        return transactionTemplate.execute(new GetAllConfigurationDescriptorsInTransaction(jdbcTemplate, getDialect()));
+    }
+
+    @Override
+    public BonitaConfiguration loadConfiguration(BonitaConfigurationDescriptor descriptor) {
+        return getBonitaConfiguration(ConfigurationType.valueOf(descriptor.getConfigurationType()), descriptor.getTenantId(), descriptor.getResourceName());
     }
 
     @Override
     public void writeAllConfigurationToFolder(File configurationFolder, File licenseFolder) throws PlatformException {
-        FolderResolver folderResolver = new FolderResolver(configurationFolder.toPath(), licenseFolder.toPath());
+        writeAllConfiguration(new ConfigurationFolderWriter(new FolderResolver(configurationFolder.toPath(), licenseFolder.toPath()), null));
+    }
 
-        for (FullBonitaConfiguration fullBonitaConfiguration : getAllConfiguration()) {
-            File confFile = new File(folderResolver.getFolder(fullBonitaConfiguration), fullBonitaConfiguration.getResourceName());
-            LOGGER.debug(String.format("writing file %s to folder %s", confFile.getName(), confFile.getParentFile().getAbsolutePath()));
-            try {
-                IOUtils.write(fullBonitaConfiguration.getResourceContent(), new FileOutputStream(confFile));
-            } catch (IOException e) {
-                throw new PlatformException(e);
+    @Override
+    public void writeAllConfigurationToFolder(File configurationFolder, File licenseFolder, File previousConfigurationFolder, File previousLicenseFolder)
+            throws PlatformException {
+        writeAllConfiguration(new ConfigurationFolderWriter(new FolderResolver(configurationFolder.toPath(), licenseFolder.toPath()),
+                new FolderResolver(previousConfigurationFolder.toPath(), previousLicenseFolder.toPath())));
+    }
+
+    private void writeAllConfiguration(ConfigurationFolderWriter writeToFolder) throws PlatformException {
+        try {
+            final int parallelism = Integer.getInteger(PARALLELISM, 1);
+            if (parallelism > 1) {
+                new ParallelConfigurationTransfer(jdbcTemplate, transactionTemplate, getDialect(), parallelism).streamAll(writeToFolder,
+                        Integer.getInteger(FETCH_SIZE, 0));
+            } else {
+                streamAllConfiguration(writeToFolder, Integer.getInteger(FETCH_SIZE, 0));
             }
+        } finally {
+            writeToFolder.awaitWrites();
+        }
+    }
+
+    @Override
+    public void streamAllConfiguration(FullBonitaConfigurationConsumer consumer, int fetchSize) throws PlatformException {
+        try {
+            transactionTemplate.execute(new StreamAllConfigurationInTransaction(jdbcTemplate, getDialect(), fetchSize, consumer));
+        } catch (StreamAllConfigurationInTransaction.ConsumerException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void exportAllConfiguration(OutputStream outputStream) throws PlatformException {
+        try {
+            transactionTemplate.execute(new ExportConfigurationArchiveInTransaction(jdbcTemplate, getDialect(), Integer.getInteger(FETCH_SIZE, 0),
+                    outputStream));
+        } catch (StreamAllConfigurationInTransaction.ConsumerException e) {
+            throw e.getCause();
+        } catch (ConfigurationArchive.ArchiveException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void importAllConfiguration(InputStream inputStream) throws PlatformException {
+        try {
+            executeAndRecordChange(null, null, new ImportConfigurationArchiveInTransaction(jdbcTemplate, getDialect(), inputStream));
+        } catch (ConfigurationArchive.ArchiveException e) {
+            throw e.getCause();
         }
     }
 
+    @Override
+    public long createConfigurationRevision(String description) {
+        return transactionTemplate.execute(new CreateConfigurationRevisionInTransaction(jdbcTemplate, getDialect(), description));
+    }
+
+    @Override
+    public List<ConfigurationRevision> getConfigurationRevisions() {
+        return transactionTemplate.execute(new GetConfigurationRevisionsInTransaction(jdbcTemplate));
+    }
+
+    @Override
+    public ConfigurationChangeReport diffConfigurationRevisions(long fromRevision, long toRevision) {
+        return transactionTemplate.execute(new DiffConfigurationRevisionsInTransaction(jdbcTemplate, getDialect(), fromRevision, toRevision));
+    }
+
+    @Override
+    public long rollbackConfiguration(long revision) {
+        return executeAndRecordChange(null, null, new RollbackConfigurationInTransaction(jdbcTemplate, getDialect(), revision));
+    }
+
     protected List<FullBonitaConfiguration> getAllConfiguration() {
         return transactionTemplate.execute(new GetAllConfigurationInTransaction(jdbcTemplate));
     }
@@ -243,11 +449,17 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     }
 
     private void storeConfiguration(List<BonitaConfiguration> bonitaConfigurations, ConfigurationType type, long tenantId) {
-        transactionTemplate.execute(new StoreConfigurationInTransaction(jdbcTemplate, dbVendor, bonitaConfigurations, type, tenantId));
+        if (isOverlaid(type, tenantId)) {
+            executeAndRecordChange(tenantId, type,
+                    new StoreTenantOverridesInTransaction(jdbcTemplate, getDialect(), bonitaConfigurations, type, tenantId));
+            return;
+        }
+        executeAndRecordChange(tenantId, type, new StoreConfigurationInTransaction(jdbcTemplate, getDialect(), bonitaConfigurations, type, tenantId));
     }
 
     private void cleanAndStoreConfiguration(List<BonitaConfiguration> bonitaConfigurations, ConfigurationType type, long tenantId) {
-        transactionTemplate.execute(new CleanAndStoreConfigurationInTransaction(jdbcTemplate, dbVendor, bonitaConfigurations, type, tenantId));
+        executeAndRecordChange(tenantId, type,
+                new CleanAndStoreConfigurationInTransaction(jdbcTemplate, getDialect(), bonitaConfigurations, type, tenantId));
     }
 
     List<BonitaConfiguration> getNonTenantResource(ConfigurationType configurationType) {
@@ -260,6 +472,13 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     }
 
     private List<BonitaConfiguration> getBonitaConfigurations(ConfigurationType type, long tenantId) {
+        if (isOverlaid(type, tenantId)) {
+            return transactionTemplate.execute(new GetOverlaidConfigurationsInTransaction(jdbcTemplate, tenantId, type));
+        }
+        final ConfigurationSnapshot validSnapshot = getValidSnapshot();
+        if (validSnapshot != null) {
+            return validSnapshot.getConfigurations(type, tenantId);
+        }
         return transactionTemplate.execute(new GetConfigurationsInTransaction(jdbcTemplate, tenantId, type));
     }
 
@@ -269,9 +488,114 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     }
 
     private BonitaConfiguration getBonitaConfiguration(ConfigurationType type, long tenantId, String resourceName) {
+        final ConfigurationSnapshot validSnapshot = getValidSnapshot();
+        if (validSnapshot != null) {
+            return validSnapshot.getConfiguration(type, tenantId, resourceName);
+        }
         return transactionTemplate.execute(new GetConfigurationInTransaction(jdbcTemplate, tenantId, type, resourceName));
     }
 
+    /**
+     * Only the change counter is read while the snapshot is up to date, readers only wait for each other when the snapshot must be written again.
+     *
+     * @return the snapshot if it was taken at the latest configuration change, after writing a new one if needed, or null if no snapshot can be used
+     */
+    private ConfigurationSnapshot getValidSnapshot() {
+        final Path file = snapshotFile;
+        if (file == null) {
+            return null;
+        }
+        final long lastChangeId = getLastConfigurationChangeId();
+        final ConfigurationSnapshot current = snapshot;
+        if (current != null && current.getChangeId() == lastChangeId) {
+            return current;
+        }
+        synchronized (snapshotLock) {
+            if (file != snapshotFile) {
+                return null;
+            }
+            ConfigurationSnapshot valid = snapshot;
+            if (valid == null || valid.getChangeId() != lastChangeId) {
+                valid = openSnapshot(file, lastChangeId);
+            }
+            if (valid == null) {
+                try {
+                    valid = writeSnapshot(file, lastChangeId);
+                } catch (IOException | PlatformException e) {
+                    LOGGER.warn("Unable to write configuration snapshot, configuration is read from database: " + e.getMessage());
+                }
+            }
+            snapshot = valid;
+            return valid;
+        }
+    }
+
+    /**
+     * Each snapshot is written to its own file, named after the change it was taken at, so that a file mapped by a process is never replaced:
+     * Windows does not allow replacing or deleting a mapped file.
+     */
+    private static Path getSnapshotFile(Path snapshotFile, long changeId) {
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + "." + changeId);
+    }
+
+    private ConfigurationSnapshot openSnapshot(Path snapshotFile, long changeId) {
+        final Path file = getSnapshotFile(snapshotFile, changeId);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            final ConfigurationSnapshot opened = ConfigurationSnapshot.open(file);
+            return opened.getChangeId() == changeId ? opened : null;
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read configuration snapshot, it will be written again: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot while holding a lock on a file next to it, so that when several processes of a host share the snapshot, only one of
+     * them reads the whole configuration and the others map the file it wrote.
+     */
+    private ConfigurationSnapshot writeSnapshot(Path snapshotFile, long changeId) throws IOException, PlatformException {
+        final Path lockFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".lock");
+        try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock ignored = lockChannel.lock()) {
+            final ConfigurationSnapshot written = openSnapshot(snapshotFile, changeId);
+            if (written != null) {
+                return written;
+            }
+            // change id is read before contents, so that a change committed meanwhile makes the new snapshot outdated rather than wrongly valid
+            final Path file = getSnapshotFile(snapshotFile, changeId);
+            try (ConfigurationSnapshot.Writer writer = new ConfigurationSnapshot.Writer(file, changeId)) {
+                streamAllConfiguration(writer, Integer.getInteger(FETCH_SIZE, 0));
+                writer.commit();
+            }
+            LOGGER.debug("configuration snapshot written at change " + changeId + " to " + file);
+            deleteOutdatedSnapshots(snapshotFile, file);
+            return ConfigurationSnapshot.open(file);
+        }
+    }
+
+    /**
+     * Outdated snapshots still mapped by a process stay readable: on Linux their pages are released once the process unmaps them, i.e. when their
+     * buffer is garbage collected, on Windows they cannot be deleted yet and are deleted when a later snapshot is written.
+     */
+    private void deleteOutdatedSnapshots(Path snapshotFile, Path validFile) throws IOException {
+        final String prefix = snapshotFile.getFileName() + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(validFile.toAbsolutePath().getParent(), prefix + "*")) {
+            for (Path file : files) {
+                final String suffix = file.getFileName().toString().substring(prefix.length());
+                if (!file.getFileName().equals(validFile.getFileName()) && suffix.matches("[0-9]+")) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        LOGGER.debug("outdated configuration snapshot " + file + " not deleted, it is still in use: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
     @Override
     public void storeLicenses(File licensesFolder) throws PlatformException {
         final Path path = licensesFolder.toPath();
@@ -290,16 +614,157 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         return getNonTenantResource(LICENSES);
     }
 
+    @Override
+    public void createTenantConfigurationFromTemplate(long tenantId) {
+        if (tenantId <= 0) {
+            throw new IllegalArgumentException("tenantId value " + tenantId + " is not allowed");
+        }
+        if (tenantOverlay) {
+            LOGGER.debug("tenant overlay mode: tenant " + tenantId + " is resolved from tenant templates, nothing to copy");
+            return;
+        }
+        executeAndRecordChange(tenantId, null, new CopyTenantTemplateConfigurationInTransaction(jdbcTemplate, tenantId));
+    }
+
     @Override
     public void deleteTenantConfiguration(long tenantId) {
         if (tenantId <= 0) {
             throw new IllegalArgumentException("tenantId value " + tenantId + " is not allowed");
         }
-        transactionTemplate.execute(new DeleteTenantConfigurationInTransaction(jdbcTemplate, dbVendor, tenantId));
+        executeAndRecordChange(tenantId, null, new DeleteTenantConfigurationInTransaction(jdbcTemplate, getDialect(), tenantId));
     }
 
     @Override
     public void deleteAllConfiguration() {
-        transactionTemplate.execute(new DeleteAllConfigurationInTransaction(jdbcTemplate));
+        executeAndRecordChange(null, null, new DeleteAllConfigurationInTransaction(jdbcTemplate));
+    }
+
+    @Override
+    public long getLastConfigurationChangeId() {
+        return transactionTemplate.execute(new GetLastConfigurationChangeIdInTransaction(jdbcTemplate));
+    }
+
+    @Override
+    public List<ConfigurationChange> getConfigurationChangesSince(long changeId) {
+        return transactionTemplate.execute(new GetConfigurationChangesInTransaction(jdbcTemplate, changeId));
+    }
+
+    @Override
+    public ConfigurationIndex getConfigurationIndex() {
+        // change id is read before contents, so that a change committed meanwhile makes the index outdated rather than wrongly up to date
+        final long changeId = getLastConfigurationChangeId();
+        final ConfigurationIndex.Builder builder = new ConfigurationIndex.Builder();
+        transactionTemplate.execute(new StreamAllConfigurationInTransaction(jdbcTemplate, getDialect(), Integer.getInteger(FETCH_SIZE, 0),
+                new FullBonitaConfigurationConsumer() {
+
+                    @Override
+                    public void accept(FullBonitaConfiguration fullBonitaConfiguration) {
+                        builder.add(ConfigurationFile.of(fullBonitaConfiguration));
+                    }
+                }));
+        final ConfigurationIndex storedIndex = builder.build(changeId);
+        return tenantOverlay ? overlayTenantTemplates(storedIndex) : storedIndex;
+    }
+
+    /**
+     * @return an index where each tenant also holds the files of its tenant templates it does not store, as resolved in tenant overlay mode
+     */
+    private ConfigurationIndex overlayTenantTemplates(ConfigurationIndex storedIndex) {
+        final ConfigurationIndex.Builder builder = new ConfigurationIndex.Builder();
+        for (long tenantId : storedIndex.getTenantIds()) {
+            for (ConfigurationType type : ConfigurationType.values()) {
+                for (ConfigurationFile file : storedIndex.getFiles(tenantId, type)) {
+                    builder.add(file);
+                }
+                if (!isOverlaid(type, tenantId)) {
+                    continue;
+                }
+                for (ConfigurationFile templateFile : storedIndex.getFiles(NON_TENANT_RESOURCE, type.getTenantTemplateType())) {
+                    if (storedIndex.getFile(tenantId, type, templateFile.getResourceName()) == null) {
+                        builder.add(ConfigurationFile.of(type, tenantId, templateFile.getResourceName(), templateFile.getContent()));
+                    }
+                }
+            }
+        }
+        return builder.build(storedIndex.getChangeId());
+    }
+
+    @Override
+    public ConfigurationProperties getConfigurationProperties(ConfigurationType type, long tenantId, String resourceName) {
+        final ConfigurationProperties properties = readConfigurationProperties(type, tenantId, resourceName);
+        if (properties == null && isOverlaid(type, tenantId)) {
+            return readConfigurationProperties(type.getTenantTemplateType(), NON_TENANT_RESOURCE, resourceName);
+        }
+        return properties;
+    }
+
+    private ConfigurationProperties readConfigurationProperties(ConfigurationType type, long tenantId, String resourceName) {
+        final ConfigurationSnapshot validSnapshot = getValidSnapshot();
+        if (validSnapshot != null) {
+            final BonitaConfiguration bonitaConfiguration = validSnapshot.getConfiguration(type, tenantId, resourceName);
+            return bonitaConfiguration == null ? null : propertiesCache.parse(null, bonitaConfiguration.getResourceContent());
+        }
+        return transactionTemplate.execute(new GetConfigurationPropertiesInTransaction(jdbcTemplate, tenantId, type, resourceName, propertiesCache));
+    }
+
+    /**
+     * Parsed views returned by {@link #getConfigurationProperties(ConfigurationType, long, String)} are kept until evicted, see
+     * {@link ConfigurationPropertiesCache#MAX_SIZE}, or until this method is called.
+     */
+    public void clearConfigurationPropertiesCache() {
+        propertiesCache.clear();
+    }
+
+    private <T> T executeAndRecordChange(Long tenantId, ConfigurationType type, TransactionCallback<T> callback) {
+        return transactionTemplate.execute(new RecordConfigurationChangeInTransaction<>(jdbcTemplate, tenantId, type, callback));
+    }
+
+    /**
+     * In tenant overlay mode, files of a tenant are resolved from the files stored for the tenant first, then from the tenant template.
+     * Storing tenant files only keeps the ones that differ from the tenant template, so creating a tenant from an unmodified template stores nothing.
+     * Modified configurations and the configuration index resolve tenant files the same way. Methods working on stored rows (descriptors, folder
+     * push and pull) see only the files stored for the tenant.
+     * <p>
+     * Default value is given by system property {@value #TENANT_OVERLAY}.
+     */
+    public void setTenantOverlay(boolean tenantOverlay) {
+        this.tenantOverlay = tenantOverlay;
+    }
+
+    public boolean isTenantOverlay() {
+        return tenantOverlay;
+    }
+
+    /**
+     * Configuration files are then read from a local memory-mapped copy of the configuration table, written on first read and written again on
+     * the first read following a configuration change. Checking that the copy is up to date only reads the configuration change counter, see
+     * {@link #getLastConfigurationChangeId()}, so writes that bypass this service, and do not record a configuration change, are not seen.
+     * Files resolved from tenant templates in tenant overlay mode are always read from database.
+     * <p>
+     * Processes of a host given the same path share the snapshot: only one of them writes it, and its pages are shared by all of them. Each
+     * snapshot is written next to the given path, suffixed with the id of the change it was taken at, and outdated ones are deleted once no
+     * longer used.
+     * <p>
+     * Default value is given by system property {@value #SNAPSHOT_FILE}.
+     *
+     * @param snapshotFile path of the snapshot file, or null to always read from database
+     */
+    public void setSnapshotFile(Path snapshotFile) {
+        synchronized (snapshotLock) {
+            this.snapshotFile = snapshotFile;
+            this.snapshot = null;
+        }
+    }
+
+    private boolean isOverlaid(ConfigurationType type, long tenantId) {
+        return tenantOverlay && tenantId != NON_TENANT_RESOURCE && type.getTenantTemplateType() != null;
     }
+
+    private Dialect getDialect() {
+        if (dialect == null) {
+            dialect = DialectFactory.getDialect(dbVendor);
+        }
+        return dialect;
+    }
+
 }
@@ -15,6 +15,9 @@ package org.bonitasoft.platform.configuration.impl;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
 
@@ -25,6 +28,7 @@ import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
  * <li>tenant files are pulled to configurationFolder/tenants/TENANT_ID/CONFIGURATION_TYPE</li>
  * <li>other files to configurationFolder/CONFIGURATION_TYPE</li>
  * </ul>
+ * Folders are created once, and the resolver can be shared by threads writing files concurrently.
  *
  * @author Laurent Leseigneur
  */
@@ -32,6 +36,7 @@ public class FolderResolver {
 
     private final Path configurationFolder;
     private final Path licenseFolder;
+    private final Set<Path> createdFolders = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
 
     public FolderResolver(Path configurationFolder, Path licenseFolder) {
 
@@ -39,13 +44,27 @@ public class FolderResolver {
         this.licenseFolder = licenseFolder;
     }
 
+    /**
+     * @return folder of the file, created if needed
+     */
     public File getFolder(FullBonitaConfiguration fullBonitaConfiguration) {
-        File confFolder = resolveFolder(fullBonitaConfiguration).toFile();
-        confFolder.mkdirs();
+        final Path folder = resolveFolder(fullBonitaConfiguration);
+        File confFolder = folder.toFile();
+        if (!createdFolders.contains(folder)) {
+            confFolder.mkdirs();
+            createdFolders.add(folder);
+        }
         return confFolder;
 
     }
 
+    /**
+     * @return folder of the file, without creating it
+     */
+    public Path getPath(FullBonitaConfiguration fullBonitaConfiguration) {
+        return resolveFolder(fullBonitaConfiguration);
+    }
+
     private Path resolveSubFolder(Path rootPath, FullBonitaConfiguration fullBonitaConfiguration) {
         if (fullBonitaConfiguration.isLicenseFile()) {
             return rootPath;
@@ -19,6 +19,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.configuration.util.ContentCompression;
 import org.springframework.jdbc.core.RowMapper;
 
 /**
@@ -27,9 +28,11 @@ import org.springframework.jdbc.core.RowMapper;
 public class FullBonitaConfigurationRowMapper implements RowMapper<FullBonitaConfiguration> {
 
     public static final String SELECT_CONFIGURATION = "SELECT tenant_id, content_type, resource_name, resource_content FROM configuration ORDER BY tenant_id, content_type, resource_name";
+    public static final String SELECT_TENANT_CONFIGURATION = "SELECT tenant_id, content_type, resource_name, resource_content FROM configuration WHERE tenant_id = ? ORDER BY content_type, resource_name";
+    public static final String SELECT_TENANT_IDS = "SELECT DISTINCT tenant_id FROM configuration ORDER BY tenant_id";
 
     @Override
     public FullBonitaConfiguration mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return new FullBonitaConfiguration(rs.getString(RESOURCE_NAME), rs.getBytes(RESOURCE_CONTENT), rs.getString(CONTENT_TYPE), rs.getLong(TENANT_ID));
+        return new FullBonitaConfiguration(rs.getString(RESOURCE_NAME), ContentCompression.decode(rs.getBytes(RESOURCE_CONTENT)), rs.getString(CONTENT_TYPE), rs.getLong(TENANT_ID));
     }
 }
@@ -59,7 +59,7 @@ public class BonitaConfiguration implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(resourceName, resourceContent);
+        return 31 * Objects.hashCode(resourceName) + Arrays.hashCode(resourceContent);
     }
 
     @Override
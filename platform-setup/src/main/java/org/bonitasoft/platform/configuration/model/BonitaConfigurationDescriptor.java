@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.model;
+
+import java.util.Objects;
+
+/**
+ * Describes a configuration file stored in database, without its content.
+ */
+public class BonitaConfigurationDescriptor {
+
+    private final String resourceName;
+
+    private final String configurationType;
+
+    private final Long tenantId;
+
+    private final long resourceLength;
+
+    private final String resourceHash;
+
+    public BonitaConfigurationDescriptor(String resourceName, String configurationType, Long tenantId, long resourceLength, String resourceHash) {
+        this.resourceName = resourceName;
+        this.configurationType = configurationType;
+        this.tenantId = tenantId;
+        this.resourceLength = resourceLength;
+        this.resourceHash = resourceHash;
+    }
+
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    public String getConfigurationType() {
+        return configurationType;
+    }
+
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    /**
+     * @return size of the resource content as stored in database, in bytes, which is smaller than the content when it is compressed
+     */
+    public long getResourceLength() {
+        return resourceLength;
+    }
+
+    /**
+     * @return hexadecimal SHA-256 of the resource content, or null if the resource was stored without hash
+     */
+    public String getResourceHash() {
+        return resourceHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        BonitaConfigurationDescriptor that = (BonitaConfigurationDescriptor) o;
+        return resourceLength == that.resourceLength &&
+                Objects.equals(resourceName, that.resourceName) &&
+                Objects.equals(configurationType, that.configurationType) &&
+                Objects.equals(tenantId, that.tenantId) &&
+                Objects.equals(resourceHash, that.resourceHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(resourceName, configurationType, tenantId, resourceLength, resourceHash);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BonitaConfigurationDescriptor{ resourceName='%s' , configurationType='%s' , tenantId=%d , resourceLength=%d , resourceHash='%s' }",
+                resourceName,
+                configurationType,
+                tenantId,
+                resourceLength,
+                resourceHash);
+    }
+}
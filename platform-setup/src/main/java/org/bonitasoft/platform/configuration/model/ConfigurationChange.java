@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.model;
+
+import java.util.Objects;
+
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+
+/**
+ * Entry of the configuration change feed: files of a tenant and configuration type were written or deleted.
+ * A null tenant id or configuration type means that all tenants or all types may have changed.
+ */
+public class ConfigurationChange {
+
+    private final long changeId;
+
+    private final Long tenantId;
+
+    private final String configurationType;
+
+    private final long creationDate;
+
+    public ConfigurationChange(long changeId, Long tenantId, String configurationType, long creationDate) {
+        this.changeId = changeId;
+        this.tenantId = tenantId;
+        this.configurationType = configurationType;
+        this.creationDate = creationDate;
+    }
+
+    public long getChangeId() {
+        return changeId;
+    }
+
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    public String getConfigurationType() {
+        return configurationType;
+    }
+
+    public long getCreationDate() {
+        return creationDate;
+    }
+
+    /**
+     * @return true if files of the given type and tenant may have been modified by this change
+     */
+    public boolean concerns(ConfigurationType type, long tenantId) {
+        return (this.tenantId == null || this.tenantId == tenantId) && (configurationType == null || configurationType.equals(type.name()));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ConfigurationChange that = (ConfigurationChange) o;
+        return changeId == that.changeId &&
+                creationDate == that.creationDate &&
+                Objects.equals(tenantId, that.tenantId) &&
+                Objects.equals(configurationType, that.configurationType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(changeId, tenantId, configurationType, creationDate);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConfigurationChange{ changeId=%d , tenantId=%s , configurationType=%s , creationDate=%d }", changeId, tenantId,
+                configurationType, creationDate);
+    }
+}
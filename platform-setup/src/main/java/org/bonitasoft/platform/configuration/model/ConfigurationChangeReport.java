@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists configuration files added, updated and deleted in database by an incremental push.
+ */
+public class ConfigurationChangeReport {
+
+    private final List<BonitaConfigurationDescriptor> added = new ArrayList<>();
+
+    private final List<BonitaConfigurationDescriptor> updated = new ArrayList<>();
+
+    private final List<BonitaConfigurationDescriptor> deleted = new ArrayList<>();
+
+    public List<BonitaConfigurationDescriptor> getAdded() {
+        return added;
+    }
+
+    public List<BonitaConfigurationDescriptor> getUpdated() {
+        return updated;
+    }
+
+    public List<BonitaConfigurationDescriptor> getDeleted() {
+        return deleted;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConfigurationChangeReport{ added=%d , updated=%d , deleted=%d }", added.size(), updated.size(), deleted.size());
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.model;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+
+/**
+ * Immutable configuration file, identified by its type, tenant and name.
+ * <p>
+ * Content is held as a read-only {@link ByteBuffer}, so that it can wrap an array received from database, or be a slice of a mapped
+ * {@link org.bonitasoft.platform.configuration.util.ConfigurationSnapshot}, without being copied. Files are equal when they have the same key
+ * and the same content, and the hash of the content is computed once, so files can be deduplicated in hash-based collections.
+ * <p>
+ * {@link #of(ConfigurationType, long, BonitaConfiguration)}, {@link #of(FullBonitaConfiguration)}, {@link #toBonitaConfiguration()} and
+ * {@link #toFullBonitaConfiguration()} convert from and to the mutable {@link BonitaConfiguration} model.
+ */
+public final class ConfigurationFile {
+
+    private final ConfigurationType type;
+
+    private final long tenantId;
+
+    private final String resourceName;
+
+    private final ByteBuffer content;
+
+    // computed on first use, like String#hashCode
+    private int contentHash;
+
+    private ConfigurationFile(ConfigurationType type, long tenantId, String resourceName, ByteBuffer content) {
+        this.type = Objects.requireNonNull(type, "configuration type");
+        this.tenantId = tenantId;
+        this.resourceName = Objects.requireNonNull(resourceName, "resource name");
+        this.content = content;
+    }
+
+    /**
+     * @param content remaining bytes of the buffer are the file content, the buffer is neither copied nor modified
+     */
+    public static ConfigurationFile of(ConfigurationType type, long tenantId, String resourceName, ByteBuffer content) {
+        return new ConfigurationFile(type, tenantId, resourceName, content.slice().asReadOnlyBuffer());
+    }
+
+    /**
+     * @param content file content, it is not copied and must not be modified afterwards
+     */
+    public static ConfigurationFile of(ConfigurationType type, long tenantId, String resourceName, byte[] content) {
+        return of(type, tenantId, resourceName, ByteBuffer.wrap(content));
+    }
+
+    public static ConfigurationFile of(ConfigurationType type, long tenantId, BonitaConfiguration bonitaConfiguration) {
+        return of(type, tenantId, bonitaConfiguration.getResourceName(), bonitaConfiguration.getResourceContent());
+    }
+
+    public static ConfigurationFile of(FullBonitaConfiguration fullBonitaConfiguration) {
+        return of(ConfigurationType.valueOf(fullBonitaConfiguration.getConfigurationType()), fullBonitaConfiguration.getTenantId(),
+                fullBonitaConfiguration);
+    }
+
+    public ConfigurationType getType() {
+        return type;
+    }
+
+    public long getTenantId() {
+        return tenantId;
+    }
+
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    /**
+     * @return a read-only view of the content, with its own position and limit
+     */
+    public ByteBuffer getContent() {
+        return content.duplicate();
+    }
+
+    public int getContentLength() {
+        return content.remaining();
+    }
+
+    /**
+     * @return a copy of the content
+     */
+    public byte[] getContentBytes() {
+        final byte[] bytes = new byte[content.remaining()];
+        content.duplicate().get(bytes);
+        return bytes;
+    }
+
+    public int getContentHash() {
+        int hash = contentHash;
+        if (hash == 0) {
+            hash = content.hashCode();
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * @return a mutable copy of this file
+     */
+    public BonitaConfiguration toBonitaConfiguration() {
+        return new BonitaConfiguration(resourceName, getContentBytes());
+    }
+
+    /**
+     * @return a mutable copy of this file
+     */
+    public FullBonitaConfiguration toFullBonitaConfiguration() {
+        return new FullBonitaConfiguration(resourceName, getContentBytes(), type.name(), tenantId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ConfigurationFile that = (ConfigurationFile) o;
+        return tenantId == that.tenantId &&
+                type == that.type &&
+                Objects.equals(resourceName, that.resourceName) &&
+                getContentHash() == that.getContentHash() &&
+                content.equals(that.content);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, tenantId, resourceName, getContentHash());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConfigurationFile{ resourceName='%s' , configurationType='%s' , tenantId=%d , contentLength=%d }",
+                resourceName, type, tenantId, getContentLength());
+    }
+}
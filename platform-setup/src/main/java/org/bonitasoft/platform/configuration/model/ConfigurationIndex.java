@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+
+/**
+ * Immutable in-memory view of all configuration files, indexed by tenant, type and name.
+ * <p>
+ * Tenants are found in an open-addressing hash table keyed by the primitive tenant id. Each tenant holds one array of files per
+ * {@link ConfigurationType}, indexed by {@link ConfigurationType#ordinal()} and sorted by name, so that a file is found by binary search.
+ * Looking up a file does not allocate anything.
+ * <p>
+ * Files are indexed as added, tenant templates being held by tenant 0 as platform files.
+ */
+public final class ConfigurationIndex {
+
+    private static final int TYPE_COUNT = ConfigurationType.values().length;
+
+    private static final ConfigurationFile[] NO_FILES = new ConfigurationFile[0];
+
+    private final long changeId;
+
+    private final long[] tenantIds;
+
+    // files of tenantIds[slot] by type ordinal, null for empty slots
+    private final ConfigurationFile[][][] tenantFiles;
+
+    private final int tenantCount;
+
+    private final int fileCount;
+
+    private ConfigurationIndex(long changeId, long[] tenantIds, ConfigurationFile[][][] tenantFiles, int tenantCount, int fileCount) {
+        this.changeId = changeId;
+        this.tenantIds = tenantIds;
+        this.tenantFiles = tenantFiles;
+        this.tenantCount = tenantCount;
+        this.fileCount = fileCount;
+    }
+
+    /**
+     * @return id of the configuration change the index was built at, see
+     *         {@link org.bonitasoft.platform.configuration.ConfigurationService#getLastConfigurationChangeId()}
+     */
+    public long getChangeId() {
+        return changeId;
+    }
+
+    public int getTenantCount() {
+        return tenantCount;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public boolean hasTenant(long tenantId) {
+        return getTenantFiles(tenantId) != null;
+    }
+
+    /**
+     * @return ids of the tenants having files, in ascending order
+     */
+    public long[] getTenantIds() {
+        final long[] ids = new long[tenantCount];
+        int i = 0;
+        for (int slot = 0; slot < tenantFiles.length; slot++) {
+            if (tenantFiles[slot] != null) {
+                ids[i++] = tenantIds[slot];
+            }
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * @return the file, or null if there is no such file
+     */
+    public ConfigurationFile getFile(long tenantId, ConfigurationType type, String resourceName) {
+        final ConfigurationFile[] files = getFileArray(tenantId, type);
+        int low = 0;
+        int high = files.length - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = files[middle].getResourceName().compareTo(resourceName);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return files[middle];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of files of the given tenant and type, to iterate on them with {@link #getFile(long, ConfigurationType, int)}
+     */
+    public int getFileCount(long tenantId, ConfigurationType type) {
+        return getFileArray(tenantId, type).length;
+    }
+
+    /**
+     * @param index index of the file, between 0 and {@link #getFileCount(long, ConfigurationType)} excluded
+     * @return the file at the given index among files of the given tenant and type, sorted by name
+     */
+    public ConfigurationFile getFile(long tenantId, ConfigurationType type, int index) {
+        return getFileArray(tenantId, type)[index];
+    }
+
+    /**
+     * @return files of the given tenant and type, sorted by name
+     */
+    public List<ConfigurationFile> getFiles(long tenantId, ConfigurationType type) {
+        return Collections.unmodifiableList(Arrays.asList(getFileArray(tenantId, type)));
+    }
+
+    private ConfigurationFile[] getFileArray(long tenantId, ConfigurationType type) {
+        final ConfigurationFile[][] files = getTenantFiles(tenantId);
+        return files == null ? NO_FILES : files[type.ordinal()];
+    }
+
+    private ConfigurationFile[][] getTenantFiles(long tenantId) {
+        final int mask = tenantIds.length - 1;
+        for (int slot = hash(tenantId) & mask;; slot = (slot + 1) & mask) {
+            final ConfigurationFile[][] files = tenantFiles[slot];
+            if (files == null || tenantIds[slot] == tenantId) {
+                return files;
+            }
+        }
+    }
+
+    private static int hash(long tenantId) {
+        // tenant ids are usually small consecutive numbers, spread them over the table
+        final long hash = tenantId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConfigurationIndex{ changeId=%d , tenantCount=%d , fileCount=%d }", changeId, tenantCount, fileCount);
+    }
+
+    /**
+     * Collects files, in any order, to build an index.
+     */
+    public static class Builder {
+
+        private final Map<Long, List<List<ConfigurationFile>>> files = new LinkedHashMap<>();
+
+        private int fileCount;
+
+        public Builder add(ConfigurationFile file) {
+            List<List<ConfigurationFile>> filesByType = files.get(file.getTenantId());
+            if (filesByType == null) {
+                filesByType = new ArrayList<>(TYPE_COUNT);
+                for (int i = 0; i < TYPE_COUNT; i++) {
+                    filesByType.add(new ArrayList<ConfigurationFile>());
+                }
+                files.put(file.getTenantId(), filesByType);
+            }
+            filesByType.get(file.getType().ordinal()).add(file);
+            fileCount++;
+            return this;
+        }
+
+        /**
+         * @param changeId id of the configuration change the added files were read at
+         */
+        public ConfigurationIndex build(long changeId) {
+            // tables are at most half full
+            final int capacity = Integer.highestOneBit(Math.max(files.size(), 1)) * 4;
+            final long[] tenantIds = new long[capacity];
+            final ConfigurationFile[][][] tenantFiles = new ConfigurationFile[capacity][][];
+            for (Map.Entry<Long, List<List<ConfigurationFile>>> entry : files.entrySet()) {
+                int slot = hash(entry.getKey()) & capacity - 1;
+                while (tenantFiles[slot] != null) {
+                    slot = (slot + 1) & capacity - 1;
+                }
+                tenantIds[slot] = entry.getKey();
+                tenantFiles[slot] = new ConfigurationFile[TYPE_COUNT][];
+                for (int type = 0; type < TYPE_COUNT; type++) {
+                    tenantFiles[slot][type] = toSortedArray(entry.getValue().get(type));
+                }
+            }
+            return new ConfigurationIndex(changeId, tenantIds, tenantFiles, files.size(), fileCount);
+        }
+
+        private static ConfigurationFile[] toSortedArray(List<ConfigurationFile> files) {
+            if (files.isEmpty()) {
+                return NO_FILES;
+            }
+            final ConfigurationFile[] array = files.toArray(new ConfigurationFile[files.size()]);
+            Arrays.sort(array, new Comparator<ConfigurationFile>() {
+
+                @Override
+                public int compare(ConfigurationFile file, ConfigurationFile other) {
+                    return file.getResourceName().compareTo(other.getResourceName());
+                }
+            });
+            return array;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.bonitasoft.platform.configuration.util.ContentDigest;
+
+/**
+ * Immutable view of a parsed <code>.properties</code> configuration file.
+ * Views are shared between files having the same content by {@link org.bonitasoft.platform.configuration.util.ConfigurationPropertiesCache}.
+ */
+public final class ConfigurationProperties {
+
+    private final String contentHash;
+
+    private final Map<String, String> properties;
+
+    private ConfigurationProperties(String contentHash, Map<String, String> properties) {
+        this.contentHash = contentHash;
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * @param content content of a <code>.properties</code> file, in ISO 8859-1 as read by {@link Properties#load(java.io.InputStream)}
+     * @return the parsed view
+     * @throws IllegalArgumentException if the content holds a malformed Unicode escape
+     */
+    public static ConfigurationProperties parse(byte[] content) {
+        return parse(ContentDigest.digest(content), content);
+    }
+
+    /**
+     * @param contentHash hexadecimal SHA-256 of the content, as computed by {@link ContentDigest}
+     * @param content content of a <code>.properties</code> file
+     * @return the parsed view
+     * @throws IllegalArgumentException if the content holds a malformed Unicode escape
+     */
+    public static ConfigurationProperties parse(String contentHash, byte[] content) {
+        return new ConfigurationProperties(contentHash, load(content));
+    }
+
+    private static Map<String, String> load(byte[] content) {
+        final Properties properties = new Properties();
+        try {
+            properties.load(new ByteArrayInputStream(content));
+        } catch (IOException e) {
+            // not thrown by an in-memory stream
+            throw new IllegalStateException(e);
+        }
+        final Map<String, String> map = new TreeMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            map.put(name, properties.getProperty(name));
+        }
+        return map;
+    }
+
+    /**
+     * @return hexadecimal SHA-256 of the parsed content
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * @return the value of the property, or null if it is not defined
+     */
+    public String getProperty(String name) {
+        return properties.get(name);
+    }
+
+    public String getProperty(String name, String defaultValue) {
+        final String value = properties.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean containsProperty(String name) {
+        return properties.containsKey(name);
+    }
+
+    /**
+     * @return names of the defined properties, sorted
+     */
+    public Set<String> getPropertyNames() {
+        return properties.keySet();
+    }
+
+    public int size() {
+        return properties.size();
+    }
+
+    /**
+     * @return an unmodifiable map of the properties, sorted by name
+     */
+    public Map<String, String> asMap() {
+        return properties;
+    }
+
+    /**
+     * @return a mutable copy of the properties
+     */
+    public Properties toProperties() {
+        final Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ConfigurationProperties that = (ConfigurationProperties) o;
+        return Objects.equals(properties, that.properties);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(properties);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConfigurationProperties{ contentHash='%s' , size=%d }", contentHash, size());
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.model;
+
+import java.util.Objects;
+
+/**
+ * A recorded state of the whole <code>configuration</code> table, see table <code>configuration_revision</code>.
+ */
+public class ConfigurationRevision {
+
+    private final long revision;
+
+    private final long creationDate;
+
+    private final String description;
+
+    public ConfigurationRevision(long revision, long creationDate, String description) {
+        this.revision = revision;
+        this.creationDate = creationDate;
+        this.description = description;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return creation date, in milliseconds since epoch
+     */
+    public long getCreationDate() {
+        return creationDate;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ConfigurationRevision that = (ConfigurationRevision) o;
+        return revision == that.revision &&
+                creationDate == that.creationDate &&
+                Objects.equals(description, that.description);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(revision, creationDate, description);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConfigurationRevision{ revision=%d , creationDate=%d , description='%s' }", revision, creationDate, description);
+    }
+}
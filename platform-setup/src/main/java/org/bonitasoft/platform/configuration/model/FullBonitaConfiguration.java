@@ -50,13 +50,13 @@ public class FullBonitaConfiguration extends BonitaConfiguration {
         FullBonitaConfiguration that = (FullBonitaConfiguration) o;
         return Objects.equals(getResourceName(), that.getResourceName()) &&
                 Arrays.equals(getResourceContent(), that.getResourceContent()) &&
-                Objects.equals(getResourceName(), that.getResourceName()) &&
+                Objects.equals(configurationType, that.configurationType) &&
                 Objects.equals(getTenantId(), that.getTenantId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getResourceName(), getResourceContent(), configurationType);
+        return Objects.hash(getResourceName(), Arrays.hashCode(getResourceContent()), configurationType, tenantId);
     }
 
     @Override
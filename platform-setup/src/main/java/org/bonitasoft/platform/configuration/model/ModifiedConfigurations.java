@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration files of a type whose content in database differs from the one known by a caller, and files known by the caller that no longer
+ * exist in database.
+ */
+public class ModifiedConfigurations {
+
+    private final List<BonitaConfiguration> modified = new ArrayList<>();
+
+    private final List<String> deleted = new ArrayList<>();
+
+    /**
+     * @return files added or updated in database, ordered by resource name
+     */
+    public List<BonitaConfiguration> getModified() {
+        return modified;
+    }
+
+    /**
+     * @return names of the files known by the caller and deleted in database, ordered by resource name
+     */
+    public List<String> getDeleted() {
+        return deleted;
+    }
+
+    public boolean isEmpty() {
+        return modified.isEmpty() && deleted.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ModifiedConfigurations{ modified=%d , deleted=%d }", modified.size(), deleted.size());
+    }
+}
@@ -14,5 +14,21 @@
 package org.bonitasoft.platform.configuration.type;
 
 public enum ConfigurationType {
-    LICENSES, PLATFORM_PORTAL, PLATFORM_INIT_ENGINE, PLATFORM_ENGINE, TENANT_PORTAL, TENANT_ENGINE, TENANT_TEMPLATE_ENGINE, TENANT_SECURITY_SCRIPTS, TENANT_TEMPLATE_SECURITY_SCRIPTS, TENANT_TEMPLATE_PORTAL
+    LICENSES, PLATFORM_PORTAL, PLATFORM_INIT_ENGINE, PLATFORM_ENGINE, TENANT_PORTAL, TENANT_ENGINE, TENANT_TEMPLATE_ENGINE, TENANT_SECURITY_SCRIPTS, TENANT_TEMPLATE_SECURITY_SCRIPTS, TENANT_TEMPLATE_PORTAL;
+
+    /**
+     * @return the tenant template type this tenant type is created from, or null if this type is not a tenant type
+     */
+    public ConfigurationType getTenantTemplateType() {
+        switch (this) {
+            case TENANT_ENGINE:
+                return TENANT_TEMPLATE_ENGINE;
+            case TENANT_PORTAL:
+                return TENANT_TEMPLATE_PORTAL;
+            case TENANT_SECURITY_SCRIPTS:
+                return TENANT_TEMPLATE_SECURITY_SCRIPTS;
+            default:
+                return null;
+        }
+    }
 }
@@ -15,8 +15,6 @@ package org.bonitasoft.platform.configuration.util;
 
 import static org.bonitasoft.platform.configuration.type.ConfigurationType.*;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
@@ -26,8 +24,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
-import org.apache.commons.io.IOUtils;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
 import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.exception.PlatformException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,7 +35,7 @@ import org.slf4j.LoggerFactory;
  */
 public class AllConfigurationResourceVisitor extends SimpleFileVisitor<Path> {
 
-    private final List<FullBonitaConfiguration> fullBonitaConfigurations;
+    private final FullBonitaConfigurationConsumer consumer;
 
     private final static Logger LOGGER = LoggerFactory.getLogger(AllConfigurationResourceVisitor.class);
 
@@ -47,8 +46,22 @@ public class AllConfigurationResourceVisitor extends SimpleFileVisitor<Path> {
     private static final List<String> TENANT_FOLDERS = Arrays.asList(TENANT_PORTAL.name().toLowerCase(), TENANT_ENGINE.name().toLowerCase(),
             TENANT_SECURITY_SCRIPTS.name().toLowerCase());
 
-    public AllConfigurationResourceVisitor(List<FullBonitaConfiguration> fullBonitaConfigurations) {
-        this.fullBonitaConfigurations = fullBonitaConfigurations;
+    public AllConfigurationResourceVisitor(final List<FullBonitaConfiguration> fullBonitaConfigurations) {
+        this(new FullBonitaConfigurationConsumer() {
+
+            @Override
+            public void accept(FullBonitaConfiguration fullBonitaConfiguration) {
+                fullBonitaConfigurations.add(fullBonitaConfiguration);
+            }
+        });
+    }
+
+    /**
+     * @param consumer receives files one by one, as soon as they are read. A {@link PlatformException} thrown by the consumer stops the walk and
+     *        is rethrown wrapped in a {@link ConsumerIOException}.
+     */
+    public AllConfigurationResourceVisitor(FullBonitaConfigurationConsumer consumer) {
+        this.consumer = consumer;
     }
 
     @Override
@@ -56,15 +69,15 @@ public class AllConfigurationResourceVisitor extends SimpleFileVisitor<Path> {
         return FileVisitResult.CONTINUE;
     }
 
-    private String getFolderName(Path dir) {
+    private static String getFolderName(Path dir) {
         return dir.getFileName().toString().toUpperCase();
     }
 
-    private boolean isTenantFolder(Path dir) {
+    private static boolean isTenantFolder(Path dir) {
         return TENANT_FOLDERS.contains(dir.getFileName().toString());
     }
 
-    private Long getTenantId(Path dir) {
+    private static Long getTenantId(Path dir) {
         try {
             return Long.parseLong(dir.getParent().getFileName().toString());
         } catch (NumberFormatException e) {
@@ -73,7 +86,7 @@ public class AllConfigurationResourceVisitor extends SimpleFileVisitor<Path> {
 
     }
 
-    private boolean isPlatformFolder(Path dir) {
+    private static boolean isPlatformFolder(Path dir) {
         return PLATFORM_FOLDERS.contains(dir.getFileName().toString());
 
     }
@@ -82,32 +95,70 @@ public class AllConfigurationResourceVisitor extends SimpleFileVisitor<Path> {
     public FileVisitResult visitFile(Path path, BasicFileAttributes basicFileAttributes) throws IOException {
         Objects.requireNonNull(path);
         Objects.requireNonNull(basicFileAttributes);
-        final File file = path.toFile();
-        if (isConfigurationFile(path)) {
-            final Long tenantId = getTenantId(path.getParent());
-            final String configurationType = getFolderName(path.getParent());
-            try (FileInputStream fileInputStream = new FileInputStream(file)) {
-                LOGGER.debug(buildMessage(file, tenantId, configurationType));
-                fullBonitaConfigurations.add(new FullBonitaConfiguration(file.getName(), IOUtils.toByteArray(fileInputStream), configurationType, tenantId));
+        if (isConfigurationFile(path, basicFileAttributes)) {
+            final FullBonitaConfiguration fullBonitaConfiguration = readConfigurationFile(path, basicFileAttributes);
+            try {
+                consumer.accept(fullBonitaConfiguration);
+            } catch (PlatformException e) {
+                throw new ConsumerIOException(e);
             }
         }
         return FileVisitResult.CONTINUE;
     }
 
-    private String buildMessage(File file, Long tenantId, String configurationType) {
+    /**
+     * Reads a file accepted by {@link #isConfigurationFile(Path, BasicFileAttributes)}, its tenant id and type being given by its folder.
+     */
+    static FullBonitaConfiguration readConfigurationFile(Path path, BasicFileAttributes basicFileAttributes) throws IOException {
+        final Long tenantId = getTenantId(path.getParent());
+        final String configurationType = getFolderName(path.getParent());
+        final String fileName = path.getFileName().toString();
+        LOGGER.debug(buildMessage(fileName, tenantId, configurationType));
+        return new FullBonitaConfiguration(fileName, ConfigurationFiles.readContent(path, basicFileAttributes.size()), configurationType, tenantId);
+    }
+
+    private static String buildMessage(String fileName, Long tenantId, String configurationType) {
         final StringBuilder message = new StringBuilder("found file: ");
         if (tenantId > 0) {
             message.append("tenants/").append(tenantId).append("/").append(configurationType.toLowerCase());
         } else {
             message.append(configurationType.toLowerCase());
         }
-        message.append("/").append(file.getName());
+        message.append("/").append(fileName);
         return message.toString();
     }
 
-    private boolean isConfigurationFile(Path path) {
-        final Path parentFolder = path.getParent();
-        return path.toFile().isFile() && (isTenantFolder(parentFolder) || isPlatformFolder(parentFolder));
+    static boolean isConfigurationFile(Path path, BasicFileAttributes basicFileAttributes) {
+        return basicFileAttributes.isRegularFile() && isConfigurationFolder(path.getParent());
+    }
+
+    /**
+     * @return true if files of the given folder are configuration files
+     */
+    static boolean isConfigurationFolder(Path folder) {
+        return folder != null && folder.getFileName() != null && (isTenantFolder(folder) || isPlatformFolder(folder));
+    }
+
+    /**
+     * Describes a file of a configuration folder from its path only, so that it can be described once deleted.
+     */
+    static BonitaConfigurationDescriptor describeConfigurationFile(Path path) {
+        return new BonitaConfigurationDescriptor(path.getFileName().toString(), getFolderName(path.getParent()), getTenantId(path.getParent()), 0, null);
+    }
+
+    /**
+     * Carries the exception thrown by the consumer through the file walk.
+     */
+    public static class ConsumerIOException extends IOException {
+
+        public ConsumerIOException(PlatformException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized PlatformException getCause() {
+            return (PlatformException) super.getCause();
+        }
     }
 
 }
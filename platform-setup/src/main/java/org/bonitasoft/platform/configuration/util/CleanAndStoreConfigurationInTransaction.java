@@ -20,6 +20,7 @@ import org.bonitasoft.platform.configuration.impl.BonitaConfigurationPreparedSta
 import org.bonitasoft.platform.configuration.impl.ConfigurationServiceImpl;
 import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
 import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.dialect.Dialect;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.TransactionStatus;
@@ -34,15 +35,15 @@ public class CleanAndStoreConfigurationInTransaction extends TransactionCallback
     private final List<BonitaConfiguration> bonitaConfigurations;
     private final ConfigurationType type;
     private final long tenantId;
-    private final String dbVendor;
+    private final Dialect dialect;
 
     private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ConfigurationServiceImpl.class);
 
-    public CleanAndStoreConfigurationInTransaction(JdbcTemplate jdbcTemplate, String dbVendor, List<BonitaConfiguration> bonitaConfigurations, ConfigurationType type,
+    public CleanAndStoreConfigurationInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, List<BonitaConfiguration> bonitaConfigurations, ConfigurationType type,
                                                    long tenantId) {
 
         this.jdbcTemplate = jdbcTemplate;
-        this.dbVendor = dbVendor;
+        this.dialect = dialect;
         this.bonitaConfigurations = bonitaConfigurations;
         this.type = type;
         this.tenantId = tenantId;
@@ -56,8 +57,10 @@ public class CleanAndStoreConfigurationInTransaction extends TransactionCallback
         jdbcTemplate.batchUpdate(BonitaConfigurationContentTypeCleaner.DELETE_CONFIGURATION,
                 new BonitaConfigurationContentTypeCleaner(type, tenantId));
 
-        jdbcTemplate.batchUpdate(BonitaConfigurationPreparedStatementSetter.INSERT_CONFIGURATION,
-                new BonitaConfigurationPreparedStatementSetter(bonitaConfigurations, dbVendor, type, tenantId));
+        for (List<BonitaConfiguration> batch : ConfigurationBatches.split(bonitaConfigurations, dialect)) {
+            jdbcTemplate.batchUpdate(BonitaConfigurationPreparedStatementSetter.INSERT_CONFIGURATION,
+                    new BonitaConfigurationPreparedStatementSetter(batch, dialect, type, tenantId));
+        }
 
     }
 
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.exception.PlatformException;
+
+/**
+ * Layout of the ZIP archive holding a whole <code>configuration</code> table.
+ * <ul>
+ * <li>the first entry is a manifest listing, one file per line, its tenant id, content type, content hash and name, separated by tabs</li>
+ * <li>each file follows in its own entry, named as it is pulled to a folder: tenants/TENANT_ID/CONFIGURATION_TYPE/NAME for tenant files, and
+ * CONFIGURATION_TYPE/NAME for other files</li>
+ * </ul>
+ * Hashes are those of column <code>resource_hash</code>, see {@link ContentDigest}.
+ */
+public final class ConfigurationArchive {
+
+    public static final String MANIFEST_ENTRY = "configuration-manifest.txt";
+
+    static final String MANIFEST_HEADER = "# Bonita configuration archive 1";
+
+    /**
+     * written in place of the hash of files stored without hash
+     */
+    static final String NO_HASH = "-";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String SEPARATOR = "\t";
+
+    private ConfigurationArchive() {
+    }
+
+    public static String getEntryName(long tenantId, String configurationType, String resourceName) {
+        final StringBuilder entryName = new StringBuilder();
+        if (tenantId > 0) {
+            entryName.append("tenants/").append(tenantId).append("/");
+        }
+        return entryName.append(configurationType.toLowerCase()).append("/").append(resourceName).toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if a resource name contains a tab or a line break, which cannot be written in the manifest
+     */
+    static void writeManifest(List<BonitaConfigurationDescriptor> descriptors, OutputStream outputStream) throws IOException {
+        for (BonitaConfigurationDescriptor descriptor : descriptors) {
+            if (descriptor.getResourceName().matches("(?s).*[\\t\\r\\n].*")) {
+                throw new IllegalArgumentException("configuration file name cannot contain tabs or line breaks: "
+                        + getEntryName(descriptor.getTenantId(), descriptor.getConfigurationType(), descriptor.getResourceName()));
+            }
+        }
+        // the writer is not closed, as it would close the archive
+        final Writer writer = new OutputStreamWriter(outputStream, UTF_8);
+        writer.write(MANIFEST_HEADER);
+        writer.write("\n");
+        for (BonitaConfigurationDescriptor descriptor : descriptors) {
+            writer.write(descriptor.getTenantId() + SEPARATOR + descriptor.getConfigurationType() + SEPARATOR
+                    + (descriptor.getResourceHash() == null ? NO_HASH : descriptor.getResourceHash()) + SEPARATOR + descriptor.getResourceName() + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return manifest entries by archive entry name, in manifest order
+     */
+    static Map<String, ManifestEntry> readManifest(InputStream inputStream) throws IOException, PlatformException {
+        // the reader is not closed, as it would close the archive
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8));
+        if (!MANIFEST_HEADER.equals(reader.readLine())) {
+            throw new PlatformException("unsupported configuration archive: manifest header is missing");
+        }
+        final Map<String, ManifestEntry> entries = new LinkedHashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final String[] fields = line.split(SEPARATOR, 4);
+            if (fields.length != 4) {
+                throw new PlatformException("invalid line in configuration archive manifest: " + line);
+            }
+            final ManifestEntry entry;
+            try {
+                entry = new ManifestEntry(Long.parseLong(fields[0]), fields[1], NO_HASH.equals(fields[2]) ? null : fields[2], fields[3]);
+            } catch (NumberFormatException e) {
+                throw new PlatformException("invalid tenant id in configuration archive manifest: " + line);
+            }
+            checkTypeAndTenant(entry, line);
+            entries.put(getEntryName(entry.getTenantId(), entry.getConfigurationType(), entry.getResourceName()), entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Tenant files must belong to a tenant, as their entry is read from and pulled to tenants/TENANT_ID, and other files must not.
+     */
+    private static void checkTypeAndTenant(ManifestEntry entry, String line) throws PlatformException {
+        final ConfigurationType type;
+        try {
+            type = ConfigurationType.valueOf(entry.getConfigurationType());
+        } catch (IllegalArgumentException e) {
+            throw new PlatformException("unknown configuration type in configuration archive manifest: " + line);
+        }
+        if ((type.getTenantTemplateType() != null) != (entry.getTenantId() > 0)) {
+            throw new PlatformException("tenant id does not match configuration type in configuration archive manifest: " + line);
+        }
+    }
+
+    /**
+     * A file listed in the manifest.
+     */
+    static final class ManifestEntry {
+
+        private final long tenantId;
+        private final String configurationType;
+        private final String resourceHash;
+        private final String resourceName;
+
+        ManifestEntry(long tenantId, String configurationType, String resourceHash, String resourceName) {
+            this.tenantId = tenantId;
+            this.configurationType = configurationType;
+            this.resourceHash = resourceHash;
+            this.resourceName = resourceName;
+        }
+
+        long getTenantId() {
+            return tenantId;
+        }
+
+        String getConfigurationType() {
+            return configurationType;
+        }
+
+        /**
+         * @return hash of the content, or null if unknown
+         */
+        String getResourceHash() {
+            return resourceHash;
+        }
+
+        String getResourceName() {
+            return resourceName;
+        }
+    }
+
+    /**
+     * Carries an archive failure through the transaction template.
+     */
+    public static class ArchiveException extends RuntimeException {
+
+        public ArchiveException(PlatformException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized PlatformException getCause() {
+            return (PlatformException) super.getCause();
+        }
+    }
+}
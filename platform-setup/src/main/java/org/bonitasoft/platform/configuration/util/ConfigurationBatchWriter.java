@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bonitasoft.platform.configuration.impl.BonitaAllConfigurationPreparedStatementSetter;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Upserts configuration files received one by one, in JDBC batches bounded as {@link ConfigurationBatches} does.
+ * Only the current batch is held in memory. Must be used within a transaction.
+ */
+class ConfigurationBatchWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final int maxRows;
+    private final long maxBytes;
+    private List<FullBonitaConfiguration> batch = new ArrayList<>();
+    private long batchBytes = 0;
+    private int storedFiles = 0;
+
+    ConfigurationBatchWriter(JdbcTemplate jdbcTemplate, Dialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.maxRows = ConfigurationBatches.getMaxRows(dialect);
+        this.maxBytes = ConfigurationBatches.getMaxBytes(dialect);
+    }
+
+    void add(FullBonitaConfiguration fullBonitaConfiguration) {
+        final long length = fullBonitaConfiguration.getResourceContent().length;
+        if (!batch.isEmpty() && (batch.size() == maxRows || batchBytes + length > maxBytes)) {
+            flush();
+        }
+        batch.add(fullBonitaConfiguration);
+        batchBytes += length;
+    }
+
+    /**
+     * Writes the current batch, if any.
+     */
+    void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(dialect.getUpsertConfigurationQuery(), new BonitaAllConfigurationPreparedStatementSetter(batch, dialect));
+        storedFiles += batch.size();
+        batch = new ArrayList<>();
+        batchBytes = 0;
+    }
+
+    int getStoredFiles() {
+        return storedFiles;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.dialect.Dialect;
+
+/**
+ * Splits configuration files into JDBC batches bounded by a number of rows and by the size of their content,
+ * so that drivers never buffer the whole configuration at once.
+ */
+public final class ConfigurationBatches {
+
+    /**
+     * system property to tune the maximum number of rows per JDBC batch
+     */
+    public static final String BATCH_MAX_ROWS = "org.bonitasoft.platform.setup.batch.rows";
+
+    /**
+     * system property to tune the maximum content size, in bytes, per JDBC batch
+     */
+    public static final String BATCH_MAX_BYTES = "org.bonitasoft.platform.setup.batch.bytes";
+
+    private ConfigurationBatches() {
+    }
+
+    /**
+     * Splits files using limits set by system properties, or by default the limits of the dialect.
+     */
+    public static <T extends BonitaConfiguration> List<List<T>> split(List<T> bonitaConfigurations, Dialect dialect) {
+        return split(bonitaConfigurations, getMaxRows(dialect), getMaxBytes(dialect));
+    }
+
+    /**
+     * @return maximum number of rows per batch set by system property, or by default the limit of the dialect
+     */
+    public static int getMaxRows(Dialect dialect) {
+        return Integer.getInteger(BATCH_MAX_ROWS, dialect.getDefaultBatchMaxRows());
+    }
+
+    /**
+     * @return maximum content size per batch set by system property, or by default the limit of the dialect
+     */
+    public static long getMaxBytes(Dialect dialect) {
+        return Long.getLong(BATCH_MAX_BYTES, dialect.getDefaultBatchMaxBytes());
+    }
+
+    /**
+     * @param bonitaConfigurations files to split
+     * @param maxRows maximum number of files per batch
+     * @param maxBytes maximum content size per batch. A file bigger than this limit is alone in its batch.
+     * @return consecutive views of the given list
+     */
+    public static <T extends BonitaConfiguration> List<List<T>> split(List<T> bonitaConfigurations, int maxRows, long maxBytes) {
+        if (maxRows <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("batch limits must be strictly positive, was " + maxRows + " rows and " + maxBytes + " bytes");
+        }
+        final List<List<T>> batches = new ArrayList<>();
+        int batchStart = 0;
+        long batchBytes = 0;
+        for (int i = 0; i < bonitaConfigurations.size(); i++) {
+            final long length = bonitaConfigurations.get(i).getResourceContent().length;
+            if (i > batchStart && (i - batchStart == maxRows || batchBytes + length > maxBytes)) {
+                batches.add(bonitaConfigurations.subList(batchStart, i));
+                batchStart = i;
+                batchBytes = 0;
+            }
+            batchBytes += length;
+        }
+        if (batchStart < bonitaConfigurations.size()) {
+            batches.add(bonitaConfigurations.subList(batchStart, bonitaConfigurations.size()));
+        }
+        return batches;
+    }
+}
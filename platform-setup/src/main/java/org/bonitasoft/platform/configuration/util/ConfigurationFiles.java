@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads configuration files through NIO channels, sizing the buffer from the attributes already known by the folder walk
+ * instead of querying the file system again.
+ */
+public final class ConfigurationFiles {
+
+    private ConfigurationFiles() {
+    }
+
+    /**
+     * @param path file to read
+     * @param expectedSize size of the file when it was visited. A file that changed size since is still read completely.
+     * @return content of the file
+     */
+    public static byte[] readContent(Path path, long expectedSize) throws IOException {
+        if (expectedSize > Integer.MAX_VALUE - 1) {
+            throw new IOException("configuration file " + path + " is too big: " + expectedSize + " bytes");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(expectedSize, 0));
+            while (true) {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        return Arrays.copyOf(buffer.array(), buffer.position());
+                    }
+                }
+                final ByteBuffer probe = ByteBuffer.allocate(1);
+                if (channel.read(probe) < 0) {
+                    return buffer.array();
+                }
+                // the file grew since it was visited
+                final ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, 8192));
+                buffer.flip();
+                grown.put(buffer).put(probe.array());
+                buffer = grown;
+            }
+        }
+    }
+}
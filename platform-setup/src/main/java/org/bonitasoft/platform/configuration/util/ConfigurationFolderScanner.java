@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans a configuration folder laid out as {@link AllConfigurationResourceVisitor} expects, reading files concurrently.
+ * The folder walk only keeps paths and sizes given by the walk itself, files are then read by a bounded pool of threads.
+ * Files are handed to the consumer sorted by path, whatever the order in which reads complete, and at most a few files per
+ * reader thread are held in memory.
+ */
+public class ConfigurationFolderScanner {
+
+    /**
+     * system property to tune the number of threads reading configuration files
+     */
+    public static final String SCAN_PARALLELISM = "org.bonitasoft.platform.setup.scan.parallelism";
+
+    static final int DEFAULT_SCAN_PARALLELISM = 4;
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ConfigurationFolderScanner.class);
+
+    private final int parallelism;
+
+    /**
+     * Scanner using the number of threads set by system property.
+     */
+    public ConfigurationFolderScanner() {
+        this(Integer.getInteger(SCAN_PARALLELISM, DEFAULT_SCAN_PARALLELISM));
+    }
+
+    public ConfigurationFolderScanner(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("scan parallelism must be strictly positive, was " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param rootFolder configuration folder to scan
+     * @param consumer receives files in path order. A {@link PlatformException} thrown by the consumer stops the scan and is rethrown wrapped in
+     *        a {@link AllConfigurationResourceVisitor.ConsumerIOException}.
+     */
+    public void scan(Path rootFolder, FullBonitaConfigurationConsumer consumer) throws IOException {
+        final List<ScannedFile> files = listConfigurationFiles(rootFolder);
+        LOGGER.debug("read " + files.size() + " configuration files of folder " + rootFolder + " with " + parallelism + " threads");
+        final ExecutorService readers = Executors.newFixedThreadPool(parallelism, new ReaderThreadFactory());
+        try {
+            final Deque<Future<FullBonitaConfiguration>> pendingReads = new ArrayDeque<>();
+            for (final ScannedFile file : files) {
+                if (pendingReads.size() == 2 * parallelism) {
+                    accept(consumer, pendingReads.poll());
+                }
+                pendingReads.add(readers.submit(file));
+            }
+            while (!pendingReads.isEmpty()) {
+                accept(consumer, pendingReads.poll());
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    private List<ScannedFile> listConfigurationFiles(Path rootFolder) throws IOException {
+        final List<ScannedFile> files = new ArrayList<>();
+        Files.walkFileTree(rootFolder, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes basicFileAttributes) {
+                if (AllConfigurationResourceVisitor.isConfigurationFile(path, basicFileAttributes)) {
+                    files.add(new ScannedFile(path, basicFileAttributes));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+        return files;
+    }
+
+    private void accept(FullBonitaConfigurationConsumer consumer, Future<FullBonitaConfiguration> read) throws IOException {
+        final FullBonitaConfiguration fullBonitaConfiguration;
+        try {
+            fullBonitaConfiguration = read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("scan of configuration folder interrupted");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+        try {
+            consumer.accept(fullBonitaConfiguration);
+        } catch (PlatformException e) {
+            throw new AllConfigurationResourceVisitor.ConsumerIOException(e);
+        }
+    }
+
+    private static final class ScannedFile implements Callable<FullBonitaConfiguration>, Comparable<ScannedFile> {
+
+        private final Path path;
+        private final BasicFileAttributes basicFileAttributes;
+
+        ScannedFile(Path path, BasicFileAttributes basicFileAttributes) {
+            this.path = path;
+            this.basicFileAttributes = basicFileAttributes;
+        }
+
+        @Override
+        public FullBonitaConfiguration call() throws IOException {
+            return AllConfigurationResourceVisitor.readConfigurationFile(path, basicFileAttributes);
+        }
+
+        @Override
+        public int compareTo(ScannedFile other) {
+            return path.compareTo(other.path);
+        }
+    }
+
+    private static final class ReaderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "bonita-configuration-scanner-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
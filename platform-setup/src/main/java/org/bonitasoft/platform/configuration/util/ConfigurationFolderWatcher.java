@@ -0,0 +1,234 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches a configuration folder laid out as {@link AllConfigurationResourceVisitor} expects, including folders created after the watch started.
+ * Events are debounced: a batch of changes is returned once no event was received for the debounce delay, so that a file saved several times, or
+ * several files saved together, are stored once.
+ * <p>
+ * When a folder is deleted, e.g. a whole tenant folder, all the files it contained are considered as deleted.
+ * <p>
+ * When the watched folder itself is replaced, e.g. by a pull, it is watched again and all its files are considered as written.
+ */
+public class ConfigurationFolderWatcher implements Closeable {
+
+    /**
+     * system property giving the delay, in milliseconds, without file event after which changed files are stored
+     */
+    public static final String WATCH_DEBOUNCE = "org.bonitasoft.platform.setup.watch.debounce";
+
+    static final long DEFAULT_WATCH_DEBOUNCE = 500;
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ConfigurationFolderWatcher.class);
+
+    private final Path rootFolder;
+
+    private final long debounceMillis;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> watchedFolders = new HashMap<>();
+
+    /**
+     * files currently in the watched folder tree, as their deletion is not notified when their whole folder is deleted
+     */
+    private final Set<Path> knownFiles = new HashSet<>();
+
+    private WatchKey rootKey;
+
+    public ConfigurationFolderWatcher(Path rootFolder) throws IOException {
+        this(rootFolder, Long.getLong(WATCH_DEBOUNCE, DEFAULT_WATCH_DEBOUNCE));
+    }
+
+    public ConfigurationFolderWatcher(Path rootFolder, long debounceMillis) throws IOException {
+        this.rootFolder = rootFolder;
+        this.debounceMillis = debounceMillis;
+        this.watchService = rootFolder.getFileSystem().newWatchService();
+        register(rootFolder, new TreeSet<Path>());
+    }
+
+    /**
+     * Blocks until files change, then until no event is received for the debounce delay.
+     *
+     * @return files written and deleted since the previous call
+     * @throws InterruptedException if the thread is interrupted while waiting for a change
+     */
+    public Changes awaitChanges() throws IOException, InterruptedException {
+        final Set<Path> changedPaths = new TreeSet<>();
+        WatchKey key = watchService.take();
+        while (key != null) {
+            processEvents(key, changedPaths);
+            key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+        }
+        return readChanges(changedPaths);
+    }
+
+    private void processEvents(WatchKey key, Set<Path> changedPaths) throws IOException {
+        final Path folder = watchedFolders.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                LOGGER.warn("Too many file events in " + folder + ", all its files are considered as written. Use 'setup push' to store deletions.");
+                addFiles(folder, changedPaths);
+                continue;
+            }
+            final Path path = folder.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                // files may have been created in the new folder before it is watched
+                register(path, changedPaths);
+            } else {
+                changedPaths.add(path);
+                if (event.kind() == ENTRY_DELETE) {
+                    addKnownFilesUnder(path, changedPaths);
+                }
+            }
+        }
+        if (!key.reset()) {
+            watchedFolders.remove(key);
+            if (key == rootKey) {
+                registerReplacedRootFolder(changedPaths);
+            }
+        }
+    }
+
+    private void registerReplacedRootFolder(Set<Path> changedPaths) throws IOException {
+        // keys of the replaced folder tree may still be valid but no longer match their paths
+        for (WatchKey watchedFolder : watchedFolders.keySet()) {
+            watchedFolder.cancel();
+        }
+        watchedFolders.clear();
+        if (!Files.isDirectory(rootFolder)) {
+            throw new NoSuchFileException(rootFolder.toString(), null, "watched configuration folder no longer exists");
+        }
+        LOGGER.info("Configuration folder " + rootFolder + " was replaced, all its files are considered as written.");
+        register(rootFolder, changedPaths);
+    }
+
+    private void register(Path folder, final Set<Path> changedPaths) throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                final WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                watchedFolders.put(key, dir);
+                if (dir.equals(rootFolder)) {
+                    rootKey = key;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                knownFiles.add(file);
+                changedPaths.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void addFiles(Path folder, Set<Path> changedPaths) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path file : files) {
+                changedPaths.add(file);
+            }
+        }
+    }
+
+    private void addKnownFilesUnder(Path deletedPath, Set<Path> changedPaths) {
+        for (Path knownFile : knownFiles) {
+            if (knownFile.startsWith(deletedPath)) {
+                changedPaths.add(knownFile);
+            }
+        }
+    }
+
+    private Changes readChanges(Set<Path> changedPaths) throws IOException {
+        final Changes changes = new Changes();
+        for (Path path : changedPaths) {
+            if (!AllConfigurationResourceVisitor.isConfigurationFolder(path.getParent())) {
+                continue;
+            }
+            try {
+                final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    knownFiles.add(path);
+                }
+                if (AllConfigurationResourceVisitor.isConfigurationFile(path, attributes)) {
+                    changes.writtenFiles.add(AllConfigurationResourceVisitor.readConfigurationFile(path, attributes));
+                }
+            } catch (NoSuchFileException e) {
+                knownFiles.remove(path);
+                changes.deletedFiles.add(AllConfigurationResourceVisitor.describeConfigurationFile(path));
+            }
+        }
+        LOGGER.debug("changes in " + rootFolder + ": " + changes.writtenFiles.size() + " files written, " + changes.deletedFiles.size()
+                + " files deleted");
+        return changes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Files written and deleted in a batch of events.
+     */
+    public static class Changes {
+
+        private final List<FullBonitaConfiguration> writtenFiles = new ArrayList<>();
+
+        private final List<BonitaConfigurationDescriptor> deletedFiles = new ArrayList<>();
+
+        public List<FullBonitaConfiguration> getWrittenFiles() {
+            return writtenFiles;
+        }
+
+        public List<BonitaConfigurationDescriptor> getDeletedFiles() {
+            return deletedFiles;
+        }
+
+        public boolean isEmpty() {
+            return writtenFiles.isEmpty() && deletedFiles.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bonitasoft.platform.configuration.impl.FolderResolver;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes configuration files to a folder on a bounded pool of threads.
+ * When a previous copy of the folder is given, files whose content is byte-identical to their previous copy are hard-linked instead of written.
+ * Files are written as they are received, {@link #awaitWrites()} must be called once all files are received.
+ */
+public class ConfigurationFolderWriter implements FullBonitaConfigurationConsumer {
+
+    /**
+     * system property to tune the number of threads writing configuration files
+     */
+    public static final String WRITE_PARALLELISM = "org.bonitasoft.platform.setup.write.parallelism";
+
+    static final int DEFAULT_WRITE_PARALLELISM = 4;
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ConfigurationFolderWriter.class);
+
+    private final FolderResolver folderResolver;
+    private final FolderResolver previousFolderResolver;
+    private final ThreadPoolExecutor writers;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final AtomicInteger writtenFiles = new AtomicInteger();
+    private final AtomicInteger unchangedFiles = new AtomicInteger();
+
+    /**
+     * @param folderResolver folders to write files to
+     * @param previousFolderResolver folders holding the previous copy of files, or null to write all files
+     */
+    public ConfigurationFolderWriter(FolderResolver folderResolver, FolderResolver previousFolderResolver) {
+        this(folderResolver, previousFolderResolver, Integer.getInteger(WRITE_PARALLELISM, DEFAULT_WRITE_PARALLELISM));
+    }
+
+    public ConfigurationFolderWriter(FolderResolver folderResolver, FolderResolver previousFolderResolver, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("write parallelism must be strictly positive, was " + parallelism);
+        }
+        this.folderResolver = folderResolver;
+        this.previousFolderResolver = previousFolderResolver;
+        // a full queue makes the caller write the file itself, which bounds the number of files held in memory
+        this.writers = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(2 * parallelism),
+                new WriterThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public void accept(final FullBonitaConfiguration fullBonitaConfiguration) throws PlatformException {
+        checkNoFailure();
+        writers.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                if (failure.get() != null) {
+                    return;
+                }
+                try {
+                    write(fullBonitaConfiguration);
+                } catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for all received files to be written.
+     *
+     * @throws PlatformException if a file could not be written
+     */
+    public void awaitWrites() throws PlatformException {
+        writers.shutdown();
+        try {
+            while (!writers.awaitTermination(1, TimeUnit.SECONDS)) {
+                LOGGER.debug("waiting for " + (writers.getQueue().size() + writers.getActiveCount()) + " configuration files to be written");
+            }
+        } catch (InterruptedException e) {
+            writers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new PlatformException("writing of configuration files interrupted", e);
+        }
+        checkNoFailure();
+        LOGGER.debug("wrote " + writtenFiles.get() + " configuration files, kept " + unchangedFiles.get() + " unchanged files");
+    }
+
+    int getWrittenFiles() {
+        return writtenFiles.get();
+    }
+
+    int getUnchangedFiles() {
+        return unchangedFiles.get();
+    }
+
+    private void checkNoFailure() throws PlatformException {
+        final Exception exception = failure.get();
+        if (exception != null) {
+            writers.shutdownNow();
+            throw new PlatformException("unable to write configuration files", exception);
+        }
+    }
+
+    private void write(FullBonitaConfiguration fullBonitaConfiguration) throws IOException {
+        final Path confFile = folderResolver.getFolder(fullBonitaConfiguration).toPath().resolve(fullBonitaConfiguration.getResourceName());
+        if (previousFolderResolver != null) {
+            final Path previousFile = previousFolderResolver.getPath(fullBonitaConfiguration).resolve(fullBonitaConfiguration.getResourceName());
+            if (isIdentical(previousFile, fullBonitaConfiguration.getResourceContent()) && link(confFile, previousFile)) {
+                unchangedFiles.incrementAndGet();
+                return;
+            }
+        }
+        LOGGER.debug(String.format("writing file %s to folder %s", confFile.getFileName(), confFile.getParent().toAbsolutePath()));
+        Files.write(confFile, fullBonitaConfiguration.getResourceContent());
+        writtenFiles.incrementAndGet();
+    }
+
+    private boolean isIdentical(Path previousFile, byte[] content) throws IOException {
+        return Files.isRegularFile(previousFile) && Files.size(previousFile) == content.length
+                && Arrays.equals(ConfigurationFiles.readContent(previousFile, content.length), content);
+    }
+
+    private boolean link(Path confFile, Path previousFile) {
+        try {
+            Files.createLink(confFile, previousFile);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            // file system without hard links, or previous folder on another device: the file is simply written
+            LOGGER.debug("unable to link file " + previousFile + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static final class WriterThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "bonita-configuration-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bonitasoft.platform.configuration.model.ConfigurationProperties;
+
+/**
+ * Parsed views of <code>.properties</code> files, keyed by content digest, the one stored in column <code>resource_hash</code>, so that files
+ * having the same content, for instance the same file of many tenants created from the same template, are parsed once and share the same view.
+ * Least recently used views are evicted first.
+ */
+public class ConfigurationPropertiesCache {
+
+    /**
+     * system property giving the maximum number of distinct contents whose parsed view is kept
+     */
+    public static final String MAX_SIZE = "org.bonitasoft.platform.setup.properties.cache.size";
+
+    static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final Map<String, ConfigurationProperties> parsed;
+
+    public ConfigurationPropertiesCache() {
+        this(Integer.getInteger(MAX_SIZE, DEFAULT_MAX_SIZE));
+    }
+
+    public ConfigurationPropertiesCache(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maximum size must be positive, was " + maxSize);
+        }
+        this.parsed = new LinkedHashMap<String, ConfigurationProperties>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ConfigurationProperties> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param contentHash hexadecimal SHA-256 of a content
+     * @return the parsed view of the content, or null if it is not cached
+     */
+    public synchronized ConfigurationProperties get(String contentHash) {
+        return parsed.get(contentHash);
+    }
+
+    /**
+     * @param contentHash hexadecimal SHA-256 of the content, or null to compute it
+     * @param content content of a <code>.properties</code> file
+     * @return the cached view of the content, or the content parsed and cached
+     */
+    public ConfigurationProperties parse(String contentHash, byte[] content) {
+        final String hash = contentHash == null ? ContentDigest.digest(content) : contentHash;
+        final ConfigurationProperties cached = get(hash);
+        if (cached != null) {
+            return cached;
+        }
+        // parsed outside of the lock: two threads may parse the same content, the last one replacing an equal view
+        final ConfigurationProperties properties = ConfigurationProperties.parse(hash, content);
+        synchronized (this) {
+            parsed.put(hash, properties);
+        }
+        return properties;
+    }
+
+    public synchronized int size() {
+        return parsed.size();
+    }
+
+    public synchronized void clear() {
+        parsed.clear();
+    }
+}
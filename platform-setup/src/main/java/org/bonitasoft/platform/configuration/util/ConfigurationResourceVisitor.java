@@ -13,8 +13,6 @@
  **/
 package org.bonitasoft.platform.configuration.util;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
@@ -23,7 +21,6 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.Objects;
 
-import org.apache.commons.io.IOUtils;
 import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,12 +48,10 @@ public class ConfigurationResourceVisitor extends SimpleFileVisitor<Path> {
     public FileVisitResult visitFile(Path path, BasicFileAttributes basicFileAttributes) throws IOException {
         Objects.requireNonNull(path);
         Objects.requireNonNull(basicFileAttributes);
-        final File file = path.toFile();
-        if (file.isFile()) {
-            try (FileInputStream fileInputStream = new FileInputStream(file)) {
-                LOGGER.info("found file " + file.getName());
-                bonitaConfigurations.add(new BonitaConfiguration(file.getName(), IOUtils.toByteArray(fileInputStream)));
-            }
+        if (basicFileAttributes.isRegularFile()) {
+            final String fileName = path.getFileName().toString();
+            LOGGER.info("found file " + fileName);
+            bonitaConfigurations.add(new BonitaConfiguration(fileName, ConfigurationFiles.readContent(path, basicFileAttributes.size())));
         }
         return FileVisitResult.CONTINUE;
     }
@@ -0,0 +1,404 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.ConfigurationFile;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.exception.PlatformException;
+
+/**
+ * Local copy of the whole <code>configuration</code> table, so that a node can read its configuration without reading resource contents from
+ * database.
+ * <p>
+ * The file is memory-mapped read-only and is never parsed: files are looked up in hash tables stored in the file itself, so a snapshot costs
+ * almost no heap, and all the JVMs of a host opening the same file share a single copy of it in the page cache. Contents are only copied to
+ * heap when returned as {@link BonitaConfiguration}, {@link ConfigurationFile} contents are read in place.
+ * <p>
+ * The file holds the id of the configuration change it was taken at, see
+ * {@link org.bonitasoft.platform.configuration.ConfigurationService#getLastConfigurationChangeId()}, then:
+ *
+ * <pre>
+ * header     : magic (8 bytes), change id (long)
+ * content    : content of each file
+ * files      : per file: tenant id (long), content offset (int), content length (int), type and name (int length + UTF-8 bytes)
+ * groups     : per tenant and type: tenant id (long), type (int length + UTF-8 bytes), file count (int), offset of each file (int)
+ * file table : capacity (int), then offset of a file or 0 for each slot, hashed on tenant id, type and name
+ * group table: capacity (int), then offset of a group or 0 for each slot, hashed on tenant id and type
+ * footer     : file table offset (int), group table offset (int), magic (8 bytes)
+ * </pre>
+ *
+ * Tables use open addressing with linear probing, and are at most half full.
+ */
+public class ConfigurationSnapshot {
+
+    private static final byte[] MAGIC = "BCFGSNP2".getBytes(Charset.forName("US-ASCII"));
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int HEADER_LENGTH = MAGIC.length + 8;
+
+    private static final int FOOTER_LENGTH = 4 + 4 + MAGIC.length;
+
+    private static final int EMPTY_SLOT = 0;
+
+    private final long changeId;
+
+    private final ByteBuffer buffer;
+
+    private final int fileTable;
+
+    private final int groupTable;
+
+    private ConfigurationSnapshot(long changeId, ByteBuffer buffer, int fileTable, int groupTable) {
+        this.changeId = changeId;
+        this.buffer = buffer;
+        this.fileTable = fileTable;
+        this.groupTable = groupTable;
+    }
+
+    /**
+     * @param file snapshot file written by a {@link Writer}
+     * @return the mapped snapshot
+     * @throws IOException if the file cannot be read or is not a complete snapshot
+     */
+    public static ConfigurationSnapshot open(Path file) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE || channel.size() < HEADER_LENGTH + 4 + 4 + FOOTER_LENGTH) {
+                throw new IOException("invalid configuration snapshot size: " + channel.size() + " bytes in " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (!hasMagic(buffer, 0) || !hasMagic(buffer, buffer.limit() - MAGIC.length)) {
+            throw new IOException("not a complete configuration snapshot: " + file);
+        }
+        final int fileTable = buffer.getInt(buffer.limit() - FOOTER_LENGTH);
+        final int groupTable = buffer.getInt(buffer.limit() - FOOTER_LENGTH + 4);
+        if (!isTable(buffer, fileTable) || !isTable(buffer, groupTable)) {
+            throw new IOException("corrupted configuration snapshot tables: " + file);
+        }
+        return new ConfigurationSnapshot(buffer.getLong(MAGIC.length), buffer, fileTable, groupTable);
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer, int position) {
+        final byte[] magic = new byte[MAGIC.length];
+        final ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(magic);
+        return Arrays.equals(magic, MAGIC);
+    }
+
+    private static boolean isTable(ByteBuffer buffer, int position) {
+        if (position < HEADER_LENGTH || position > buffer.limit() - FOOTER_LENGTH - 4) {
+            return false;
+        }
+        final int capacity = buffer.getInt(position);
+        return capacity > 0 && Integer.bitCount(capacity) == 1 && capacity <= (buffer.limit() - FOOTER_LENGTH - 4 - position) / 4;
+    }
+
+    /**
+     * @return id of the configuration change the snapshot was taken at
+     */
+    public long getChangeId() {
+        return changeId;
+    }
+
+    /**
+     * @return files of the given type and tenant, ordered as in database
+     */
+    public List<BonitaConfiguration> getConfigurations(ConfigurationType type, long tenantId) {
+        final List<ConfigurationFile> files = getConfigurationFiles(type, tenantId);
+        final List<BonitaConfiguration> configurations = new ArrayList<>(files.size());
+        for (ConfigurationFile file : files) {
+            configurations.add(file.toBonitaConfiguration());
+        }
+        return configurations;
+    }
+
+    /**
+     * @return the file, or null if there is no such file in the snapshot
+     */
+    public BonitaConfiguration getConfiguration(ConfigurationType type, long tenantId, String resourceName) {
+        final ConfigurationFile file = getConfigurationFile(type, tenantId, resourceName);
+        return file == null ? null : file.toBonitaConfiguration();
+    }
+
+    /**
+     * @return files of the given type and tenant, ordered as in database, their contents being read-only views of the mapped snapshot
+     */
+    public List<ConfigurationFile> getConfigurationFiles(ConfigurationType type, long tenantId) {
+        final byte[] typeBytes = type.name().getBytes(UTF_8);
+        final int group = lookup(groupTable, hash(tenantId, typeBytes, null), tenantId, typeBytes, null);
+        if (group == EMPTY_SLOT) {
+            return Collections.emptyList();
+        }
+        int position = group + 8 + 4 + typeBytes.length;
+        final int count = buffer.getInt(position);
+        final List<ConfigurationFile> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            position += 4;
+            files.add(toConfigurationFile(type, tenantId, buffer.getInt(position)));
+        }
+        return files;
+    }
+
+    /**
+     * @return the file, its content being a read-only view of the mapped snapshot, or null if there is no such file in the snapshot
+     */
+    public ConfigurationFile getConfigurationFile(ConfigurationType type, long tenantId, String resourceName) {
+        final int file = lookupFile(type, tenantId, resourceName);
+        return file == EMPTY_SLOT ? null : toConfigurationFile(type, tenantId, file);
+    }
+
+    /**
+     * @return a read-only view of the file content in the mapped snapshot, or null if there is no such file in the snapshot
+     */
+    public ByteBuffer getContent(ConfigurationType type, long tenantId, String resourceName) {
+        final ConfigurationFile file = getConfigurationFile(type, tenantId, resourceName);
+        return file == null ? null : file.getContent();
+    }
+
+    private int lookupFile(ConfigurationType type, long tenantId, String resourceName) {
+        final byte[] typeBytes = type.name().getBytes(UTF_8);
+        final byte[] nameBytes = resourceName.getBytes(UTF_8);
+        return lookup(fileTable, hash(tenantId, typeBytes, nameBytes), tenantId, typeBytes, nameBytes);
+    }
+
+    /**
+     * @return offset of the file, or group when name is null, having the given key, or {@link #EMPTY_SLOT} if there is none
+     */
+    private int lookup(int table, int hash, long tenantId, byte[] type, byte[] name) {
+        final int mask = buffer.getInt(table) - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            final int entry = buffer.getInt(table + 4 + slot * 4);
+            if (entry == EMPTY_SLOT || buffer.getLong(entry) == tenantId && matches(entry, type, name)) {
+                return entry;
+            }
+        }
+    }
+
+    private boolean matches(int entry, byte[] type, byte[] name) {
+        // files have their content offset and length between tenant id and type
+        int position = name == null ? entry + 8 : entry + 16;
+        if (!bytesAt(position, type)) {
+            return false;
+        }
+        position += 4 + type.length;
+        return name == null || bytesAt(position, name);
+    }
+
+    private boolean bytesAt(int position, byte[] expected) {
+        if (buffer.getInt(position) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(position + 4 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ConfigurationFile toConfigurationFile(ConfigurationType type, long tenantId, int file) {
+        final ByteBuffer source = buffer.duplicate();
+        source.position(file + 8);
+        final int contentOffset = source.getInt();
+        final int contentLength = source.getInt();
+        source.position(source.position() + 4 + source.getInt(source.position()));
+        final byte[] name = new byte[source.getInt()];
+        source.get(name);
+        source.limit(contentOffset + contentLength);
+        source.position(contentOffset);
+        return ConfigurationFile.of(type, tenantId, new String(name, UTF_8), source);
+    }
+
+    /**
+     * hash of the UTF-8 bytes of the key, so that it does not depend on the JVM reading the snapshot
+     */
+    private static int hash(long tenantId, byte[] type, byte[] name) {
+        int hash = (int) (tenantId ^ tenantId >>> 32);
+        hash = 31 * hash + Arrays.hashCode(type);
+        if (name != null) {
+            hash = 31 * hash + Arrays.hashCode(name);
+        }
+        return hash ^ hash >>> 16;
+    }
+
+    /**
+     * Writes a snapshot from files received one by one, as given by
+     * {@link org.bonitasoft.platform.configuration.ConfigurationService#streamAllConfiguration(FullBonitaConfigurationConsumer, int)}.
+     * The snapshot is written next to the target file and only replaces it when {@link #commit()} is called, so that processes having the
+     * previous snapshot mapped keep reading it unchanged.
+     */
+    public static class Writer implements FullBonitaConfigurationConsumer, Closeable {
+
+        private final Path file;
+        private final Path stagingFile;
+        private final DataOutputStream outputStream;
+        private final Map<String, List<Entry>> entries = new LinkedHashMap<>();
+        private int entryCount;
+        private long position;
+        private boolean committed;
+
+        public Writer(Path file, long changeId) throws IOException {
+            this.file = file;
+            this.stagingFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".writing");
+            this.outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(stagingFile)));
+            outputStream.write(MAGIC);
+            outputStream.writeLong(changeId);
+            position = HEADER_LENGTH;
+        }
+
+        @Override
+        public void accept(FullBonitaConfiguration fullBonitaConfiguration) throws PlatformException {
+            final byte[] content = fullBonitaConfiguration.getResourceContent();
+            if (position + content.length > Integer.MAX_VALUE) {
+                throw new PlatformException("configuration is too large to be written in a snapshot");
+            }
+            try {
+                outputStream.write(content);
+            } catch (IOException e) {
+                throw new PlatformException(e);
+            }
+            // only the keys are kept in memory, contents are released once written
+            final Entry entry = new Entry(fullBonitaConfiguration.getTenantId(), fullBonitaConfiguration.getConfigurationType().getBytes(UTF_8),
+                    fullBonitaConfiguration.getResourceName().getBytes(UTF_8), (int) position, content.length);
+            final String group = entry.tenantId + "/" + fullBonitaConfiguration.getConfigurationType();
+            if (!entries.containsKey(group)) {
+                entries.put(group, new ArrayList<Entry>());
+            }
+            entries.get(group).add(entry);
+            entryCount++;
+            position += content.length;
+        }
+
+        /**
+         * Writes the tables and replaces the target file by the complete snapshot.
+         *
+         * @throws IOException if the snapshot cannot be written, or is too large
+         */
+        public void commit() throws IOException {
+            final int[] files = new int[tableCapacity(entryCount)];
+            for (List<Entry> groupEntries : entries.values()) {
+                for (Entry entry : groupEntries) {
+                    entry.position = (int) position;
+                    outputStream.writeLong(entry.tenantId);
+                    outputStream.writeInt(entry.offset);
+                    outputStream.writeInt(entry.length);
+                    writeBytes(entry.type);
+                    writeBytes(entry.name);
+                    put(files, hash(entry.tenantId, entry.type, entry.name), entry.position);
+                    position += 8 + 4 + 4 + 4 + entry.type.length + 4 + entry.name.length;
+                }
+            }
+            final int[] groups = new int[tableCapacity(entries.size())];
+            for (List<Entry> groupEntries : entries.values()) {
+                final Entry first = groupEntries.get(0);
+                put(groups, hash(first.tenantId, first.type, null), (int) position);
+                outputStream.writeLong(first.tenantId);
+                writeBytes(first.type);
+                outputStream.writeInt(groupEntries.size());
+                for (Entry entry : groupEntries) {
+                    outputStream.writeInt(entry.position);
+                }
+                position += 8 + 4 + first.type.length + 4 + 4 * groupEntries.size();
+            }
+            final long fileTable = position;
+            final long groupTable = fileTable + 4 + 4 * files.length;
+            if (groupTable + 4 + 4 * groups.length + FOOTER_LENGTH > Integer.MAX_VALUE) {
+                throw new IOException("configuration is too large to be written in a snapshot");
+            }
+            writeTable(files);
+            writeTable(groups);
+            outputStream.writeInt((int) fileTable);
+            outputStream.writeInt((int) groupTable);
+            outputStream.write(MAGIC);
+            outputStream.close();
+            Files.move(stagingFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        private static int tableCapacity(int size) {
+            return Integer.highestOneBit(Math.max(size, 1)) * 4;
+        }
+
+        private static void put(int[] table, int hash, int entry) {
+            final int mask = table.length - 1;
+            int slot = hash & mask;
+            while (table[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entry;
+        }
+
+        private void writeTable(int[] table) throws IOException {
+            outputStream.writeInt(table.length);
+            for (int entry : table) {
+                outputStream.writeInt(entry);
+            }
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            outputStream.writeInt(bytes.length);
+            outputStream.write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                outputStream.close();
+                Files.deleteIfExists(stagingFile);
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final long tenantId;
+        private final byte[] type;
+        private final byte[] name;
+        private final int offset;
+        private final int length;
+        private int position;
+
+        private Entry(long tenantId, byte[] type, byte[] name, int offset, int length) {
+            this.tenantId = tenantId;
+            this.type = type;
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes the content stored in column <code>resource_content</code> of table <code>configuration</code>.
+ * <p>
+ * When system property {@value #COMPRESSION} is set to <code>true</code>, content is stored as a header byte <code>0x00</code>
+ * followed by the gzip of the content, unless compression does not make it smaller. Content is read back whatever the format it was
+ * stored with, so rows written before compression was enabled, or with compression disabled, remain readable.
+ * <p>
+ * Column <code>resource_hash</code> is always computed on the uncompressed content, whereas the length of a
+ * {@link org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor} is the stored length.
+ */
+public final class ContentCompression {
+
+    /**
+     * system property to enable compression of stored configuration content
+     */
+    public static final String COMPRESSION = "org.bonitasoft.platform.setup.compression";
+
+    static final byte COMPRESSED_HEADER = 0x00;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private ContentCompression() {
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(COMPRESSION);
+    }
+
+    /**
+     * @param content resource content
+     * @return content to store, compressed if compression is enabled and makes it smaller
+     */
+    public static byte[] encode(byte[] content) {
+        return encode(content, isEnabled());
+    }
+
+    static byte[] encode(byte[] content, boolean compress) {
+        if (content == null) {
+            return null;
+        }
+        // uncompressed content that looks compressed is always compressed, so that decode gives it back unchanged
+        if (!compress && !isCompressed(content)) {
+            return content;
+        }
+        final byte[] compressed = compress(content);
+        if (compressed.length >= content.length && !isCompressed(content)) {
+            return content;
+        }
+        return compressed;
+    }
+
+    /**
+     * @param storedContent content as stored in database
+     * @return uncompressed resource content
+     */
+    public static byte[] decode(byte[] storedContent) {
+        if (storedContent == null || !isCompressed(storedContent)) {
+            return storedContent;
+        }
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(storedContent, 1, storedContent.length - 1))) {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(storedContent.length * 4);
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("unable to uncompress configuration content", e);
+        }
+    }
+
+    static boolean isCompressed(byte[] storedContent) {
+        return storedContent.length > 2 && storedContent[0] == COMPRESSED_HEADER && storedContent[1] == (byte) GZIP_MAGIC
+                && storedContent[2] == (byte) (GZIP_MAGIC >> 8);
+    }
+
+    private static byte[] compress(byte[] content) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(content.length / 4 + 32);
+        outputStream.write(COMPRESSED_HEADER);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(content);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw IOException
+            throw new IllegalStateException(e);
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationDescriptorRowMapper;
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationHistoryCopier;
+import org.bonitasoft.platform.configuration.impl.ConfigurationRevisionRowMapper;
+import org.bonitasoft.platform.configuration.impl.FullBonitaConfigurationRowMapper;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+/**
+ * Records the current configuration as a new revision, see {@link BonitaConfigurationHistoryCopier}.
+ * Only files whose content changed since the latest revision are added to the history, and each distinct content is stored once.
+ * When nothing changed since the latest revision, no revision is created and the latest one is returned.
+ * The revision number is taken from a counter, see {@link ConfigurationRevisionRowMapper}, so concurrent revisions wait for each other.
+ */
+public class CreateConfigurationRevisionInTransaction implements TransactionCallback<Long> {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(CreateConfigurationRevisionInTransaction.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final String description;
+
+    public CreateConfigurationRevisionInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, String description) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.description = description;
+    }
+
+    @Override
+    public Long doInTransaction(TransactionStatus status) {
+        final long revision = nextRevision();
+        fillMissingHashes();
+
+        storeNewContents();
+        final int deleted = jdbcTemplate.update(BonitaConfigurationHistoryCopier.INSERT_DELETED_FILES_HISTORY, revision);
+        final int changed = jdbcTemplate.update(BonitaConfigurationHistoryCopier.INSERT_CHANGED_FILES_HISTORY, revision);
+        if (revision > 1 && deleted == 0 && changed == 0) {
+            // counter row is still locked by this transaction, so no other revision took a number meanwhile
+            jdbcTemplate.update(ConfigurationRevisionRowMapper.DECREMENT_LAST_REVISION);
+            LOGGER.debug("configuration unchanged since revision " + (revision - 1));
+            return revision - 1;
+        }
+        jdbcTemplate.update(ConfigurationRevisionRowMapper.INSERT_REVISION, revision, System.currentTimeMillis(), description);
+        LOGGER.debug("configuration revision " + revision + " created: " + changed + " files changed, " + deleted + " files deleted");
+        return revision;
+    }
+
+    private long nextRevision() {
+        if (jdbcTemplate.update(ConfigurationRevisionRowMapper.INCREMENT_LAST_REVISION) == 0) {
+            // counter row is created by initTables.sql, but may be missing from a database created by an older version
+            jdbcTemplate.update(ConfigurationRevisionRowMapper.INSERT_FIRST_REVISION);
+        }
+        return jdbcTemplate.queryForObject(ConfigurationRevisionRowMapper.SELECT_LAST_REVISION, Long.class);
+    }
+
+    /**
+     * Contents are streamed to compute their hash, only the hashes are kept, then stored in batches, see {@link ConfigurationBatches}.
+     */
+    private void fillMissingHashes() {
+        final List<BonitaConfigurationDescriptor> hashed = new ArrayList<>();
+        final FullBonitaConfigurationRowMapper rowMapper = new FullBonitaConfigurationRowMapper();
+        jdbcTemplate.query(new PreparedStatementCreator() {
+
+            @Override
+            public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+                final PreparedStatement preparedStatement = con.prepareStatement(BonitaConfigurationHistoryCopier.SELECT_CONFIGURATION_WITHOUT_HASH,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                preparedStatement.setFetchSize(dialect.getDefaultFetchSize());
+                return preparedStatement;
+            }
+        }, new RowCallbackHandler() {
+
+            private int rowNum = 0;
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                final FullBonitaConfiguration configuration = rowMapper.mapRow(rs, rowNum++);
+                hashed.add(new BonitaConfigurationDescriptor(configuration.getResourceName(), configuration.getConfigurationType(),
+                        configuration.getTenantId(), configuration.getResourceContent().length, ContentDigest.digest(configuration.getResourceContent())));
+            }
+        });
+        final int maxRows = ConfigurationBatches.getMaxRows(dialect);
+        for (int start = 0; start < hashed.size(); start += maxRows) {
+            final List<BonitaConfigurationDescriptor> batch = hashed.subList(start, Math.min(start + maxRows, hashed.size()));
+            jdbcTemplate.batchUpdate(BonitaConfigurationHistoryCopier.UPDATE_HASH, new BatchPreparedStatementSetter() {
+
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    final BonitaConfigurationDescriptor descriptor = batch.get(i);
+                    ps.setString(1, descriptor.getResourceHash());
+                    ps.setLong(2, descriptor.getTenantId());
+                    ps.setString(3, descriptor.getConfigurationType());
+                    ps.setString(4, descriptor.getResourceName());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+        }
+    }
+
+    private void storeNewContents() {
+        final Set<String> hashes = new HashSet<>();
+        final List<BonitaConfigurationDescriptor> toCopy = new ArrayList<>();
+        for (BonitaConfigurationDescriptor descriptor : jdbcTemplate.query(BonitaConfigurationHistoryCopier.SELECT_FILES_WITH_NEW_CONTENT,
+                new BonitaConfigurationDescriptorRowMapper())) {
+            // several files may share a content that is not stored yet
+            if (hashes.add(descriptor.getResourceHash())) {
+                toCopy.add(descriptor);
+            }
+        }
+        if (!toCopy.isEmpty()) {
+            jdbcTemplate.batchUpdate(BonitaConfigurationHistoryCopier.COPY_CONTENT, new BonitaConfigurationHistoryCopier(toCopy));
+        }
+    }
+}
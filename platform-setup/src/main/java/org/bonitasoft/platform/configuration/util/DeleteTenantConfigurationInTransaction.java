@@ -15,6 +15,7 @@ package org.bonitasoft.platform.configuration.util;
 
 import org.bonitasoft.platform.configuration.impl.BonitaConfigurationTenantCleaner;
 import org.bonitasoft.platform.configuration.impl.ConfigurationServiceImpl;
+import org.bonitasoft.platform.dialect.Dialect;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.TransactionStatus;
@@ -27,14 +28,14 @@ public class DeleteTenantConfigurationInTransaction extends TransactionCallbackW
 
 
     private final JdbcTemplate jdbcTemplate;
-    private final String dbVendor;
+    private final Dialect dialect;
     private final long tenantId;
 
     private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ConfigurationServiceImpl.class);
 
-    public DeleteTenantConfigurationInTransaction(JdbcTemplate jdbcTemplate, String dbVendor, long tenantId) {
+    public DeleteTenantConfigurationInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, long tenantId) {
         this.jdbcTemplate = jdbcTemplate;
-        this.dbVendor = dbVendor;
+        this.dialect = dialect;
         this.tenantId = tenantId;
     }
 
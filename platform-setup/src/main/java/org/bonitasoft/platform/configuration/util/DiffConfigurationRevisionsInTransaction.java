@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationDescriptorRowMapper;
+import org.bonitasoft.platform.configuration.impl.ConfigurationRevisionRowMapper;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.ConfigurationChangeReport;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+/**
+ * Lists files added, updated and deleted between two configuration revisions, comparing only hashes.
+ */
+public class DiffConfigurationRevisionsInTransaction implements TransactionCallback<ConfigurationChangeReport> {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(DiffConfigurationRevisionsInTransaction.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final long fromRevision;
+    private final long toRevision;
+
+    public DiffConfigurationRevisionsInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, long fromRevision, long toRevision) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.fromRevision = fromRevision;
+        this.toRevision = toRevision;
+    }
+
+    @Override
+    public ConfigurationChangeReport doInTransaction(TransactionStatus status) {
+        checkRevisionExists(jdbcTemplate, fromRevision);
+        checkRevisionExists(jdbcTemplate, toRevision);
+        final Map<String, BonitaConfigurationDescriptor> fromDescriptors = getDescriptors(fromRevision);
+        final ConfigurationChangeReport report = new ConfigurationChangeReport();
+        for (Map.Entry<String, BonitaConfigurationDescriptor> entry : getDescriptors(toRevision).entrySet()) {
+            final BonitaConfigurationDescriptor from = fromDescriptors.remove(entry.getKey());
+            if (from == null) {
+                report.getAdded().add(entry.getValue());
+            } else if (!from.getResourceHash().equals(entry.getValue().getResourceHash())) {
+                report.getUpdated().add(entry.getValue());
+            }
+        }
+        report.getDeleted().addAll(fromDescriptors.values());
+        LOGGER.debug("changes from revision " + fromRevision + " to revision " + toRevision + ": " + report.toString());
+        return report;
+    }
+
+    private Map<String, BonitaConfigurationDescriptor> getDescriptors(long revision) {
+        final Map<String, BonitaConfigurationDescriptor> descriptors = new LinkedHashMap<>();
+        for (BonitaConfigurationDescriptor descriptor : jdbcTemplate.query(
+                BonitaConfigurationDescriptorRowMapper.forDialect(BonitaConfigurationDescriptorRowMapper.SELECT_DESCRIPTORS_AT_REVISION, dialect),
+                new BonitaConfigurationDescriptorRowMapper(), revision)) {
+            descriptors.put(descriptor.getTenantId() + "/" + descriptor.getConfigurationType() + "/" + descriptor.getResourceName(), descriptor);
+        }
+        return descriptors;
+    }
+
+    static void checkRevisionExists(JdbcTemplate jdbcTemplate, long revision) {
+        if (jdbcTemplate.queryForObject(ConfigurationRevisionRowMapper.COUNT_REVISION, Integer.class, revision) == 0) {
+            throw new IllegalArgumentException("configuration revision " + revision + " does not exist");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+
+/**
+ * Writes the whole <code>configuration</code> table, including licenses, to a {@link ConfigurationArchive}.
+ * Descriptors are read first to write the manifest, then contents are streamed through a forward-only cursor, one archive entry per file.
+ * The output stream is finished but not closed.
+ */
+public class ExportConfigurationArchiveInTransaction extends TransactionCallbackWithoutResult {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ExportConfigurationArchiveInTransaction.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final int fetchSize;
+    private final OutputStream outputStream;
+
+    public ExportConfigurationArchiveInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, int fetchSize, OutputStream outputStream) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.fetchSize = fetchSize;
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    protected void doInTransactionWithoutResult(TransactionStatus status) {
+        final List<BonitaConfigurationDescriptor> descriptors = new GetAllConfigurationDescriptorsInTransaction(jdbcTemplate, dialect).doInTransaction(status);
+        final Map<String, String> expectedHashes = new HashMap<>();
+        for (BonitaConfigurationDescriptor descriptor : descriptors) {
+            expectedHashes.put(ConfigurationArchive.getEntryName(descriptor.getTenantId(), descriptor.getConfigurationType(), descriptor.getResourceName()),
+                    descriptor.getResourceHash() == null ? ConfigurationArchive.NO_HASH : descriptor.getResourceHash());
+        }
+        final ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        try {
+            zipOutputStream.putNextEntry(new ZipEntry(ConfigurationArchive.MANIFEST_ENTRY));
+            ConfigurationArchive.writeManifest(descriptors, zipOutputStream);
+            zipOutputStream.closeEntry();
+            new StreamAllConfigurationInTransaction(jdbcTemplate, dialect, fetchSize, new FullBonitaConfigurationConsumer() {
+
+                @Override
+                public void accept(FullBonitaConfiguration fullBonitaConfiguration) throws PlatformException {
+                    writeEntry(zipOutputStream, fullBonitaConfiguration, expectedHashes);
+                }
+            }).doInTransaction(status);
+            if (!expectedHashes.isEmpty()) {
+                throw new PlatformException("configuration was modified during export, " + expectedHashes.size() + " file(s) missing: "
+                        + expectedHashes.keySet());
+            }
+            zipOutputStream.finish();
+        } catch (IOException e) {
+            throw new ConfigurationArchive.ArchiveException(new PlatformException(e));
+        } catch (PlatformException e) {
+            throw new ConfigurationArchive.ArchiveException(e);
+        }
+        LOGGER.debug("exported " + descriptors.size() + " configuration files");
+    }
+
+    private void writeEntry(ZipOutputStream zipOutputStream, FullBonitaConfiguration fullBonitaConfiguration, Map<String, String> expectedHashes)
+            throws PlatformException {
+        final String entryName = ConfigurationArchive.getEntryName(fullBonitaConfiguration.getTenantId(), fullBonitaConfiguration.getConfigurationType(),
+                fullBonitaConfiguration.getResourceName());
+        final String expectedHash = expectedHashes.remove(entryName);
+        if (expectedHash == null
+                || !(ConfigurationArchive.NO_HASH.equals(expectedHash) || expectedHash.equals(ContentDigest.digest(fullBonitaConfiguration.getResourceContent())))) {
+            throw new PlatformException("configuration was modified during export: " + entryName);
+        }
+        try {
+            zipOutputStream.putNextEntry(new ZipEntry(entryName));
+            zipOutputStream.write(fullBonitaConfiguration.getResourceContent());
+            zipOutputStream.closeEntry();
+        } catch (IOException e) {
+            throw new PlatformException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.util.List;
+
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationDescriptorRowMapper;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+public class GetAllConfigurationDescriptorsInTransaction implements TransactionCallback<List<BonitaConfigurationDescriptor>> {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(GetAllConfigurationDescriptorsInTransaction.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+
+    public GetAllConfigurationDescriptorsInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    @Override
+    public List<BonitaConfigurationDescriptor> doInTransaction(TransactionStatus transactionStatus) {
+        LOGGER.debug("get all configuration descriptors");
+
+        final List<BonitaConfigurationDescriptor> descriptors = jdbcTemplate.query(
+                BonitaConfigurationDescriptorRowMapper.forDialect(BonitaConfigurationDescriptorRowMapper.SELECT_ALL_DESCRIPTORS, dialect),
+                new BonitaConfigurationDescriptorRowMapper());
+
+        LOGGER.debug("configuration descriptors found:" + descriptors.size());
+
+        return descriptors;
+    }
+
+}
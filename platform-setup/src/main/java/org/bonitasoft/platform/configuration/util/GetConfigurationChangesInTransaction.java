@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.util.List;
+
+import org.bonitasoft.platform.configuration.impl.ConfigurationChangeRowMapper;
+import org.bonitasoft.platform.configuration.model.ConfigurationChange;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+public class GetConfigurationChangesInTransaction implements TransactionCallback<List<ConfigurationChange>> {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(GetConfigurationChangesInTransaction.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final long changeId;
+
+    public GetConfigurationChangesInTransaction(JdbcTemplate jdbcTemplate, long changeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeId = changeId;
+    }
+
+    @Override
+    public List<ConfigurationChange> doInTransaction(TransactionStatus transactionStatus) {
+        LOGGER.debug("get configuration changes since change id:" + changeId);
+        return jdbcTemplate.query(ConfigurationChangeRowMapper.SELECT_CHANGES_SINCE, new ConfigurationChangeRowMapper(), changeId);
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.util.List;
+
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationRowMapper;
+import org.bonitasoft.platform.configuration.impl.ConfigurationServiceImpl;
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.ConfigurationProperties;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+/**
+ * Retrieves the parsed view of a <code>.properties</code> file. Its stored hash is read first, so that its content is only read when no view of
+ * the same content is cached.
+ */
+public class GetConfigurationPropertiesInTransaction implements TransactionCallback<ConfigurationProperties> {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long tenantId;
+    private final ConfigurationType type;
+    private final String resourceName;
+    private final ConfigurationPropertiesCache cache;
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ConfigurationServiceImpl.class);
+
+    public GetConfigurationPropertiesInTransaction(JdbcTemplate jdbcTemplate, long tenantId, ConfigurationType type, String resourceName,
+            ConfigurationPropertiesCache cache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tenantId = tenantId;
+        this.type = type;
+        this.resourceName = resourceName;
+        this.cache = cache;
+    }
+
+    @Override
+    public ConfigurationProperties doInTransaction(TransactionStatus status) {
+        LOGGER.debug("get configuration properties for type:" + type.name() + " resource:" + resourceName + " and tenant id:" + tenantId);
+
+        final List<String> hashes = jdbcTemplate.queryForList(BonitaConfigurationRowMapper.SELECT_RESOURCE_HASH,
+                new Object[] { tenantId, type.name(), resourceName }, String.class);
+        if (hashes.isEmpty()) {
+            return null;
+        }
+        final String contentHash = hashes.get(0);
+        if (contentHash != null) {
+            final ConfigurationProperties cached = cache.get(contentHash);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final List<BonitaConfiguration> bonitaConfigurations = jdbcTemplate.query(BonitaConfigurationRowMapper.SELECT_CONFIGURATION,
+                new Object[] { tenantId, type.name(), resourceName },
+                new BonitaConfigurationRowMapper());
+        if (bonitaConfigurations.isEmpty()) {
+            return null;
+        }
+        // a file stored without hash by an older version is hashed here
+        return cache.parse(contentHash, bonitaConfigurations.get(0).getResourceContent());
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.bonitasoft.platform.configuration.impl.ConfigurationFields.RESOURCE_HASH;
+import static org.bonitasoft.platform.configuration.impl.ConfigurationFields.RESOURCE_NAME;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationRowMapper;
+import org.bonitasoft.platform.configuration.impl.ConfigurationServiceImpl;
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.ModifiedConfigurations;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+/**
+ * Retrieves only configuration files whose content differs from the one known by the caller, and names of known files deleted in database.
+ * Hashes are compared first, so that resource contents are read only for modified files, with one query per
+ * {@value #MAX_NAMES_PER_QUERY} files.
+ * A file stored without hash is always considered as modified.
+ * When the tenant is overlaid, files of the tenant template that the tenant does not store are compared as if they were stored for the tenant.
+ */
+public class GetModifiedConfigurationsInTransaction implements TransactionCallback<ModifiedConfigurations> {
+
+    /**
+     * stays below the 1000 elements limit of IN lists on Oracle
+     */
+    public static final int MAX_NAMES_PER_QUERY = 500;
+
+    private static final long NON_TENANT_RESOURCE = 0;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long tenantId;
+    private final ConfigurationType type;
+    private final Map<String, String> knownHashes;
+    private final boolean overlaid;
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ConfigurationServiceImpl.class);
+
+    public GetModifiedConfigurationsInTransaction(JdbcTemplate jdbcTemplate, long tenantId, ConfigurationType type, Map<String, String> knownHashes,
+            boolean overlaid) {
+        if (overlaid && type.getTenantTemplateType() == null) {
+            throw new IllegalArgumentException("type " + type.name() + " has no tenant template");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.tenantId = tenantId;
+        this.type = type;
+        this.knownHashes = knownHashes == null ? Collections.<String, String> emptyMap() : knownHashes;
+        this.overlaid = overlaid;
+    }
+
+    @Override
+    public ModifiedConfigurations doInTransaction(TransactionStatus status) {
+        LOGGER.debug("get modified configurations for type:" + type.name() + " and tenant id:" + tenantId);
+
+        final Map<String, String> storedHashes = readStoredHashes(tenantId, type);
+        final Map<String, String> templateHashes = new LinkedHashMap<>();
+        if (overlaid) {
+            templateHashes.putAll(readStoredHashes(NON_TENANT_RESOURCE, type.getTenantTemplateType()));
+            templateHashes.keySet().removeAll(storedHashes.keySet());
+        }
+
+        final ModifiedConfigurations modifiedConfigurations = new ModifiedConfigurations();
+        for (String knownResourceName : new TreeSet<>(knownHashes.keySet())) {
+            if (!storedHashes.containsKey(knownResourceName) && !templateHashes.containsKey(knownResourceName)) {
+                modifiedConfigurations.getDeleted().add(knownResourceName);
+            }
+        }
+        final List<String> modifiedResourceNames = getModifiedResourceNames(storedHashes);
+        final List<String> modifiedTemplateResourceNames = getModifiedResourceNames(templateHashes);
+        LOGGER.debug("modified configurations found:" + modifiedResourceNames.toString() + ", from tenant template:" + modifiedTemplateResourceNames
+                + ", deleted:" + modifiedConfigurations.getDeleted());
+
+        final List<BonitaConfiguration> modified = modifiedConfigurations.getModified();
+        modified.addAll(readConfigurations(tenantId, type, modifiedResourceNames, storedHashes.size()));
+        if (!modifiedTemplateResourceNames.isEmpty()) {
+            // template files are returned as the tenant files they stand for
+            modified.addAll(readConfigurations(NON_TENANT_RESOURCE, type.getTenantTemplateType(), modifiedTemplateResourceNames, -1));
+            Collections.sort(modified, new Comparator<BonitaConfiguration>() {
+
+                @Override
+                public int compare(BonitaConfiguration configuration, BonitaConfiguration other) {
+                    return configuration.getResourceName().compareTo(other.getResourceName());
+                }
+            });
+        }
+        return modifiedConfigurations;
+    }
+
+    private Map<String, String> readStoredHashes(long tenantId, ConfigurationType type) {
+        final Map<String, String> storedHashes = new LinkedHashMap<>();
+        jdbcTemplate.query(BonitaConfigurationRowMapper.SELECT_RESOURCE_HASHES_FOR_TYPE,
+                new Object[] { tenantId, type.name() },
+                new RowCallbackHandler() {
+
+                    @Override
+                    public void processRow(ResultSet rs) throws SQLException {
+                        storedHashes.put(rs.getString(RESOURCE_NAME), rs.getString(RESOURCE_HASH));
+                    }
+                });
+        return storedHashes;
+    }
+
+    private List<String> getModifiedResourceNames(Map<String, String> storedHashes) {
+        final List<String> modifiedResourceNames = new ArrayList<>();
+        for (Map.Entry<String, String> storedHash : storedHashes.entrySet()) {
+            if (storedHash.getValue() == null || !storedHash.getValue().equals(knownHashes.get(storedHash.getKey()))) {
+                modifiedResourceNames.add(storedHash.getKey());
+            }
+        }
+        return modifiedResourceNames;
+    }
+
+    /**
+     * @param storedCount number of files stored for the tenant and type, so that they are all read in a single query when they are all modified,
+     *        or -1 to always read them by name
+     */
+    private List<BonitaConfiguration> readConfigurations(long tenantId, ConfigurationType type, List<String> resourceNames, int storedCount) {
+        if (resourceNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (resourceNames.size() == storedCount) {
+            return jdbcTemplate.query(BonitaConfigurationRowMapper.SELECT_CONFIGURATION_FOR_TYPE,
+                    new Object[] { tenantId, type.name() },
+                    new BonitaConfigurationRowMapper());
+        }
+        final List<BonitaConfiguration> configurations = new ArrayList<>();
+        for (int start = 0; start < resourceNames.size(); start += MAX_NAMES_PER_QUERY) {
+            final List<String> chunk = resourceNames.subList(start, Math.min(start + MAX_NAMES_PER_QUERY, resourceNames.size()));
+            final Object[] parameters = new Object[chunk.size() + 2];
+            parameters[0] = tenantId;
+            parameters[1] = type.name();
+            for (int i = 0; i < chunk.size(); i++) {
+                parameters[i + 2] = chunk.get(i);
+            }
+            configurations.addAll(jdbcTemplate.query(BonitaConfigurationRowMapper.selectConfigurationForNames(chunk.size()),
+                    parameters, new BonitaConfigurationRowMapper()));
+        }
+        return configurations;
+    }
+}
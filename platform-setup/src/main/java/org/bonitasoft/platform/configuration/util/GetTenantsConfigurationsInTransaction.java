@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.bonitasoft.platform.configuration.impl.ConfigurationFields.TENANT_ID;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationRowMapper;
+import org.bonitasoft.platform.configuration.impl.ConfigurationServiceImpl;
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+/**
+ * Retrieves the files of a type for several tenants, with one query per {@value #MAX_TENANTS_PER_QUERY} tenants.
+ * When tenants are overlaid, tenant template files are read once and completed by the files stored for each tenant.
+ */
+public class GetTenantsConfigurationsInTransaction implements TransactionCallback<Map<Long, List<BonitaConfiguration>>> {
+
+    /**
+     * stays below the 1000 elements limit of IN lists on Oracle
+     */
+    public static final int MAX_TENANTS_PER_QUERY = 500;
+
+    private static final long NON_TENANT_RESOURCE = 0;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConfigurationType type;
+    private final Collection<Long> tenantIds;
+    private final boolean overlaid;
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ConfigurationServiceImpl.class);
+
+    public GetTenantsConfigurationsInTransaction(JdbcTemplate jdbcTemplate, ConfigurationType type, Collection<Long> tenantIds, boolean overlaid) {
+        if (overlaid && type.getTenantTemplateType() == null) {
+            throw new IllegalArgumentException("type " + type.name() + " has no tenant template");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.type = type;
+        this.tenantIds = tenantIds;
+        this.overlaid = overlaid;
+    }
+
+    @Override
+    public Map<Long, List<BonitaConfiguration>> doInTransaction(TransactionStatus status) {
+        LOGGER.debug("get configurations for type:" + type.name() + " and tenant ids:" + tenantIds);
+
+        final List<Long> sortedTenantIds = new ArrayList<>(new TreeSet<>(tenantIds));
+        final Map<Long, List<BonitaConfiguration>> configurationsByTenant = new LinkedHashMap<>();
+        for (Long tenantId : sortedTenantIds) {
+            configurationsByTenant.put(tenantId, new ArrayList<BonitaConfiguration>());
+        }
+        for (int start = 0; start < sortedTenantIds.size(); start += MAX_TENANTS_PER_QUERY) {
+            final List<Long> chunk = sortedTenantIds.subList(start, Math.min(start + MAX_TENANTS_PER_QUERY, sortedTenantIds.size()));
+            final Object[] parameters = new Object[chunk.size() + 1];
+            parameters[0] = type.name();
+            for (int i = 0; i < chunk.size(); i++) {
+                parameters[i + 1] = chunk.get(i);
+            }
+            final BonitaConfigurationRowMapper rowMapper = new BonitaConfigurationRowMapper();
+            jdbcTemplate.query(BonitaConfigurationRowMapper.selectConfigurationForTenants(chunk.size()), parameters, new RowCallbackHandler() {
+
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    configurationsByTenant.get(rs.getLong(TENANT_ID)).add(rowMapper.mapRow(rs, rs.getRow()));
+                }
+            });
+        }
+        if (overlaid) {
+            overlayTemplate(configurationsByTenant);
+        }
+        return configurationsByTenant;
+    }
+
+    private void overlayTemplate(Map<Long, List<BonitaConfiguration>> configurationsByTenant) {
+        final List<BonitaConfiguration> templateConfigurations = jdbcTemplate.query(BonitaConfigurationRowMapper.SELECT_CONFIGURATION_FOR_TYPE,
+                new Object[] { NON_TENANT_RESOURCE, type.getTenantTemplateType().name() },
+                new BonitaConfigurationRowMapper());
+        for (Map.Entry<Long, List<BonitaConfiguration>> tenantConfigurations : configurationsByTenant.entrySet()) {
+            final TreeMap<String, BonitaConfiguration> byResourceName = new TreeMap<>();
+            for (BonitaConfiguration templateConfiguration : templateConfigurations) {
+                byResourceName.put(templateConfiguration.getResourceName(), templateConfiguration);
+            }
+            for (BonitaConfiguration tenantConfiguration : tenantConfigurations.getValue()) {
+                byResourceName.put(tenantConfiguration.getResourceName(), tenantConfiguration);
+            }
+            tenantConfigurations.setValue(new ArrayList<>(byResourceName.values()));
+        }
+    }
+}
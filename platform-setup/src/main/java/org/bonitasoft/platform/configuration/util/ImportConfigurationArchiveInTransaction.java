@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+
+/**
+ * Replaces the whole <code>configuration</code> table, including licenses, by the content of a {@link ConfigurationArchive}.
+ * Entries are streamed from the archive into JDBC batches, and checked against the manifest: any unexpected, corrupted or missing file
+ * rolls back the transaction. The input stream is not closed.
+ */
+public class ImportConfigurationArchiveInTransaction extends TransactionCallbackWithoutResult {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ImportConfigurationArchiveInTransaction.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final InputStream inputStream;
+
+    public ImportConfigurationArchiveInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, InputStream inputStream) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.inputStream = inputStream;
+    }
+
+    @Override
+    protected void doInTransactionWithoutResult(TransactionStatus status) {
+        try {
+            importArchive(status);
+        } catch (IOException e) {
+            throw new ConfigurationArchive.ArchiveException(new PlatformException(e));
+        } catch (PlatformException e) {
+            throw new ConfigurationArchive.ArchiveException(e);
+        }
+    }
+
+    private void importArchive(TransactionStatus status) throws IOException, PlatformException {
+        final ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+        final ZipEntry manifestEntry = zipInputStream.getNextEntry();
+        if (manifestEntry == null || !ConfigurationArchive.MANIFEST_ENTRY.equals(manifestEntry.getName())) {
+            throw new PlatformException("not a configuration archive: first entry must be " + ConfigurationArchive.MANIFEST_ENTRY);
+        }
+        final Map<String, ConfigurationArchive.ManifestEntry> manifest = ConfigurationArchive.readManifest(zipInputStream);
+        LOGGER.debug("import " + manifest.size() + " configuration files");
+        new DeleteAllConfigurationInTransaction(jdbcTemplate).doInTransaction(status);
+        final ConfigurationBatchWriter batchWriter = new ConfigurationBatchWriter(jdbcTemplate, dialect);
+        ZipEntry entry;
+        while ((entry = zipInputStream.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            final ConfigurationArchive.ManifestEntry manifestFile = manifest.remove(entry.getName());
+            if (manifestFile == null) {
+                throw new PlatformException("configuration archive entry is not listed in manifest: " + entry.getName());
+            }
+            final byte[] content = IOUtils.toByteArray(zipInputStream);
+            if (manifestFile.getResourceHash() != null && !manifestFile.getResourceHash().equals(ContentDigest.digest(content))) {
+                throw new PlatformException("configuration archive entry does not match its hash in manifest: " + entry.getName());
+            }
+            batchWriter.add(new FullBonitaConfiguration(manifestFile.getResourceName(), content, manifestFile.getConfigurationType(),
+                    manifestFile.getTenantId()));
+        }
+        if (!manifest.isEmpty()) {
+            throw new PlatformException("configuration archive is incomplete, " + manifest.size() + " file(s) missing: " + manifest.keySet());
+        }
+        batchWriter.flush();
+        LOGGER.debug("imported " + batchWriter.getStoredFiles() + " configuration files");
+    }
+}
@@ -16,8 +16,6 @@ package org.bonitasoft.platform.configuration.util;
 import static java.nio.file.FileVisitResult.CONTINUE;
 import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
@@ -26,7 +24,6 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.Objects;
 
-import org.apache.commons.io.IOUtils;
 import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,18 +65,16 @@ public class LicensesResourceVisitor extends SimpleFileVisitor<Path> {
     public FileVisitResult visitFile(Path path, BasicFileAttributes basicFileAttributes) throws IOException {
         Objects.requireNonNull(path);
         Objects.requireNonNull(basicFileAttributes);
-        final File file = path.toFile();
-        if (isLicenseFile(file)) {
-            try (FileInputStream fileInputStream = new FileInputStream(file)) {
-                LOGGER.info("found license file: " + file.getName());
-                bonitaConfigurations.add(new BonitaConfiguration(file.getName(), IOUtils.toByteArray(fileInputStream)));
-            }
+        if (isLicenseFile(path, basicFileAttributes)) {
+            final String fileName = path.getFileName().toString();
+            LOGGER.info("found license file: " + fileName);
+            bonitaConfigurations.add(new BonitaConfiguration(fileName, ConfigurationFiles.readContent(path, basicFileAttributes.size())));
         }
         return CONTINUE;
     }
 
-    private boolean isLicenseFile(File file) {
-        return file.isFile() && file.getName().endsWith(".lic");
+    private boolean isLicenseFile(Path path, BasicFileAttributes basicFileAttributes) {
+        return basicFileAttributes.isRegularFile() && path.getFileName().toString().endsWith(".lic");
     }
 
 }
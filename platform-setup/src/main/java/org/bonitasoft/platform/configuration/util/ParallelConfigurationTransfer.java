@@ -0,0 +1,528 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bonitasoft.platform.configuration.impl.FullBonitaConfigurationRowMapper;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Pushes and pulls configuration files partitioned by tenant, running partitions concurrently on at most <code>parallelism</code> threads.
+ * Each thread runs its own transactions, so it uses its own connection.
+ * <p>
+ * Push streams the files of a folder: the calling thread scans it and hands each tenant to one thread, chosen when the tenant is first seen as
+ * the one that received the fewest files so far. Each thread holds at most a queue and a JDBC batch of files. Push is either:
+ * <ul>
+ * <li>atomic: each thread stores its tenants in a single transaction. Transactions wait for each other before committing, and all of them roll
+ * back if one fails. This keeps all-or-nothing semantics as long as commits themselves succeed, but holds locks until all threads are done.</li>
+ * <li>per tenant: each tenant is stored in its own transaction. Tenants that failed are reported, the others are committed.</li>
+ * </ul>
+ * A thread waits at most <code>timeoutMillis</code> for files, or for the other transactions to commit, then rolls back. A push using more threads
+ * than the connection pool provides therefore fails instead of waiting forever for connections held by the waiting threads.
+ * <p>
+ * Each transaction records a change of the tenants it stores in the configuration change feed, so committed tenants are always seen as changed,
+ * even when other transactions fail.
+ * Pull reads each tenant in its own read-only transaction, so files of different tenants may come from different database states.
+ */
+public class ParallelConfigurationTransfer {
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 60000;
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ParallelConfigurationTransfer.class);
+
+    /**
+     * marks the end of the files of a thread in its queue, compared by identity
+     */
+    private static final FullBonitaConfiguration END_OF_FILES = new FullBonitaConfiguration("", new byte[0], null, null);
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Dialect dialect;
+    private final int parallelism;
+    private final long timeoutMillis;
+
+    public ParallelConfigurationTransfer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Dialect dialect, int parallelism) {
+        this(jdbcTemplate, transactionTemplate, dialect, parallelism, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param timeoutMillis maximum time a pushing thread waits for files, or for the other transactions, before rolling back
+     */
+    public ParallelConfigurationTransfer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Dialect dialect, int parallelism,
+            long timeoutMillis) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be strictly positive, was " + parallelism);
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeout must be strictly positive, was " + timeoutMillis);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dialect = dialect;
+        this.parallelism = parallelism;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @param configurationRootFolder folder to store, scanned while files are stored
+     * @param atomic true to roll back every tenant if one fails, false to commit each tenant on its own
+     * @throws PlatformException if the folder could not be read, or if storing at least one tenant failed
+     */
+    public void storeAll(final Path configurationRootFolder, final ConfigurationFolderScanner scanner, boolean atomic) throws PlatformException {
+        LOGGER.info("pushing configuration of folder " + configurationRootFolder + " on " + parallelism + " thread(s)"
+                + (atomic ? "" : ", one transaction per tenant"));
+        store(new FileSource() {
+
+            @Override
+            public void read(FullBonitaConfigurationConsumer consumer) throws IOException {
+                scanner.scan(configurationRootFolder, consumer);
+            }
+        }, atomic);
+    }
+
+    /**
+     * @param bonitaConfigurations files to store
+     * @param atomic true to roll back every tenant if one fails, false to commit each tenant on its own
+     * @throws PlatformException if storing at least one tenant failed
+     */
+    public void storeAll(final List<FullBonitaConfiguration> bonitaConfigurations, boolean atomic) throws PlatformException {
+        store(new FileSource() {
+
+            @Override
+            public void read(FullBonitaConfigurationConsumer consumer) throws IOException {
+                for (FullBonitaConfiguration bonitaConfiguration : bonitaConfigurations) {
+                    try {
+                        consumer.accept(bonitaConfiguration);
+                    } catch (PlatformException e) {
+                        throw new AllConfigurationResourceVisitor.ConsumerIOException(e);
+                    }
+                }
+            }
+        }, atomic);
+    }
+
+    private void store(FileSource source, boolean atomic) throws PlatformException {
+        final Push push = new Push(atomic);
+        try {
+            source.read(push);
+            push.endOfFiles();
+        } catch (AllConfigurationResourceVisitor.ConsumerIOException e) {
+            // dispatching stopped because the push was aborted, the cause is already reported
+            LOGGER.debug("stopped reading files to push", e.getCause());
+        } catch (IOException e) {
+            push.abort();
+            push.addFailure("folder", e);
+        } finally {
+            push.commitBarrier.arriveAndDeregister();
+        }
+        push.awaitThreads();
+        if (!push.failures.isEmpty()) {
+            throw new PlatformException("unable to push configuration of " + push.failures.keySet(), push.failures.values().iterator().next());
+        }
+    }
+
+    /**
+     * State of a push. Files are dispatched by the calling thread to the queues of the pushing threads, started when needed.
+     */
+    private final class Push implements FullBonitaConfigurationConsumer {
+
+        private final boolean atomic;
+        private final ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        private final List<BlockingQueue<FullBonitaConfiguration>> queues = new ArrayList<>();
+        private final List<Future<Void>> threads = new ArrayList<>();
+        private final List<Integer> fileCounts = new ArrayList<>();
+        private final Map<Long, Integer> threadOfTenant = new LinkedHashMap<>();
+        /**
+         * the calling thread stays registered until all files are dispatched, so that transactions cannot commit before every thread is started
+         */
+        private final Phaser commitBarrier = new Phaser(1);
+        /**
+         * set when pushing threads must roll back and stop: an atomic transaction failed, the folder could not be read, or a thread timed out
+         */
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private final Map<String, Exception> failures = new LinkedHashMap<>();
+
+        private Push(boolean atomic) {
+            this.atomic = atomic;
+        }
+
+        @Override
+        public void accept(FullBonitaConfiguration bonitaConfiguration) throws PlatformException {
+            Integer thread = threadOfTenant.get(bonitaConfiguration.getTenantId());
+            if (thread == null) {
+                thread = getThreadForNewTenant();
+                threadOfTenant.put(bonitaConfiguration.getTenantId(), thread);
+            }
+            fileCounts.set(thread, fileCounts.get(thread) + 1);
+            put(queues.get(thread), bonitaConfiguration);
+        }
+
+        /**
+         * @return a new thread while there are less than <code>parallelism</code> threads, then the thread that received the fewest files
+         */
+        private int getThreadForNewTenant() {
+            if (queues.size() < parallelism) {
+                final BlockingQueue<FullBonitaConfiguration> queue = new ArrayBlockingQueue<>(ConfigurationBatches.getMaxRows(dialect));
+                queues.add(queue);
+                fileCounts.add(0);
+                commitBarrier.register();
+                threads.add(executorService.submit(atomic ? new AtomicPushThread(this, queue) : new PerTenantPushThread(this, queue)));
+                return queues.size() - 1;
+            }
+            int leastLoaded = 0;
+            for (int thread = 1; thread < fileCounts.size(); thread++) {
+                if (fileCounts.get(thread) < fileCounts.get(leastLoaded)) {
+                    leastLoaded = thread;
+                }
+            }
+            return leastLoaded;
+        }
+
+        private void put(BlockingQueue<FullBonitaConfiguration> queue, FullBonitaConfiguration bonitaConfiguration) throws PlatformException {
+            final long deadline = System.currentTimeMillis() + timeoutMillis;
+            try {
+                while (!queue.offer(bonitaConfiguration, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (aborted.get()) {
+                        throw new PlatformException("push aborted");
+                    }
+                    if (System.currentTimeMillis() > deadline) {
+                        final PlatformException timeout = new PlatformException("files were not stored within " + timeoutMillis
+                                + " ms, parallelism may exceed the number of available connections");
+                        abort();
+                        addFailure("folder", timeout);
+                        throw timeout;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort();
+                addFailure("folder", e);
+                throw new PlatformException("push of configuration interrupted", e);
+            }
+        }
+
+        private void endOfFiles() throws PlatformException {
+            for (BlockingQueue<FullBonitaConfiguration> queue : queues) {
+                put(queue, END_OF_FILES);
+            }
+        }
+
+        /**
+         * @return the next file of the queue, or {@link #END_OF_FILES}
+         * @throws PushAbortedException if the push was aborted
+         * @throws PushTimeoutException if no file was received within the timeout, the push is then aborted
+         */
+        private FullBonitaConfiguration take(BlockingQueue<FullBonitaConfiguration> queue) {
+            final long deadline = System.currentTimeMillis() + timeoutMillis;
+            try {
+                FullBonitaConfiguration bonitaConfiguration;
+                while ((bonitaConfiguration = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                    if (aborted.get()) {
+                        throw new PushAbortedException();
+                    }
+                    if (System.currentTimeMillis() > deadline) {
+                        abort();
+                        throw new PushTimeoutException("no file received within " + timeoutMillis + " ms");
+                    }
+                }
+                return bonitaConfiguration;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort();
+                throw new PushTimeoutException("push of configuration interrupted");
+            }
+        }
+
+        private void abort() {
+            aborted.set(true);
+        }
+
+        private synchronized void addFailure(String description, Exception failure) {
+            LOGGER.error("unable to push configuration of " + description, failure);
+            failures.put(description, failure);
+        }
+
+        private void awaitThreads() throws PlatformException {
+            try {
+                for (Future<Void> thread : threads) {
+                    try {
+                        thread.get();
+                    } catch (ExecutionException e) {
+                        // pushing threads report their failures themselves, only errors are left
+                        if (e.getCause() instanceof Error) {
+                            throw (Error) e.getCause();
+                        }
+                        addFailure("push", e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort();
+                throw new PlatformException(e);
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Stores all files of its queue in one transaction, that commits only when the transactions of all other threads are done and none failed.
+     */
+    private final class AtomicPushThread implements Callable<Void> {
+
+        private final Push push;
+        private final BlockingQueue<FullBonitaConfiguration> queue;
+        private final Set<Long> tenantIds = new TreeSet<>();
+        private boolean arrived;
+
+        private AtomicPushThread(Push push, BlockingQueue<FullBonitaConfiguration> queue) {
+            this.push = push;
+            this.queue = queue;
+        }
+
+        @Override
+        public Void call() {
+            try {
+                transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                    @Override
+                    protected void doInTransactionWithoutResult(TransactionStatus status) {
+                        final ConfigurationBatchWriter batchWriter = new ConfigurationBatchWriter(jdbcTemplate, dialect);
+                        FullBonitaConfiguration bonitaConfiguration;
+                        while ((bonitaConfiguration = push.take(queue)) != END_OF_FILES) {
+                            tenantIds.add(bonitaConfiguration.getTenantId());
+                            batchWriter.add(bonitaConfiguration);
+                        }
+                        batchWriter.flush();
+                        if (!awaitOthers() || push.aborted.get()) {
+                            LOGGER.debug("rolling back, another transaction of the push failed");
+                            status.setRollbackOnly();
+                            return;
+                        }
+                        // after the barrier, as the change counter stays locked until commit
+                        for (Long tenantId : tenantIds) {
+                            RecordConfigurationChangeInTransaction.recordChange(jdbcTemplate, getChangedTenantId(tenantId), null);
+                        }
+                    }
+                });
+            } catch (PushAbortedException e) {
+                LOGGER.debug("rolled back, the push was aborted");
+            } catch (RuntimeException e) {
+                // also covers failures to begin the transaction
+                push.abort();
+                push.addFailure("tenants " + tenantIds, e);
+            } finally {
+                if (!arrived) {
+                    // so that other threads stop waiting for this one
+                    push.commitBarrier.arriveAndDeregister();
+                }
+            }
+            return null;
+        }
+
+        private boolean awaitOthers() {
+            arrived = true;
+            try {
+                push.commitBarrier.awaitAdvanceInterruptibly(push.commitBarrier.arriveAndDeregister(), timeoutMillis, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                push.abort();
+                return false;
+            } catch (TimeoutException e) {
+                push.abort();
+                push.addFailure("tenants " + tenantIds, new PlatformException("other transactions did not complete within " + timeoutMillis
+                        + " ms, parallelism may exceed the number of available connections", e));
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Stores each tenant of its queue in its own transaction. Files of a tenant are expected to be consecutive, as given by the folder scan.
+     */
+    private final class PerTenantPushThread implements Callable<Void> {
+
+        private final Push push;
+        private final BlockingQueue<FullBonitaConfiguration> queue;
+        /**
+         * next file to store, read ahead by the transaction of the previous tenant
+         */
+        private FullBonitaConfiguration next;
+
+        private PerTenantPushThread(Push push, BlockingQueue<FullBonitaConfiguration> queue) {
+            this.push = push;
+            this.queue = queue;
+        }
+
+        @Override
+        public Void call() {
+            try {
+                next = push.take(queue);
+                while (next != END_OF_FILES) {
+                    final FullBonitaConfiguration first = next;
+                    try {
+                        transactionTemplate.execute(new RecordConfigurationChangeInTransaction<>(jdbcTemplate, getChangedTenantId(first.getTenantId()),
+                                null, new TransactionCallbackWithoutResult() {
+
+                                    @Override
+                                    protected void doInTransactionWithoutResult(TransactionStatus status) {
+                                        final ConfigurationBatchWriter batchWriter = new ConfigurationBatchWriter(jdbcTemplate, dialect);
+                                        batchWriter.add(first);
+                                        while ((next = push.take(queue)) != END_OF_FILES && next.getTenantId().equals(first.getTenantId())) {
+                                            batchWriter.add(next);
+                                        }
+                                        batchWriter.flush();
+                                    }
+                                }));
+                    } catch (PushAbortedException | PushTimeoutException e) {
+                        throw e;
+                    } catch (RuntimeException e) {
+                        push.addFailure("tenant " + first.getTenantId(), e);
+                        while (next != END_OF_FILES && next.getTenantId().equals(first.getTenantId())) {
+                            next = push.take(queue);
+                        }
+                    }
+                }
+            } catch (PushAbortedException e) {
+                LOGGER.debug("stopped, the push was aborted");
+            } catch (PushTimeoutException e) {
+                push.addFailure(next == null || next == END_OF_FILES ? "folder" : "tenant " + next.getTenantId(), e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stops a pushing thread, and rolls back its transaction, when another thread aborted the push.
+     */
+    private static class PushAbortedException extends RuntimeException {
+    }
+
+    /**
+     * Stops a pushing thread, and rolls back its transaction, when it did not receive files in time.
+     */
+    private static class PushTimeoutException extends RuntimeException {
+
+        private PushTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Files to push, read by the calling thread.
+     */
+    private interface FileSource {
+
+        void read(FullBonitaConfigurationConsumer consumer) throws IOException;
+    }
+
+    /**
+     * Streams files of each tenant to the consumer. The consumer is called concurrently by several threads, never for the same tenant.
+     *
+     * @param fetchSize number of rows fetched per round-trip, see {@link StreamAllConfigurationInTransaction}
+     * @throws PlatformException if reading at least one tenant failed, or the consumer failed
+     */
+    public void streamAll(final FullBonitaConfigurationConsumer consumer, final int fetchSize) throws PlatformException {
+        final List<Long> tenantIds = jdbcTemplate.queryForList(FullBonitaConfigurationRowMapper.SELECT_TENANT_IDS, Long.class);
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        final List<String> descriptions = new ArrayList<>();
+        for (final Long tenantId : tenantIds) {
+            tasks.add(new Callable<Void>() {
+
+                @Override
+                public Void call() throws PlatformException {
+                    final TransactionTemplate readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(),
+                            transactionTemplate);
+                    readOnlyTransactionTemplate.setReadOnly(true);
+                    try {
+                        readOnlyTransactionTemplate.execute(new StreamAllConfigurationInTransaction(jdbcTemplate, dialect, fetchSize, consumer, tenantId));
+                    } catch (StreamAllConfigurationInTransaction.ConsumerException e) {
+                        throw e.getCause();
+                    }
+                    return null;
+                }
+            });
+            descriptions.add("tenant " + tenantId);
+        }
+        LOGGER.info("pulling configuration of " + tenantIds.size() + " tenant(s) on " + parallelism + " thread(s)");
+        runAll(tasks, descriptions, "pull");
+    }
+
+    /**
+     * platform files include tenant templates, that files of every tenant may be resolved from
+     */
+    private static Long getChangedTenantId(long tenantId) {
+        return tenantId == 0 ? null : tenantId;
+    }
+
+    private void runAll(List<Callable<Void>> tasks, List<String> descriptions, String operation) throws PlatformException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(tasks.size(), 1)));
+        try {
+            final List<Future<Void>> futures = new ArrayList<>(tasks.size());
+            for (Callable<Void> task : tasks) {
+                futures.add(executorService.submit(task));
+            }
+            final List<String> failures = new ArrayList<>();
+            Exception firstFailure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    LOGGER.error("unable to " + operation + " configuration of " + descriptions.get(i), e.getCause());
+                    failures.add(descriptions.get(i));
+                    if (firstFailure == null) {
+                        firstFailure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                }
+            }
+            if (firstFailure != null) {
+                throw new PlatformException("unable to " + operation + " configuration of " + failures, firstFailure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PlatformException(e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.sql.Types;
+import java.util.Objects;
+
+import org.bonitasoft.platform.configuration.impl.ConfigurationChangeRowMapper;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+/**
+ * Executes a write to configuration and adds it to the configuration change feed in the same transaction.
+ * The change id is taken after the write, so the counter row is locked only until the transaction commits, see
+ * {@link ConfigurationChangeRowMapper}.
+ * Only the latest {@value #DEFAULT_CHANGE_RETENTION} changes are kept by default, older ones are deleted when a change is recorded.
+ */
+public class RecordConfigurationChangeInTransaction<T> implements TransactionCallback<T> {
+
+    /**
+     * system property giving the number of latest changes kept in the feed. Changes are never deleted when not strictly positive.
+     */
+    public static final String CHANGE_RETENTION = "org.bonitasoft.platform.setup.change.retention";
+
+    static final long DEFAULT_CHANGE_RETENTION = 10000;
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(RecordConfigurationChangeInTransaction.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Long tenantId;
+    private final ConfigurationType type;
+    private final TransactionCallback<T> callback;
+
+    /**
+     * @param tenantId tenant whose files are written, or null for all tenants
+     * @param type type of written files, or null for all types
+     * @param callback write to execute
+     */
+    public RecordConfigurationChangeInTransaction(JdbcTemplate jdbcTemplate, Long tenantId, ConfigurationType type, TransactionCallback<T> callback) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tenantId = tenantId;
+        this.type = type;
+        this.callback = Objects.requireNonNull(callback, "callback");
+    }
+
+    @Override
+    public T doInTransaction(TransactionStatus status) {
+        LOGGER.debug("record configuration change for tenant id:" + tenantId + " and type:" + type);
+        final T result = callback.doInTransaction(status);
+        recordChange(jdbcTemplate, tenantId, type);
+        return result;
+    }
+
+    /**
+     * Adds a change to the feed in the current transaction, after the write it describes, and deletes changes older than the retention. The
+     * counter row stays locked until the transaction ends, so this must be the last statement of a transaction that waits for other ones.
+     *
+     * @param tenantId tenant whose files were written, or null for all tenants
+     * @param type type of written files, or null for all types
+     * @return id of the recorded change
+     */
+    public static long recordChange(JdbcTemplate jdbcTemplate, Long tenantId, ConfigurationType type) {
+        final long changeId = nextChangeId(jdbcTemplate);
+        jdbcTemplate.update(ConfigurationChangeRowMapper.INSERT_CHANGE, new Object[] { changeId, tenantId, type == null ? null : type.name(),
+                System.currentTimeMillis() }, new int[] { Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.BIGINT });
+        final long retention = Long.getLong(CHANGE_RETENTION, DEFAULT_CHANGE_RETENTION);
+        if (retention > 0 && changeId > retention) {
+            jdbcTemplate.update(ConfigurationChangeRowMapper.DELETE_CHANGES_UP_TO, changeId - retention);
+        }
+        return changeId;
+    }
+
+    private static long nextChangeId(JdbcTemplate jdbcTemplate) {
+        if (jdbcTemplate.update(ConfigurationChangeRowMapper.INCREMENT_LAST_CHANGE_ID) == 0) {
+            // counter row is created by initTables.sql, but may be missing from a database created by an older version
+            jdbcTemplate.update(ConfigurationChangeRowMapper.INSERT_FIRST_CHANGE_ID);
+            return 1L;
+        }
+        return jdbcTemplate.queryForObject(ConfigurationChangeRowMapper.SELECT_LAST_CHANGE_ID, Long.class);
+    }
+}
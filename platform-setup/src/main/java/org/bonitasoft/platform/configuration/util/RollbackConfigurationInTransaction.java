@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationCleaner;
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationHistoryCopier;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+/**
+ * Replaces the whole configuration by the one of a revision.
+ * The configuration before the rollback is recorded as a revision first, so that the rollback can itself be rolled back.
+ */
+public class RollbackConfigurationInTransaction implements TransactionCallback<Long> {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(RollbackConfigurationInTransaction.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final long revision;
+
+    public RollbackConfigurationInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, long revision) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.revision = revision;
+    }
+
+    @Override
+    public Long doInTransaction(TransactionStatus status) {
+        DiffConfigurationRevisionsInTransaction.checkRevisionExists(jdbcTemplate, revision);
+        new CreateConfigurationRevisionInTransaction(jdbcTemplate, dialect, "before rollback to revision " + revision).doInTransaction(status);
+        jdbcTemplate.update(BonitaConfigurationCleaner.DELETE_ALL_CONFIGURATION);
+        final int restored = jdbcTemplate.update(BonitaConfigurationHistoryCopier.RESTORE_REVISION, revision);
+        LOGGER.debug("rollback to revision " + revision + ": " + restored + " files restored");
+        return new CreateConfigurationRevisionInTransaction(jdbcTemplate, dialect, getDescription(revision)).doInTransaction(status);
+    }
+
+    /**
+     * @return description of the revision recording the configuration restored from a revision. When the rollback changes nothing, no such revision is
+     *         created, see {@link CreateConfigurationRevisionInTransaction}.
+     */
+    public static String getDescription(long revision) {
+        return "rollback to revision " + revision;
+    }
+}
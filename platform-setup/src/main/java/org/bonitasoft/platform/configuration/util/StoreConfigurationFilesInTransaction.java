@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.bonitasoft.platform.configuration.impl.ConfigurationFields.RESOURCE_HASH;
+import static org.bonitasoft.platform.configuration.impl.ConfigurationFields.RESOURCE_NAME;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationDescriptorCleaner;
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationRowMapper;
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.ConfigurationChangeReport;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+/**
+ * Stores some files written and deleted in a configuration folder, leaving all other files in database untouched.
+ * Files are grouped by tenant id and type, and each group is upserted through {@link StoreConfigurationInTransaction}. Files whose hash did
+ * not change are skipped, as are deleted files that are not in database.
+ */
+public class StoreConfigurationFilesInTransaction implements TransactionCallback<ConfigurationChangeReport> {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(StoreConfigurationFilesInTransaction.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final List<FullBonitaConfiguration> writtenFiles;
+    private final List<BonitaConfigurationDescriptor> deletedFiles;
+
+    public StoreConfigurationFilesInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, List<FullBonitaConfiguration> writtenFiles,
+            List<BonitaConfigurationDescriptor> deletedFiles) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.writtenFiles = writtenFiles;
+        this.deletedFiles = deletedFiles;
+    }
+
+    @Override
+    public ConfigurationChangeReport doInTransaction(TransactionStatus status) {
+        final Map<String, FileGroup> groups = new LinkedHashMap<>();
+        for (FullBonitaConfiguration writtenFile : writtenFiles) {
+            getGroup(groups, writtenFile.getTenantId(), writtenFile.getConfigurationType()).written.add(writtenFile);
+        }
+        for (BonitaConfigurationDescriptor deletedFile : deletedFiles) {
+            getGroup(groups, deletedFile.getTenantId(), deletedFile.getConfigurationType()).deleted.add(deletedFile);
+        }
+
+        final ConfigurationChangeReport report = new ConfigurationChangeReport();
+        for (FileGroup group : groups.values()) {
+            store(group, status, report);
+        }
+        LOGGER.debug("store configuration files: " + report.toString());
+        return report;
+    }
+
+    private void store(FileGroup group, TransactionStatus status, ConfigurationChangeReport report) {
+        final Map<String, String> storedHashes = getStoredHashes(group.tenantId, group.type);
+        final List<BonitaConfiguration> toStore = new ArrayList<>();
+        for (FullBonitaConfiguration writtenFile : group.written) {
+            final String hash = ContentDigest.digest(writtenFile.getResourceContent());
+            final BonitaConfigurationDescriptor descriptor = new BonitaConfigurationDescriptor(writtenFile.getResourceName(),
+                    writtenFile.getConfigurationType(), writtenFile.getTenantId(), writtenFile.getResourceContent().length, hash);
+            if (!storedHashes.containsKey(writtenFile.getResourceName())) {
+                report.getAdded().add(descriptor);
+                toStore.add(new BonitaConfiguration(writtenFile.getResourceName(), writtenFile.getResourceContent()));
+            } else if (!hash.equals(storedHashes.get(writtenFile.getResourceName()))) {
+                report.getUpdated().add(descriptor);
+                toStore.add(new BonitaConfiguration(writtenFile.getResourceName(), writtenFile.getResourceContent()));
+            }
+        }
+        final List<BonitaConfigurationDescriptor> toDelete = new ArrayList<>();
+        for (BonitaConfigurationDescriptor deletedFile : group.deleted) {
+            if (storedHashes.containsKey(deletedFile.getResourceName())) {
+                toDelete.add(deletedFile);
+            }
+        }
+        report.getDeleted().addAll(toDelete);
+
+        if (!toDelete.isEmpty()) {
+            jdbcTemplate.batchUpdate(BonitaConfigurationDescriptorCleaner.DELETE_CONFIGURATION, new BonitaConfigurationDescriptorCleaner(toDelete));
+        }
+        if (!toStore.isEmpty()) {
+            new StoreConfigurationInTransaction(jdbcTemplate, dialect, toStore, group.type, group.tenantId).doInTransaction(status);
+        }
+    }
+
+    private Map<String, String> getStoredHashes(long tenantId, ConfigurationType type) {
+        final Map<String, String> storedHashes = new HashMap<>();
+        jdbcTemplate.query(BonitaConfigurationRowMapper.SELECT_RESOURCE_HASHES_FOR_TYPE,
+                new Object[] { tenantId, type.name() },
+                new RowCallbackHandler() {
+
+                    @Override
+                    public void processRow(ResultSet rs) throws SQLException {
+                        storedHashes.put(rs.getString(RESOURCE_NAME), rs.getString(RESOURCE_HASH));
+                    }
+                });
+        return storedHashes;
+    }
+
+    private FileGroup getGroup(Map<String, FileGroup> groups, long tenantId, String configurationType) {
+        final String key = tenantId + "/" + configurationType;
+        FileGroup group = groups.get(key);
+        if (group == null) {
+            group = new FileGroup(tenantId, ConfigurationType.valueOf(configurationType));
+            groups.put(key, group);
+        }
+        return group;
+    }
+
+    private static class FileGroup {
+
+        private final long tenantId;
+        private final ConfigurationType type;
+        private final List<FullBonitaConfiguration> written = new ArrayList<>();
+        private final List<BonitaConfigurationDescriptor> deleted = new ArrayList<>();
+
+        private FileGroup(long tenantId, ConfigurationType type) {
+            this.tenantId = tenantId;
+            this.type = type;
+        }
+    }
+}
@@ -15,11 +15,10 @@ package org.bonitasoft.platform.configuration.util;
 
 import java.util.List;
 
-import org.bonitasoft.platform.configuration.impl.BonitaConfigurationPreparedStatementCleaner;
 import org.bonitasoft.platform.configuration.impl.BonitaConfigurationPreparedStatementSetter;
-import org.bonitasoft.platform.configuration.impl.ConfigurationServiceImpl;
 import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
 import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.dialect.Dialect;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.TransactionStatus;
@@ -34,15 +33,15 @@ public class StoreConfigurationInTransaction extends TransactionCallbackWithoutR
     private final List<BonitaConfiguration> bonitaConfigurations;
     private final ConfigurationType type;
     private final long tenantId;
-    private final String dbVendor;
+    private final Dialect dialect;
 
     private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(StoreConfigurationInTransaction.class);
 
-    public StoreConfigurationInTransaction(JdbcTemplate jdbcTemplate, String dbVendor, List<BonitaConfiguration> bonitaConfigurations, ConfigurationType type,
+    public StoreConfigurationInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, List<BonitaConfiguration> bonitaConfigurations, ConfigurationType type,
             long tenantId) {
 
         this.jdbcTemplate = jdbcTemplate;
-        this.dbVendor = dbVendor;
+        this.dialect = dialect;
         this.bonitaConfigurations = bonitaConfigurations;
         this.type = type;
         this.tenantId = tenantId;
@@ -50,16 +49,12 @@ public class StoreConfigurationInTransaction extends TransactionCallbackWithoutR
 
     @Override
     protected void doInTransactionWithoutResult(TransactionStatus status) {
-        LOGGER.debug(
-                "delete configurations for type:" + type.name() + " and tenant id:" + tenantId + " bonitaConfigurations:" + bonitaConfigurations.toString());
-
-        jdbcTemplate.batchUpdate(BonitaConfigurationPreparedStatementCleaner.DELETE_CONFIGURATION,
-                new BonitaConfigurationPreparedStatementCleaner(bonitaConfigurations, type, tenantId));
-
         LOGGER.debug(
                 "store configurations for type:" + type.name() + " and tenant id:" + tenantId + " bonitaConfigurations:" + bonitaConfigurations.toString());
-        jdbcTemplate.batchUpdate(BonitaConfigurationPreparedStatementSetter.INSERT_CONFIGURATION,
-                new BonitaConfigurationPreparedStatementSetter(bonitaConfigurations, dbVendor, type, tenantId));
+        for (List<BonitaConfiguration> batch : ConfigurationBatches.split(bonitaConfigurations, dialect)) {
+            jdbcTemplate.batchUpdate(dialect.getUpsertConfigurationQuery(),
+                    new BonitaConfigurationPreparedStatementSetter(batch, dialect, type, tenantId));
+        }
 
     }
 
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationDescriptorCleaner;
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationDescriptorRowMapper;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.ConfigurationChangeReport;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+/**
+ * Makes configuration in database identical to the files of a folder, excluding licenses, by writing only differences:
+ * new or modified files are upserted and files missing from the folder are deleted.
+ * Files are compared to the stored hashes while the folder is scanned, and modified ones are written in JDBC batches, so at most one batch of
+ * files is held in memory, whatever the size of the folder.
+ */
+public class StoreModifiedConfigurationInTransaction implements TransactionCallback<ConfigurationChangeReport> {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(StoreModifiedConfigurationInTransaction.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final Path configurationRootFolder;
+    private final ConfigurationFolderScanner scanner;
+
+    public StoreModifiedConfigurationInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, Path configurationRootFolder,
+            ConfigurationFolderScanner scanner) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.configurationRootFolder = configurationRootFolder;
+        this.scanner = scanner;
+    }
+
+    @Override
+    public ConfigurationChangeReport doInTransaction(TransactionStatus status) {
+        final Map<String, BonitaConfigurationDescriptor> storedDescriptors = new LinkedHashMap<>();
+        for (BonitaConfigurationDescriptor descriptor : jdbcTemplate.query(
+                BonitaConfigurationDescriptorRowMapper.forDialect(BonitaConfigurationDescriptorRowMapper.SELECT_ALL_DESCRIPTORS, dialect),
+                new BonitaConfigurationDescriptorRowMapper())) {
+            if (!ConfigurationType.LICENSES.name().equals(descriptor.getConfigurationType())) {
+                storedDescriptors.put(getKey(descriptor.getTenantId(), descriptor.getConfigurationType(), descriptor.getResourceName()), descriptor);
+            }
+        }
+
+        final ConfigurationChangeReport report = new ConfigurationChangeReport();
+        final ConfigurationBatchWriter batchWriter = new ConfigurationBatchWriter(jdbcTemplate, dialect);
+        try {
+            scanner.scan(configurationRootFolder, new FullBonitaConfigurationConsumer() {
+
+                @Override
+                public void accept(FullBonitaConfiguration bonitaConfiguration) {
+                    final String hash = ContentDigest.digest(bonitaConfiguration.getResourceContent());
+                    final BonitaConfigurationDescriptor stored = storedDescriptors.remove(getKey(bonitaConfiguration.getTenantId(),
+                            bonitaConfiguration.getConfigurationType(), bonitaConfiguration.getResourceName()));
+                    final BonitaConfigurationDescriptor descriptor = new BonitaConfigurationDescriptor(bonitaConfiguration.getResourceName(),
+                            bonitaConfiguration.getConfigurationType(), bonitaConfiguration.getTenantId(), bonitaConfiguration.getResourceContent().length,
+                            hash);
+                    if (stored == null) {
+                        batchWriter.add(bonitaConfiguration);
+                        report.getAdded().add(descriptor);
+                    } else if (!hash.equals(stored.getResourceHash())) {
+                        batchWriter.add(bonitaConfiguration);
+                        report.getUpdated().add(descriptor);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new StreamingStoreAllConfigurationInTransaction.IngestionException(new PlatformException(e));
+        }
+        batchWriter.flush();
+        report.getDeleted().addAll(storedDescriptors.values());
+
+        LOGGER.debug("store modified configurations: " + report.toString());
+        if (!report.getDeleted().isEmpty()) {
+            jdbcTemplate.batchUpdate(BonitaConfigurationDescriptorCleaner.DELETE_CONFIGURATION,
+                    new BonitaConfigurationDescriptorCleaner(report.getDeleted()));
+        }
+        return report;
+    }
+
+    private String getKey(Long tenantId, String configurationType, String resourceName) {
+        return tenantId + "/" + configurationType + "/" + resourceName;
+    }
+}
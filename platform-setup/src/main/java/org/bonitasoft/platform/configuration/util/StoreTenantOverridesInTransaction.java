@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.bonitasoft.platform.configuration.impl.ConfigurationFields.RESOURCE_HASH;
+import static org.bonitasoft.platform.configuration.impl.ConfigurationFields.RESOURCE_NAME;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationDescriptorCleaner;
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationPreparedStatementSetter;
+import org.bonitasoft.platform.configuration.impl.BonitaConfigurationRowMapper;
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+
+/**
+ * Stores files of a tenant type as overrides of its tenant template: a file identical to the template file of the same name is not stored for
+ * the tenant, and a previously stored override that became identical to the template is deleted.
+ */
+public class StoreTenantOverridesInTransaction extends TransactionCallbackWithoutResult {
+
+    private static final long NON_TENANT_RESOURCE = 0;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final List<BonitaConfiguration> bonitaConfigurations;
+    private final ConfigurationType type;
+    private final long tenantId;
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(StoreTenantOverridesInTransaction.class);
+
+    public StoreTenantOverridesInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, List<BonitaConfiguration> bonitaConfigurations,
+            ConfigurationType type, long tenantId) {
+        if (type.getTenantTemplateType() == null) {
+            throw new IllegalArgumentException("type " + type.name() + " has no tenant template");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.bonitaConfigurations = bonitaConfigurations;
+        this.type = type;
+        this.tenantId = tenantId;
+    }
+
+    @Override
+    protected void doInTransactionWithoutResult(TransactionStatus status) {
+        final Map<String, String> templateHashes = getTemplateHashes();
+        final List<BonitaConfiguration> overrides = new ArrayList<>();
+        final List<BonitaConfigurationDescriptor> sameAsTemplate = new ArrayList<>();
+        for (BonitaConfiguration bonitaConfiguration : bonitaConfigurations) {
+            final String templateHash = templateHashes.get(bonitaConfiguration.getResourceName());
+            if (templateHash != null && templateHash.equals(ContentDigest.digest(bonitaConfiguration.getResourceContent()))) {
+                sameAsTemplate.add(new BonitaConfigurationDescriptor(bonitaConfiguration.getResourceName(), type.name(), tenantId, 0, templateHash));
+            } else {
+                overrides.add(bonitaConfiguration);
+            }
+        }
+        LOGGER.debug("store overrides for type:" + type.name() + " and tenant id:" + tenantId + " overrides:" + overrides.toString()
+                + " same as template:" + sameAsTemplate.size());
+        if (!sameAsTemplate.isEmpty()) {
+            jdbcTemplate.batchUpdate(BonitaConfigurationDescriptorCleaner.DELETE_CONFIGURATION, new BonitaConfigurationDescriptorCleaner(sameAsTemplate));
+        }
+        for (List<BonitaConfiguration> batch : ConfigurationBatches.split(overrides, dialect)) {
+            jdbcTemplate.batchUpdate(dialect.getUpsertConfigurationQuery(),
+                    new BonitaConfigurationPreparedStatementSetter(batch, dialect, type, tenantId));
+        }
+    }
+
+    private Map<String, String> getTemplateHashes() {
+        final Map<String, String> templateHashes = new HashMap<>();
+        jdbcTemplate.query(BonitaConfigurationRowMapper.SELECT_RESOURCE_HASHES_FOR_TYPE,
+                new Object[] { NON_TENANT_RESOURCE, type.getTenantTemplateType().name() },
+                new RowCallbackHandler() {
+
+                    @Override
+                    public void processRow(ResultSet rs) throws SQLException {
+                        templateHashes.put(rs.getString(RESOURCE_NAME), rs.getString(RESOURCE_HASH));
+                    }
+                });
+        return templateHashes;
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.bonitasoft.platform.configuration.impl.FullBonitaConfigurationRowMapper;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+
+/**
+ * Reads all configuration files through a forward-only cursor, and hands them to a consumer one by one.
+ * At most one fetch of rows is held in memory, instead of the whole table.
+ * Files can be restricted to those of a single tenant id, platform files having tenant id 0.
+ */
+public class StreamAllConfigurationInTransaction extends TransactionCallbackWithoutResult {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(StreamAllConfigurationInTransaction.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+    private final FullBonitaConfigurationConsumer consumer;
+    private final Long tenantId;
+
+    /**
+     * @param fetchSize number of rows fetched per round-trip. If not strictly positive, the dialect default is used.
+     */
+    public StreamAllConfigurationInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, int fetchSize, FullBonitaConfigurationConsumer consumer) {
+        this(jdbcTemplate, dialect, fetchSize, consumer, null);
+    }
+
+    /**
+     * @param tenantId tenant id of the files to read, or null to read all files
+     */
+    public StreamAllConfigurationInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, int fetchSize, FullBonitaConfigurationConsumer consumer,
+            Long tenantId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize > 0 ? fetchSize : dialect.getDefaultFetchSize();
+        this.consumer = consumer;
+        this.tenantId = tenantId;
+    }
+
+    int getFetchSize() {
+        return fetchSize;
+    }
+
+    @Override
+    protected void doInTransactionWithoutResult(TransactionStatus status) {
+        LOGGER.debug("stream configurations of tenant id:" + (tenantId == null ? "all" : tenantId) + " with fetch size:" + fetchSize);
+        final FullBonitaConfigurationRowMapper rowMapper = new FullBonitaConfigurationRowMapper();
+        jdbcTemplate.query(new PreparedStatementCreator() {
+
+            @Override
+            public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+                final PreparedStatement preparedStatement = con.prepareStatement(
+                        tenantId == null ? FullBonitaConfigurationRowMapper.SELECT_CONFIGURATION : FullBonitaConfigurationRowMapper.SELECT_TENANT_CONFIGURATION,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                preparedStatement.setFetchSize(fetchSize);
+                if (tenantId != null) {
+                    preparedStatement.setLong(1, tenantId);
+                }
+                return preparedStatement;
+            }
+        }, new RowCallbackHandler() {
+
+            private int rowNum = 0;
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                try {
+                    consumer.accept(rowMapper.mapRow(rs, rowNum++));
+                } catch (PlatformException e) {
+                    throw new ConsumerException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Carries the exception thrown by the consumer through the transaction template.
+     */
+    public static class ConsumerException extends RuntimeException {
+
+        public ConsumerException(PlatformException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized PlatformException getCause() {
+            return (PlatformException) super.getCause();
+        }
+    }
+}
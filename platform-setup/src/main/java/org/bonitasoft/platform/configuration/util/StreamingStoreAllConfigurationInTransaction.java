@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.dialect.Dialect;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+
+/**
+ * Stores all configuration files of a folder while it is walked.
+ * A reader thread scans the folder and puts files into a bounded queue, the transaction thread drains it into JDBC batches.
+ * At most the queue and one batch of files are held in memory, whatever the number of tenant folders.
+ */
+public class StreamingStoreAllConfigurationInTransaction extends TransactionCallbackWithoutResult {
+
+    private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(StreamingStoreAllConfigurationInTransaction.class);
+
+    /**
+     * marks the end of the walk in the queue, compared by identity
+     */
+    private static final FullBonitaConfiguration END_OF_FOLDER = new FullBonitaConfiguration("", new byte[0], null, null);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final Path configurationRootFolder;
+    private final ConfigurationFolderScanner scanner;
+    private final int queueCapacity;
+
+    /**
+     * @param queueCapacity maximum number of files read ahead of the writer
+     */
+    public StreamingStoreAllConfigurationInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, Path configurationRootFolder,
+            ConfigurationFolderScanner scanner, int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queue capacity must be strictly positive, was " + queueCapacity);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.configurationRootFolder = configurationRootFolder;
+        this.scanner = scanner;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    protected void doInTransactionWithoutResult(TransactionStatus status) {
+        LOGGER.debug("stream configurations from folder " + configurationRootFolder + " with queue capacity:" + queueCapacity);
+        final BlockingQueue<FullBonitaConfiguration> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final ExecutorService reader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "bonita-configuration-folder-reader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final Future<Void> walk = reader.submit(new Callable<Void>() {
+
+            @Override
+            public Void call() throws IOException, InterruptedException {
+                try {
+                    scanner.scan(configurationRootFolder, new FullBonitaConfigurationConsumer() {
+
+                        @Override
+                        public void accept(FullBonitaConfiguration fullBonitaConfiguration) throws PlatformException {
+                            try {
+                                queue.put(fullBonitaConfiguration);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new PlatformException("reading of configuration folder interrupted", e);
+                            }
+                        }
+                    });
+                } finally {
+                    if (!Thread.currentThread().isInterrupted()) {
+                        queue.put(END_OF_FOLDER);
+                    }
+                }
+                return null;
+            }
+        });
+        try {
+            drain(queue);
+            walk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestionException(new PlatformException("storage of configuration folder interrupted", e));
+        } catch (ExecutionException e) {
+            throw new IngestionException(asPlatformException(e.getCause()));
+        } finally {
+            walk.cancel(true);
+            reader.shutdownNow();
+        }
+    }
+
+    private void drain(BlockingQueue<FullBonitaConfiguration> queue) throws InterruptedException {
+        final ConfigurationBatchWriter batchWriter = new ConfigurationBatchWriter(jdbcTemplate, dialect);
+        FullBonitaConfiguration fullBonitaConfiguration;
+        while ((fullBonitaConfiguration = queue.take()) != END_OF_FOLDER) {
+            batchWriter.add(fullBonitaConfiguration);
+        }
+        batchWriter.flush();
+        LOGGER.debug("stored " + batchWriter.getStoredFiles() + " configuration files from folder " + configurationRootFolder);
+    }
+
+    private static PlatformException asPlatformException(Throwable cause) {
+        if (cause instanceof AllConfigurationResourceVisitor.ConsumerIOException) {
+            return ((AllConfigurationResourceVisitor.ConsumerIOException) cause).getCause();
+        }
+        if (cause instanceof PlatformException) {
+            return (PlatformException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new PlatformException((Exception) cause);
+    }
+
+    /**
+     * Carries the failure of the folder reader through the transaction template.
+     */
+    public static class IngestionException extends RuntimeException {
+
+        public IngestionException(PlatformException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized PlatformException getCause() {
+            return (PlatformException) super.getCause();
+        }
+    }
+}
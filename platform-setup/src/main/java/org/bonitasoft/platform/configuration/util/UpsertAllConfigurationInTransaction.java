@@ -15,43 +15,44 @@ package org.bonitasoft.platform.configuration.util;
 
 import java.util.List;
 
-import org.bonitasoft.platform.configuration.impl.BonitaAllConfigurationContentTypeCleaner;
 import org.bonitasoft.platform.configuration.impl.BonitaAllConfigurationPreparedStatementSetter;
 import org.bonitasoft.platform.configuration.impl.ConfigurationServiceImpl;
 import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.dialect.Dialect;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 
 /**
+ * Inserts the given files, or updates them when they already exist. Other files are left untouched.
+ *
  * @author Laurent Leseigneur
  */
-public class CleanAndStoreAllConfigurationInTransaction extends TransactionCallbackWithoutResult {
+public class UpsertAllConfigurationInTransaction extends TransactionCallbackWithoutResult {
 
     private final JdbcTemplate jdbcTemplate;
     private final List<FullBonitaConfiguration> bonitaConfigurations;
-    private final String dbVendor;
+    private final Dialect dialect;
 
     private final static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ConfigurationServiceImpl.class);
 
-    public CleanAndStoreAllConfigurationInTransaction(JdbcTemplate jdbcTemplate, String dbVendor, List<FullBonitaConfiguration> bonitaConfigurations) {
+    public UpsertAllConfigurationInTransaction(JdbcTemplate jdbcTemplate, Dialect dialect, List<FullBonitaConfiguration> bonitaConfigurations) {
 
         this.jdbcTemplate = jdbcTemplate;
-        this.dbVendor = dbVendor;
+        this.dialect = dialect;
         this.bonitaConfigurations = bonitaConfigurations;
     }
 
     @Override
     protected void doInTransactionWithoutResult(TransactionStatus status) {
         LOGGER.debug(
-                "delete existing configurations " + bonitaConfigurations.toString());
+                "upsert configurations " + bonitaConfigurations.toString());
 
-        jdbcTemplate.batchUpdate(BonitaAllConfigurationContentTypeCleaner.DELETE_CONFIGURATION,
-                new BonitaAllConfigurationContentTypeCleaner(bonitaConfigurations));
-
-        jdbcTemplate.batchUpdate(BonitaAllConfigurationPreparedStatementSetter.INSERT_CONFIGURATION,
-                new BonitaAllConfigurationPreparedStatementSetter(bonitaConfigurations, dbVendor));
+        for (List<FullBonitaConfiguration> batch : ConfigurationBatches.split(bonitaConfigurations, dialect)) {
+            jdbcTemplate.batchUpdate(dialect.getUpsertConfigurationQuery(),
+                    new BonitaAllConfigurationPreparedStatementSetter(batch, dialect));
+        }
 
     }
 
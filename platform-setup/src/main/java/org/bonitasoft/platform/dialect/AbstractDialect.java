@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.dialect;
+
+import java.io.ByteArrayInputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Default behaviour shared by dialects.
+ */
+public abstract class AbstractDialect implements Dialect {
+
+    public static final int DEFAULT_FETCH_SIZE = 10;
+
+    public static final int DEFAULT_BATCH_MAX_ROWS = 100;
+
+    public static final long DEFAULT_BATCH_MAX_BYTES = 4 * 1024 * 1024;
+
+    private final String vendor;
+
+    protected AbstractDialect(String vendor) {
+        this.vendor = vendor;
+    }
+
+    @Override
+    public String getVendor() {
+        return vendor;
+    }
+
+    /**
+     * Streams content to the driver, so that it is not copied again into an intermediate LOB buffer.
+     */
+    @Override
+    public void setResourceContent(PreparedStatement ps, int parameterIndex, byte[] content) throws SQLException {
+        ps.setBinaryStream(parameterIndex, new ByteArrayInputStream(content), content.length);
+    }
+
+    @Override
+    public String getContentLengthFunction() {
+        return "LENGTH";
+    }
+
+    @Override
+    public int getDefaultFetchSize() {
+        return DEFAULT_FETCH_SIZE;
+    }
+
+    @Override
+    public int getDefaultBatchMaxRows() {
+        return DEFAULT_BATCH_MAX_ROWS;
+    }
+
+    @Override
+    public long getDefaultBatchMaxBytes() {
+        return DEFAULT_BATCH_MAX_BYTES;
+    }
+
+    @Override
+    public String getScriptSeparator() {
+        return ";";
+    }
+
+    @Override
+    public Map<String, String> getRecommendedJdbcProperties() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.dialect;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Database vendor specific behaviour of platform setup.
+ * Use {@link DialectFactory#getDialect(String)} to retrieve the dialect of a database vendor.
+ */
+public interface Dialect {
+
+    /**
+     * @return database vendor, as set in property db.vendor
+     */
+    String getVendor();
+
+    /**
+     * Binds content of column resource_content
+     *
+     * @param ps statement
+     * @param parameterIndex index of the parameter
+     * @param content resource content
+     * @throws SQLException
+     */
+    void setResourceContent(PreparedStatement ps, int parameterIndex, byte[] content) throws SQLException;
+
+    /**
+     * @return statement that inserts or updates a row of table configuration. Parameters are tenant_id, content_type, resource_name, resource_content
+     *         and resource_hash.
+     */
+    String getUpsertConfigurationQuery();
+
+    /**
+     * @return SQL function that returns the length, in bytes, of column resource_content
+     */
+    String getContentLengthFunction();
+
+    /**
+     * @return number of rows fetched per round-trip when streaming a result set
+     */
+    int getDefaultFetchSize();
+
+    /**
+     * @return default maximum number of rows per JDBC batch
+     */
+    int getDefaultBatchMaxRows();
+
+    /**
+     * @return default maximum content size, in bytes, per JDBC batch
+     */
+    long getDefaultBatchMaxBytes();
+
+    /**
+     * @return statement separator used in SQL scripts
+     */
+    String getScriptSeparator();
+
+    /**
+     * @return JDBC connection properties that improve platform setup performance
+     */
+    Map<String, String> getRecommendedJdbcProperties();
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.dialect;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves the {@link Dialect} of a database vendor. Dialects are stateless and shared.
+ */
+public final class DialectFactory {
+
+    /**
+     * system property used as database vendor when none is configured
+     */
+    public static final String DB_VENDOR_SYSTEM_PROPERTY = "sysprop.bonita.db.vendor";
+
+    private static final Map<String, Dialect> DIALECTS;
+
+    static {
+        final Map<String, Dialect> dialects = new HashMap<>();
+        for (Dialect dialect : new Dialect[] { new H2Dialect(), new PostgresDialect(), new MySQLDialect(), new OracleDialect(), new SQLServerDialect() }) {
+            dialects.put(dialect.getVendor(), dialect);
+        }
+        DIALECTS = Collections.unmodifiableMap(dialects);
+    }
+
+    private DialectFactory() {
+    }
+
+    /**
+     * @param dbVendor configured database vendor, may be null
+     * @return the configured database vendor, or the value of system property {@value #DB_VENDOR_SYSTEM_PROPERTY} if none is configured
+     */
+    public static String resolveVendor(String dbVendor) {
+        if (dbVendor == null) {
+            return getSystemPropertyVendor();
+        }
+        return dbVendor;
+    }
+
+    /**
+     * @return the value of system property {@value #DB_VENDOR_SYSTEM_PROPERTY}, or null if it is not set
+     */
+    public static String getSystemPropertyVendor() {
+        return System.getProperty(DB_VENDOR_SYSTEM_PROPERTY);
+    }
+
+    /**
+     * @param dbVendor database vendor, or null to use system property {@value #DB_VENDOR_SYSTEM_PROPERTY}
+     * @return the dialect of the database vendor
+     * @throws IllegalArgumentException if vendor is not supported
+     */
+    public static Dialect getDialect(String dbVendor) {
+        final String vendor = resolveVendor(dbVendor);
+        final Dialect dialect = vendor == null ? null : DIALECTS.get(vendor);
+        if (dialect == null) {
+            throw new IllegalArgumentException(new StringBuilder("unsupported db vendor:").append(vendor).toString());
+        }
+        return dialect;
+    }
+}
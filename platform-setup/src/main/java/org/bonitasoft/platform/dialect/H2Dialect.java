@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.dialect;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+public class H2Dialect extends AbstractDialect {
+
+    public static final String UPSERT_CONFIGURATION = "MERGE INTO configuration(tenant_id, content_type, resource_name, resource_content, resource_hash) "
+            + "KEY(tenant_id, content_type, resource_name) VALUES (?,?,?,?,?)";
+
+    public H2Dialect() {
+        super("h2");
+    }
+
+    @Override
+    public void setResourceContent(PreparedStatement ps, int parameterIndex, byte[] content) throws SQLException {
+        ps.setBytes(parameterIndex, content);
+    }
+
+    @Override
+    public String getUpsertConfigurationQuery() {
+        return UPSERT_CONFIGURATION;
+    }
+}
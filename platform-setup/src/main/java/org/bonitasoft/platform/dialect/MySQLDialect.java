@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.dialect;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class MySQLDialect extends AbstractDialect {
+
+    public static final String UPSERT_CONFIGURATION = "INSERT INTO configuration(tenant_id, content_type, resource_name, resource_content, resource_hash) "
+            + "VALUES (?,?,?,?,?) ON DUPLICATE KEY UPDATE resource_content = VALUES(resource_content), resource_hash = VALUES(resource_hash)";
+
+    /**
+     * rewritten batches are sent as a single packet, that must stay below server max_allowed_packet
+     */
+    public static final long BATCH_MAX_BYTES = 1024 * 1024;
+
+    public MySQLDialect() {
+        super("mysql");
+    }
+
+    @Override
+    public String getUpsertConfigurationQuery() {
+        return UPSERT_CONFIGURATION;
+    }
+
+    /**
+     * MySQL driver only streams result sets when fetch size is Integer.MIN_VALUE
+     */
+    @Override
+    public int getDefaultFetchSize() {
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public long getDefaultBatchMaxBytes() {
+        return BATCH_MAX_BYTES;
+    }
+
+    /**
+     * rewrites batches into multi-values statements
+     */
+    @Override
+    public Map<String, String> getRecommendedJdbcProperties() {
+        return Collections.singletonMap("rewriteBatchedStatements", "true");
+    }
+}
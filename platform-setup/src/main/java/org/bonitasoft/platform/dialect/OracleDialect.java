@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.dialect;
+
+public class OracleDialect extends AbstractDialect {
+
+    /**
+     * A MERGE statement would need the content in the select list of its source, where Oracle rejects contents bound as LONG RAW, that is
+     * larger than 2000 bytes. Parameters are bound once to variables, so that they keep the same order as with other vendors.
+     */
+    public static final String UPSERT_CONFIGURATION = "DECLARE "
+            + "v_tenant_id configuration.tenant_id%TYPE := ?; "
+            + "v_content_type configuration.content_type%TYPE := ?; "
+            + "v_resource_name configuration.resource_name%TYPE := ?; "
+            + "v_resource_content configuration.resource_content%TYPE := ?; "
+            + "v_resource_hash configuration.resource_hash%TYPE := ?; "
+            + "BEGIN "
+            + "UPDATE configuration SET resource_content = v_resource_content, resource_hash = v_resource_hash "
+            + "WHERE tenant_id = v_tenant_id AND content_type = v_content_type AND resource_name = v_resource_name; "
+            + "IF SQL%ROWCOUNT = 0 THEN "
+            + "INSERT INTO configuration(tenant_id, content_type, resource_name, resource_content, resource_hash) "
+            + "VALUES (v_tenant_id, v_content_type, v_resource_name, v_resource_content, v_resource_hash); "
+            + "END IF; "
+            + "END;";
+
+    public OracleDialect() {
+        super("oracle");
+    }
+
+    @Override
+    public String getUpsertConfigurationQuery() {
+        return UPSERT_CONFIGURATION;
+    }
+
+    @Override
+    public String getContentLengthFunction() {
+        return "DBMS_LOB.GETLENGTH";
+    }
+}
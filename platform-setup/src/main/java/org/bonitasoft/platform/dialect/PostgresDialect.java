@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.dialect;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+
+public class PostgresDialect extends AbstractDialect {
+
+    public static final String UPSERT_CONFIGURATION = "INSERT INTO configuration(tenant_id, content_type, resource_name, resource_content, resource_hash) "
+            + "VALUES (?,?,?,?,?) ON CONFLICT (tenant_id, content_type, resource_name) "
+            + "DO UPDATE SET resource_content = EXCLUDED.resource_content, resource_hash = EXCLUDED.resource_hash";
+
+    public PostgresDialect() {
+        super("postgres");
+    }
+
+    @Override
+    public void setResourceContent(PreparedStatement ps, int parameterIndex, byte[] content) throws SQLException {
+        ps.setBytes(parameterIndex, content);
+    }
+
+    @Override
+    public String getUpsertConfigurationQuery() {
+        return UPSERT_CONFIGURATION;
+    }
+
+    /**
+     * rewrites batches of inserts into multi-values statements
+     */
+    @Override
+    public Map<String, String> getRecommendedJdbcProperties() {
+        return Collections.singletonMap("reWriteBatchedInserts", "true");
+    }
+}
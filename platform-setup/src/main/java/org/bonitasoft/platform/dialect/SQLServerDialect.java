@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.dialect;
+
+public class SQLServerDialect extends AbstractDialect {
+
+    public static final String UPSERT_CONFIGURATION = "MERGE INTO configuration AS target "
+            + "USING (VALUES (?,?,?,?,?)) AS source (tenant_id, content_type, resource_name, resource_content, resource_hash) "
+            + "ON target.tenant_id = source.tenant_id AND target.content_type = source.content_type AND target.resource_name = source.resource_name "
+            + "WHEN MATCHED THEN UPDATE SET resource_content = source.resource_content, resource_hash = source.resource_hash "
+            + "WHEN NOT MATCHED THEN INSERT (tenant_id, content_type, resource_name, resource_content, resource_hash) "
+            + "VALUES (source.tenant_id, source.content_type, source.resource_name, source.resource_content, source.resource_hash);";
+
+    public SQLServerDialect() {
+        super("sqlserver");
+    }
+
+    @Override
+    public String getUpsertConfigurationQuery() {
+        return UPSERT_CONFIGURATION;
+    }
+
+    @Override
+    public String getContentLengthFunction() {
+        return "DATALENGTH";
+    }
+
+    @Override
+    public String getScriptSeparator() {
+        return "GO";
+    }
+}
@@ -16,6 +16,7 @@ package org.bonitasoft.platform.setup;
 import java.io.IOException;
 import java.util.Properties;
 
+import org.bonitasoft.platform.dialect.DialectFactory;
 import org.bonitasoft.platform.exception.PlatformException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +25,7 @@ import org.slf4j.LoggerFactory;
  * Preliminary checks done by platform setup tool before it tries to go further:
  * <ul>
  * <li>checks that the driver class if found and can be loaded</li>
+ * <li>checks that the database vendor has a {@link org.bonitasoft.platform.dialect.Dialect}</li>
  * </ul>
  *
  * @author Emmanuel Duchastenier
@@ -45,9 +47,11 @@ public class ConfigurationChecker {
                     " Please make sure the file is present at the root of the Platform Setup Tool folder, and that is has not been moved of deleted", e);
         }
         dbVendor = properties.getProperty("db.vendor");
-        final String sysPropDbVendor = System.getProperty("sysprop.bonita.db.vendor");
+        // vendor given by setup scripts overrides the file, as in application.properties
+        final String sysPropDbVendor = DialectFactory.getSystemPropertyVendor();
         if (sysPropDbVendor != null) {
-            LOGGER.debug("'sysprop.bonita.db.vendor' set to '" + sysPropDbVendor + "', overriding value from file database.properties.");
+            LOGGER.debug("'" + DialectFactory.DB_VENDOR_SYSTEM_PROPERTY + "' set to '" + sysPropDbVendor
+                    + "', overriding value from file database.properties.");
             dbVendor = sysPropDbVendor;
         }
         driverClassName = properties.getProperty(dbVendor + ".driverClassName");
@@ -56,6 +60,11 @@ public class ConfigurationChecker {
                     + " in file database.properties. In most cases, you should not edit the default driver class name value." +
                     " Please ensure ");
         }
+        try {
+            DialectFactory.getDialect(dbVendor);
+        } catch (IllegalArgumentException e) {
+            throw new PlatformException("Database " + dbVendor + " set in file database.properties is not supported.", e);
+        }
     }
 
     public void validate() throws PlatformException {
@@ -13,16 +13,24 @@
  */
 package org.bonitasoft.platform.setup;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import javax.naming.NamingException;
 import javax.sql.DataSource;
@@ -33,7 +41,13 @@ import org.apache.commons.io.filefilter.RegexFileFilter;
 import org.bonitasoft.platform.configuration.ConfigurationService;
 import org.bonitasoft.platform.configuration.impl.ConfigurationServiceImpl;
 import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.ConfigurationChangeReport;
+import org.bonitasoft.platform.configuration.model.ConfigurationRevision;
 import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.configuration.util.ConfigurationFolderWatcher;
+import org.bonitasoft.platform.configuration.util.RollbackConfigurationInTransaction;
+import org.bonitasoft.platform.dialect.DialectFactory;
 import org.bonitasoft.platform.exception.PlatformException;
 import org.bonitasoft.platform.version.VersionService;
 import org.bonitasoft.platform.version.impl.VersionServiceImpl;
@@ -61,6 +75,23 @@ public class PlatformSetup {
 
     static final String BONITA_SETUP_ACTION = "org.bonitasoft.platform.setup.action";
 
+    /**
+     * when set to true, push only writes configuration files that differ from database content
+     */
+    public static final String BONITA_SETUP_PUSH_INCREMENTAL = "org.bonitasoft.platform.setup.push.incremental";
+
+    /**
+     * archive file written by export and read by import, platform_conf/configuration.zip by default
+     */
+    public static final String BONITA_SETUP_ARCHIVE = "org.bonitasoft.platform.setup.archive";
+
+    static final String DEFAULT_ARCHIVE_NAME = "configuration.zip";
+
+    /**
+     * revision restored by rollback. When not set, rollback only lists available revisions
+     */
+    public static final String BONITA_SETUP_ROLLBACK_REVISION = "org.bonitasoft.platform.setup.rollback.revision";
+
     private final static Logger LOGGER = LoggerFactory.getLogger(PlatformSetup.class);
 
     public static final String PLATFORM_CONF_FOLDER_NAME = "platform_conf";
@@ -85,6 +116,7 @@ public class PlatformSetup {
     private Path initialConfigurationFolder;
     private Path currentConfigurationFolder;
     private Path licensesFolder;
+    private Path archiveFile;
 
     public PlatformSetup(String dbVendor) {
         this.dbVendor = dbVendor;
@@ -124,6 +156,7 @@ public class PlatformSetup {
             initConfigurationWithClasspath();
         }
         pushLicenses();
+        createRevision("init");
         LOGGER.info("Initial configuration files successfully pushed to database");
     }
 
@@ -161,13 +194,93 @@ public class PlatformSetup {
         preventFromPushingZeroLicense();
         checkPlatformVersion();
         checkPushFolderExists(currentConfigurationFolder);
-        LOGGER.info("Configuration currently in database will be replace by configuration from folder: " + currentConfigurationFolder.toString());
-        clean();
-        pushFromFolder(currentConfigurationFolder);
+        createRevision("before push");
+        if (Boolean.getBoolean(BONITA_SETUP_PUSH_INCREMENTAL)) {
+            LOGGER.info("Configuration currently in database will be updated with modified configuration from folder: "
+                    + currentConfigurationFolder.toString());
+            logChanges(configurationService.storeModifiedConfiguration(currentConfigurationFolder.toFile()));
+        } else {
+            LOGGER.info("Configuration currently in database will be replace by configuration from folder: " + currentConfigurationFolder.toString());
+            clean();
+            pushFromFolder(currentConfigurationFolder);
+        }
         pushLicenses();
+        createRevision("push");
         LOGGER.info("Configuration files successfully pushed to database. You can now restart Bonita BPM to reflect your changes.");
     }
 
+    /**
+     * Entry point to push configuration files as soon as they are modified, until the process is stopped.
+     * Only written and deleted files are stored, see {@link ConfigurationFolderWatcher}. Watching continues after a pull replaced the folder, or after a
+     * batch of changes failed to be stored, and stops with an error if the folder is deleted.
+     *
+     * @throws PlatformException
+     */
+    void watch() throws PlatformException {
+        initPlatformSetup();
+        if (!isPlatformAlreadyCreated()) {
+            throw new PlatformException("Platform is not created. Run 'setup init' first.");
+        }
+        checkPlatformVersion();
+        checkPushFolderExists(currentConfigurationFolder);
+        try (ConfigurationFolderWatcher watcher = new ConfigurationFolderWatcher(currentConfigurationFolder)) {
+            LOGGER.info("Watching folder " + currentConfigurationFolder
+                    + ": modified configuration files will be pushed to database. Press Ctrl+C to stop.");
+            while (!Thread.currentThread().isInterrupted()) {
+                final ConfigurationFolderWatcher.Changes changes = watcher.awaitChanges();
+                try {
+                    pushChanges(changes);
+                } catch (RuntimeException e) {
+                    // e.g. database temporarily unavailable: next changes may be pushed
+                    LOGGER.error("Unable to push " + changes.getWrittenFiles().size() + " written and " + changes.getDeletedFiles().size()
+                            + " deleted configuration file(s), run 'setup push' to store them: " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new PlatformException("unable to watch folder " + currentConfigurationFolder, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * store a batch of changes given by a {@link ConfigurationFolderWatcher}
+     */
+    public ConfigurationChangeReport pushChanges(ConfigurationFolderWatcher.Changes changes) {
+        if (changes.isEmpty()) {
+            return new ConfigurationChangeReport();
+        }
+        final ConfigurationChangeReport report = configurationService.storeConfigurationFiles(changes.getWrittenFiles(), changes.getDeletedFiles());
+        logChanges(report);
+        if (!report.isEmpty()) {
+            createRevision("watch");
+        }
+        return report;
+    }
+
+    private void logChanges(ConfigurationChangeReport report) {
+        if (report.isEmpty()) {
+            LOGGER.info("No modified configuration file found.");
+            return;
+        }
+        logChanges("Added", report.getAdded());
+        logChanges("Updated", report.getUpdated());
+        logChanges("Deleted", report.getDeleted());
+        LOGGER.info(report.getAdded().size() + " file(s) added, " + report.getUpdated().size() + " file(s) updated, " + report.getDeleted().size()
+                + " file(s) deleted.");
+    }
+
+    private void logChanges(String change, List<BonitaConfigurationDescriptor> descriptors) {
+        for (BonitaConfigurationDescriptor descriptor : descriptors) {
+            final StringBuilder message = new StringBuilder(change).append(" file: ");
+            if (descriptor.getTenantId() > 0) {
+                message.append("tenants/").append(descriptor.getTenantId()).append("/");
+            }
+            message.append(descriptor.getConfigurationType().toLowerCase()).append("/").append(descriptor.getResourceName());
+            LOGGER.info(message.toString());
+        }
+    }
+
     /**
      * Entry point to retrieve all configuration files and write them to folder
      * each file will be located under sub folder according to its purpose. See {@link org.bonitasoft.platform.configuration.type.ConfigurationType} for all
@@ -187,18 +300,99 @@ public class PlatformSetup {
         LOGGER.info("Configuration (and license) files successfully pulled. You can now edit them. Use \"setup push\" when done.");
     }
 
+    /**
+     * Files are written to staging folders next to the given ones, which are then renamed over them once all files are written.
+     * Files identical to those already pulled are linked instead of written again.
+     * If the pull fails while writing files, given folders are left untouched. Once all files are written, a marker file listing the given
+     * folders is created, and a pull interrupted while replacing them is completed by the next pull or setup command, see
+     * {@link #completeInterruptedPull(Path)}.
+     */
     public void pull(Path configurationFolder, Path licensesFolder) throws PlatformException {
+        final Path stagingConfigurationFolder = getStagingFolder(configurationFolder);
+        final boolean stageLicenses = Files.isDirectory(licensesFolder);
+        final Path stagingLicensesFolder = stageLicenses ? getStagingFolder(licensesFolder) : licensesFolder;
         try {
-            recreateDirectory(configurationFolder);
-            if (Files.isDirectory(licensesFolder)) {
-                FileUtils.cleanDirectory(licensesFolder.toFile());
+            completeInterruptedPull(configurationFolder);
+            recreateDirectory(stagingConfigurationFolder);
+            if (stageLicenses) {
+                recreateDirectory(stagingLicensesFolder);
+            }
+            try {
+                configurationService.writeAllConfigurationToFolder(stagingConfigurationFolder.toFile(), stagingLicensesFolder.toFile(),
+                        configurationFolder.toFile(), licensesFolder.toFile());
+            } catch (PlatformException e) {
+                FileUtils.deleteQuietly(stagingConfigurationFolder.toFile());
+                if (stageLicenses) {
+                    FileUtils.deleteQuietly(stagingLicensesFolder.toFile());
+                }
+                throw e;
+            }
+            final List<String> swappedFolders = new ArrayList<>();
+            swappedFolders.add(configurationFolder.toAbsolutePath().toString());
+            if (stageLicenses) {
+                swappedFolders.add(licensesFolder.toAbsolutePath().toString());
             }
-            configurationService.writeAllConfigurationToFolder(configurationFolder.toFile(), licensesFolder.toFile());
+            final Path marker = getSwapMarker(configurationFolder);
+            final Path stagingMarker = marker.resolveSibling(marker.getFileName() + ".writing");
+            Files.write(stagingMarker, swappedFolders, StandardCharsets.UTF_8);
+            Files.move(stagingMarker, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            swapFolders(marker);
         } catch (IOException e) {
             throw new PlatformException(e);
         }
     }
 
+    /**
+     * Completes a pull into the given configuration folder that was interrupted while replacing folders by their staging folders, so that
+     * configuration and licenses folders are never left missing or pulled at different times.
+     *
+     * @throws IOException if folders cannot be renamed
+     */
+    public void completeInterruptedPull(Path configurationFolder) throws IOException {
+        final Path marker = getSwapMarker(configurationFolder);
+        if (Files.exists(marker)) {
+            LOGGER.warn("Completing a previous pull, interrupted while replacing folders listed in " + marker);
+            swapFolders(marker);
+        }
+    }
+
+    private Path getStagingFolder(Path folder) {
+        return folder.resolveSibling(folder.getFileName() + ".pulling");
+    }
+
+    private Path getPreviousFolder(Path folder) {
+        return folder.resolveSibling(folder.getFileName() + ".previous");
+    }
+
+    private Path getSwapMarker(Path configurationFolder) {
+        return configurationFolder.resolveSibling(configurationFolder.getFileName() + ".swapping");
+    }
+
+    /**
+     * Replaces each folder listed in the marker by its staging folder, skipping those already replaced, then deletes the marker.
+     */
+    private void swapFolders(Path marker) throws IOException {
+        final List<Path> folders = new ArrayList<>();
+        for (String folder : Files.readAllLines(marker, StandardCharsets.UTF_8)) {
+            folders.add(Paths.get(folder));
+        }
+        for (Path folder : folders) {
+            final Path stagingFolder = getStagingFolder(folder);
+            if (Files.exists(stagingFolder)) {
+                if (Files.exists(folder)) {
+                    final Path previousFolder = getPreviousFolder(folder);
+                    FileUtils.deleteDirectory(previousFolder.toFile());
+                    Files.move(folder, previousFolder, StandardCopyOption.ATOMIC_MOVE);
+                }
+                Files.move(stagingFolder, folder, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        Files.delete(marker);
+        for (Path folder : folders) {
+            FileUtils.deleteDirectory(getPreviousFolder(folder).toFile());
+        }
+    }
+
     private void recreateDirectory(Path... folders) throws IOException {
         for (Path folder : folders) {
             if (Files.exists(folder)) {
@@ -208,6 +402,142 @@ public class PlatformSetup {
         }
     }
 
+    /**
+     * Entry point to write all configuration files, including licenses, to a single archive.
+     *
+     * @throws PlatformException
+     */
+    void exportConfiguration() throws PlatformException {
+        initPlatformSetup();
+        checkPlatformVersion();
+        LOGGER.info("Exporting configuration into archive: " + archiveFile);
+        exportConfiguration(archiveFile);
+        LOGGER.info("Configuration (and license) files successfully exported. Use \"setup import\" to import them into another platform.");
+    }
+
+    /**
+     * The archive is written next to the given file, then renamed over it once complete.
+     */
+    public void exportConfiguration(Path archive) throws PlatformException {
+        final Path stagingArchive = archive.resolveSibling(archive.getFileName() + ".exporting");
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(stagingArchive))) {
+                configurationService.exportAllConfiguration(outputStream);
+            } catch (PlatformException | IOException e) {
+                Files.deleteIfExists(stagingArchive);
+                throw e;
+            }
+            Files.move(stagingArchive, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new PlatformException(e);
+        }
+    }
+
+    /**
+     * Entry point to replace all configuration files, including licenses, by those of an archive written by export.
+     *
+     * @throws PlatformException
+     */
+    void importConfiguration() throws PlatformException {
+        initPlatformSetup();
+        if (!isPlatformAlreadyCreated()) {
+            throw new PlatformException("Platform is not created. Run 'setup init' first.");
+        }
+        checkPlatformVersion();
+        LOGGER.info("Configuration currently in database will be replaced by configuration from archive: " + archiveFile);
+        createRevision("before import");
+        importConfiguration(archiveFile);
+        createRevision("import");
+        LOGGER.info("Configuration (and license) files successfully imported to database. You can now restart Bonita BPM to reflect your changes.");
+    }
+
+    public void importConfiguration(Path archive) throws PlatformException {
+        if (!Files.isRegularFile(archive)) {
+            throw new PlatformException("Unable to import configuration, as archive " + archive + " does not exist. Run 'setup export' first.");
+        }
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(archive))) {
+            configurationService.importAllConfiguration(inputStream);
+        } catch (IOException e) {
+            throw new PlatformException(e);
+        }
+    }
+
+    /**
+     * Entry point to replace all configuration files, including licenses, by those of a previous revision.
+     * Revisions are recorded by init, push and import. When no revision is given, available revisions are listed.
+     *
+     * @throws PlatformException
+     */
+    void rollback() throws PlatformException {
+        initPlatformSetup();
+        if (!isPlatformAlreadyCreated()) {
+            throw new PlatformException("Platform is not created. Run 'setup init' first.");
+        }
+        checkPlatformVersion();
+        final String revision = System.getProperty(BONITA_SETUP_ROLLBACK_REVISION);
+        if (revision == null) {
+            logRevisions();
+            return;
+        }
+        final long restoredRevision;
+        try {
+            restoredRevision = Long.parseLong(revision);
+        } catch (NumberFormatException e) {
+            throw new PlatformException("Invalid configuration revision: " + revision);
+        }
+        final long rolledBackRevision = rollback(restoredRevision);
+        logRollbackChanges(restoredRevision, rolledBackRevision);
+        LOGGER.info("Configuration successfully rolled back to revision " + restoredRevision + ", recorded as revision " + rolledBackRevision
+                + ". You can now restart Bonita BPM to reflect your changes.");
+    }
+
+    /**
+     * configuration before the rollback is recorded by the rollback itself, as the revision preceding the rolled back one
+     */
+    private void logRollbackChanges(long restoredRevision, long rolledBackRevision) {
+        ConfigurationRevision previous = null;
+        for (ConfigurationRevision configurationRevision : configurationService.getConfigurationRevisions()) {
+            if (configurationRevision.getRevision() == rolledBackRevision) {
+                if (previous != null && RollbackConfigurationInTransaction.getDescription(restoredRevision).equals(configurationRevision.getDescription())) {
+                    logChanges(configurationService.diffConfigurationRevisions(previous.getRevision(), rolledBackRevision));
+                    return;
+                }
+                break;
+            }
+            previous = configurationRevision;
+        }
+        // no revision was created by the rollback, configuration already matched the restored revision
+        LOGGER.info("No modified configuration file found.");
+    }
+
+    public long rollback(long revision) throws PlatformException {
+        try {
+            return configurationService.rollbackConfiguration(revision);
+        } catch (IllegalArgumentException e) {
+            throw new PlatformException(e.getMessage() + ". Run 'setup rollback' to list available revisions.");
+        }
+    }
+
+    private void logRevisions() {
+        final List<ConfigurationRevision> revisions = configurationService.getConfigurationRevisions();
+        if (revisions.isEmpty()) {
+            LOGGER.info("No configuration revision found.");
+            return;
+        }
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        for (ConfigurationRevision revision : revisions) {
+            LOGGER.info("Revision " + revision.getRevision() + ": " + revision.getDescription() + " (" + dateFormat.format(new Date(revision.getCreationDate()))
+                    + ")");
+        }
+        LOGGER.info("Use \"setup rollback <revision>\" to restore the configuration of a revision.");
+    }
+
+    private long createRevision(String description) {
+        final long revision = configurationService.createConfigurationRevision(description);
+        LOGGER.debug("Configuration recorded as revision " + revision);
+        return revision;
+    }
+
     private void checkPlatformVersion() throws PlatformException {
         if (!versionService.isValidPlatformVersion()) {
             throw new PlatformException("Platform version [" + versionService.getPlatformVersion() +
@@ -234,9 +564,7 @@ public class PlatformSetup {
     }
 
     void initProperties() {
-        if (dbVendor == null) {
-            dbVendor = System.getProperty("sysprop.bonita.db.vendor");
-        }
+        dbVendor = DialectFactory.resolveVendor(dbVendor);
         String setupFolderPath = System.getProperty(BONITA_SETUP_FOLDER);
         Path platformConfFolder;
         if (setupFolderPath != null) {
@@ -252,6 +580,8 @@ public class PlatformSetup {
         initialConfigurationFolder = platformConfFolder.resolve("initial");
         currentConfigurationFolder = platformConfFolder.resolve("current");
         licensesFolder = getLicenseInitialFolder(platformConfFolder);
+        final String archivePath = System.getProperty(BONITA_SETUP_ARCHIVE);
+        archiveFile = archivePath != null ? Paths.get(archivePath) : platformConfFolder.resolve(DEFAULT_ARCHIVE_NAME);
     }
 
     private Path getLicenseInitialFolder(Path platformConfFolder) {
@@ -366,12 +696,24 @@ public class PlatformSetup {
             try (Connection connection = dataSource.getConnection()) {
                 DatabaseMetaData metaData = connection.getMetaData();
                 LOGGER.info("Connected to '" + dbVendor + "' database with url: '" + metaData.getURL() + "' with user: '" + metaData.getUserName() + "'");
+                logMissingRecommendedJdbcProperties(metaData.getURL());
             }
         } catch (NamingException | SQLException e) {
             throw new PlatformException(e);
         }
     }
 
+    private void logMissingRecommendedJdbcProperties(String url) {
+        if (url == null) {
+            return;
+        }
+        for (Map.Entry<String, String> property : DialectFactory.getDialect(dbVendor).getRecommendedJdbcProperties().entrySet()) {
+            if (!url.contains(property.getKey() + "=")) {
+                LOGGER.info("For better performance, consider adding '" + property.getKey() + "=" + property.getValue() + "' to the database url");
+            }
+        }
+    }
+
     private BonitaConfiguration getBonitaConfigurationFromClassPath(String folder, String resourceName) throws IOException {
         try (InputStream resourceAsStream = this.getClass().getResourceAsStream("/" + folder + "/" + resourceName)) {
             if (resourceAsStream == null) {
@@ -391,6 +733,11 @@ public class PlatformSetup {
 
     public void initPlatformSetup() throws PlatformException {
         initProperties();
+        try {
+            completeInterruptedPull(currentConfigurationFolder);
+        } catch (IOException e) {
+            throw new PlatformException("unable to complete a previous pull into " + currentConfigurationFolder, e);
+        }
         initDataSource();
         initServices();
     }
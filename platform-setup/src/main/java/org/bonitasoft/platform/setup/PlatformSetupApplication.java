@@ -35,6 +35,10 @@ public class PlatformSetupApplication {
     private static final String ACTION_INIT = "init";
     private static final String ACTION_PUSH = "push";
     private static final String ACTION_PULL = "pull";
+    private static final String ACTION_EXPORT = "export";
+    private static final String ACTION_IMPORT = "import";
+    private static final String ACTION_ROLLBACK = "rollback";
+    private static final String ACTION_WATCH = "watch";
 
     @Autowired
     MemoryJNDISetup memoryJNDISetup;
@@ -57,6 +61,18 @@ public class PlatformSetupApplication {
                     case ACTION_PULL:
                         pull(getConfigurableApplicationContext(args));
                         break;
+                    case ACTION_EXPORT:
+                        exportConfiguration(getConfigurableApplicationContext(args));
+                        break;
+                    case ACTION_IMPORT:
+                        importConfiguration(getConfigurableApplicationContext(args));
+                        break;
+                    case ACTION_ROLLBACK:
+                        rollback(getConfigurableApplicationContext(args));
+                        break;
+                    case ACTION_WATCH:
+                        watch(getConfigurableApplicationContext(args));
+                        break;
                     default:
                         displayMessageAndExit(action);
                 }
@@ -88,6 +104,22 @@ public class PlatformSetupApplication {
         run.getBean(PlatformSetup.class).push();
     }
 
+    private static void exportConfiguration(ConfigurableApplicationContext run) throws PlatformException {
+        run.getBean(PlatformSetup.class).exportConfiguration();
+    }
+
+    private static void importConfiguration(ConfigurableApplicationContext run) throws PlatformException {
+        run.getBean(PlatformSetup.class).importConfiguration();
+    }
+
+    private static void rollback(ConfigurableApplicationContext run) throws PlatformException {
+        run.getBean(PlatformSetup.class).rollback();
+    }
+
+    private static void watch(ConfigurableApplicationContext run) throws PlatformException {
+        run.getBean(PlatformSetup.class).watch();
+    }
+
     private static void init(ConfigurableApplicationContext run) throws PlatformException {
         run.getBean(PlatformSetup.class).init();
     }
@@ -29,6 +29,8 @@ import java.util.List;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
 
+import org.bonitasoft.platform.dialect.Dialect;
+import org.bonitasoft.platform.dialect.DialectFactory;
 import org.bonitasoft.platform.exception.PlatformException;
 import org.bonitasoft.platform.version.VersionService;
 import org.bonitasoft.platform.version.impl.VersionServiceImpl;
@@ -75,6 +77,8 @@ public class ScriptExecutor {
 
     private final String dbVendor;
 
+    private final Dialect dialect;
+
     private VersionService versionService;
 
     @Autowired
@@ -87,6 +91,7 @@ public class ScriptExecutor {
             throw new IllegalArgumentException("dbVendor is null");
         }
         this.dbVendor = dbVendor;
+        this.dialect = DialectFactory.getDialect(dbVendor);
         this.datasource = datasource;
         logger.info("configuration for Database vendor: " + dbVendor);
         this.sqlFolder = "/sql/" + dbVendor;
@@ -194,11 +199,7 @@ public class ScriptExecutor {
     }
 
     private String getSeparator() {
-        if ("sqlserver".equals(dbVendor)) {
-            return "GO";
-        } else {
-            return ";";
-        }
+        return dialect.getScriptSeparator();
     }
 
     public void initializePlatformStructure() throws PlatformException {
@@ -22,15 +22,22 @@ IF NOT "%BONITA_DATABASE%" == "h2" IF NOT "%BONITA_DATABASE%" == "postgres" IF N
 )
 
 IF NOT (%1) == () set ACTION=%1
-IF NOT "%ACTION%" == "init" IF NOT "%ACTION%" == "pull" IF NOT "%ACTION%" == "push" (
-    echo Missing action argument. Available values are: init, pull, push
+IF NOT "%ACTION%" == "init" IF NOT "%ACTION%" == "pull" IF NOT "%ACTION%" == "push" IF NOT "%ACTION%" == "export" IF NOT "%ACTION%" == "import" IF NOT "%ACTION%" == "rollback" IF NOT "%ACTION%" == "watch" (
+    echo Missing action argument. Available values are: init, pull, push, export, import, rollback, watch
     exit /b 1
 )
 
+set SETUP_OPTIONS=
+IF "%ACTION%" == "push" IF "%2" == "--incremental" set SETUP_OPTIONS=-Dorg.bonitasoft.platform.setup.push.incremental=true
+rem archive path is quoted, so that a path containing spaces is passed to java as a single argument:
+IF "%ACTION%" == "export" IF NOT "%~2" == "" set SETUP_OPTIONS="-Dorg.bonitasoft.platform.setup.archive=%~2"
+IF "%ACTION%" == "import" IF NOT "%~2" == "" set SETUP_OPTIONS="-Dorg.bonitasoft.platform.setup.archive=%~2"
+IF "%ACTION%" == "rollback" IF NOT (%2) == () set SETUP_OPTIONS=-Dorg.bonitasoft.platform.setup.rollback.revision=%2
+
 echo using database %BONITA_DATABASE%
 echo action is %ACTION%
 
-java -cp "%BASEDIR%;%CFG_FOLDER%;%INITIAL_CFG_FOLDER%;%LIB_FOLDER%\*" -Dorg.bonitasoft.platform.setup.action=%ACTION% -Dspring.profiles.active=default -Dsysprop.bonita.db.vendor=%BONITA_DATABASE% org.bonitasoft.platform.setup.PlatformSetupApplication
+java -cp "%BASEDIR%;%CFG_FOLDER%;%INITIAL_CFG_FOLDER%;%LIB_FOLDER%\*" -Dorg.bonitasoft.platform.setup.action=%ACTION% %SETUP_OPTIONS% -Dspring.profiles.active=default -Dsysprop.bonita.db.vendor=%BONITA_DATABASE% org.bonitasoft.platform.setup.PlatformSetupApplication
 
 if errorlevel 1 (
     echo ERROR 1 Executing platform setup
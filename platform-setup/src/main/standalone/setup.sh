@@ -35,16 +35,29 @@ if [ "$BONITA_DATABASE" != "h2" -a "$BONITA_DATABASE" != "postgres" -a "$BONITA_
 fi
 
 ACTION=${1:-""}
-if [ "${ACTION}" != "init" -a "${ACTION}" != "pull" -a "${ACTION}" != "push"  ]; then
-    echo "Missing action argument. Available values are: init, pull, push"
+if [ "${ACTION}" != "init" -a "${ACTION}" != "pull" -a "${ACTION}" != "push" -a "${ACTION}" != "export" -a "${ACTION}" != "import" -a "${ACTION}" != "rollback" -a "${ACTION}" != "watch" ]; then
+    echo "Missing action argument. Available values are: init, pull, push, export, import, rollback, watch"
     exit 1
 fi
 
+# options are kept as positional parameters, so that a path containing spaces is passed to java as a single argument:
+OPTION=${2:-""}
+set --
+if [ "${ACTION}" = "push" -a "${OPTION}" = "--incremental" ]; then
+    set -- "-Dorg.bonitasoft.platform.setup.push.incremental=true"
+fi
+if [ "${ACTION}" = "export" -o "${ACTION}" = "import" ] && [ -n "${OPTION}" ]; then
+    set -- "-Dorg.bonitasoft.platform.setup.archive=${OPTION}"
+fi
+if [ "${ACTION}" = "rollback" ] && [ -n "${OPTION}" ]; then
+    set -- "-Dorg.bonitasoft.platform.setup.rollback.revision=${OPTION}"
+fi
+
 echo "Action is ${ACTION}"
 echo "Using database ${BONITA_DATABASE}"
 export BONITA_DATABASE
 
-java -cp "${BASEDIR}:${CFG_FOLDER}:${INITIAL_CFG_FOLDER}:${LIB_FOLDER}/*" -Dorg.bonitasoft.platform.setup.action=${ACTION} -Dspring.profiles.active=default -Dsysprop.bonita.db.vendor=${BONITA_DATABASE} org.bonitasoft.platform.setup.PlatformSetupApplication
+java -cp "${BASEDIR}:${CFG_FOLDER}:${INITIAL_CFG_FOLDER}:${LIB_FOLDER}/*" -Dorg.bonitasoft.platform.setup.action=${ACTION} "$@" -Dspring.profiles.active=default -Dsysprop.bonita.db.vendor=${BONITA_DATABASE} org.bonitasoft.platform.setup.PlatformSetupApplication
 
 testReturnCode $? "Executing platform setup (Java command)"
 
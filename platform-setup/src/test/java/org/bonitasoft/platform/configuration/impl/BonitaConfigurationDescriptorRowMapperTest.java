@@ -0,0 +1,50 @@
+package org.bonitasoft.platform.configuration.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.platform.configuration.impl.ConfigurationFields.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.ResultSet;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.dialect.H2Dialect;
+import org.bonitasoft.platform.dialect.OracleDialect;
+import org.bonitasoft.platform.dialect.SQLServerDialect;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BonitaConfigurationDescriptorRowMapperTest {
+
+    @Mock
+    private ResultSet rs;
+
+    @Test
+    public void should_map_row_without_reading_content() throws Exception {
+        //given
+        doReturn(1L).when(rs).getLong(TENANT_ID);
+        doReturn("my resource").when(rs).getString(RESOURCE_NAME);
+        doReturn("PLATFORM_PORTAL").when(rs).getString(CONTENT_TYPE);
+        doReturn(10L).when(rs).getLong(RESOURCE_LENGTH);
+        doReturn("abc").when(rs).getString(RESOURCE_HASH);
+
+        //when
+        final BonitaConfigurationDescriptor descriptor = new BonitaConfigurationDescriptorRowMapper().mapRow(rs, 1);
+
+        //then
+        assertThat(descriptor).isEqualTo(new BonitaConfigurationDescriptor("my resource", "PLATFORM_PORTAL", 1L, 10L, "abc"));
+        verify(rs, never()).getBytes(anyString());
+    }
+
+    @Test
+    public void should_use_dialect_length_function() throws Exception {
+        assertThat(BonitaConfigurationDescriptorRowMapper.forDialect(BonitaConfigurationDescriptorRowMapper.SELECT_ALL_DESCRIPTORS, new H2Dialect()))
+                .contains("LENGTH(resource_content)");
+        assertThat(BonitaConfigurationDescriptorRowMapper.forDialect(BonitaConfigurationDescriptorRowMapper.SELECT_ALL_DESCRIPTORS, new OracleDialect()))
+                .contains("DBMS_LOB.GETLENGTH(resource_content)");
+        assertThat(BonitaConfigurationDescriptorRowMapper.forDialect(BonitaConfigurationDescriptorRowMapper.SELECT_ALL_DESCRIPTORS, new SQLServerDialect()))
+                .contains("DATALENGTH(resource_content)");
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_ENGINE;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.platform.configuration.ConfigurationService;
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.ConfigurationChange;
+import org.bonitasoft.platform.configuration.model.ConfigurationProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachedConfigurationServiceTest {
+
+    @Mock
+    private ConfigurationService delegate;
+
+    private CachedConfigurationService cachedConfigurationService;
+
+    @Before
+    public void setUp() throws Exception {
+        cachedConfigurationService = new CachedConfigurationService(delegate, 2, 100);
+        doReturn(configurations("tenant 1 content")).when(delegate).getTenantEngineConf(1L);
+        doReturn(configurations("tenant 2 content")).when(delegate).getTenantEngineConf(2L);
+        doReturn(configurations("tenant 3 content")).when(delegate).getTenantEngineConf(3L);
+    }
+
+    @Test
+    public void should_read_from_delegate_only_once() throws Exception {
+        //when
+        cachedConfigurationService.getTenantEngineConf(1L);
+        final List<BonitaConfiguration> secondRead = cachedConfigurationService.getTenantEngineConf(1L);
+
+        //then
+        assertThat(secondRead).containsExactly(new BonitaConfiguration("resource.properties", "tenant 1 content".getBytes()));
+        verify(delegate, times(1)).getTenantEngineConf(1L);
+        assertThat(cachedConfigurationService.getMissCount()).isEqualTo(1);
+        assertThat(cachedConfigurationService.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_invalidate_entry_when_storing_same_type_and_tenant() throws Exception {
+        //given
+        cachedConfigurationService.getTenantEngineConf(1L);
+        cachedConfigurationService.getTenantEngineConf(2L);
+
+        //when
+        cachedConfigurationService.storeTenantEngineConf(configurations("new content"), 1L);
+        cachedConfigurationService.getTenantEngineConf(1L);
+        cachedConfigurationService.getTenantEngineConf(2L);
+
+        //then
+        verify(delegate, times(2)).getTenantEngineConf(1L);
+        verify(delegate, times(1)).getTenantEngineConf(2L);
+    }
+
+    @Test
+    public void refresh_should_invalidate_entries_changed_since_previous_refresh() throws Exception {
+        //given
+        doReturn(4L).when(delegate).getLastConfigurationChangeId();
+        cachedConfigurationService.refresh();
+        cachedConfigurationService.getTenantEngineConf(1L);
+        cachedConfigurationService.getTenantEngineConf(2L);
+        doReturn(5L).when(delegate).getLastConfigurationChangeId();
+        doReturn(Collections.singletonList(new ConfigurationChange(5L, 1L, TENANT_ENGINE.name(), 0L))).when(delegate).getConfigurationChangesSince(4L);
+
+        //when
+        final long refreshedChangeId = cachedConfigurationService.refresh();
+        cachedConfigurationService.refresh();
+        cachedConfigurationService.getTenantEngineConf(1L);
+        cachedConfigurationService.getTenantEngineConf(2L);
+
+        //then
+        assertThat(refreshedChangeId).isEqualTo(5L);
+        verify(delegate, times(1)).getConfigurationChangesSince(anyLong());
+        verify(delegate, times(2)).getTenantEngineConf(1L);
+        verify(delegate, times(1)).getTenantEngineConf(2L);
+    }
+
+    @Test
+    public void should_invalidate_all_tenant_entries_when_deleting_tenant() throws Exception {
+        //given
+        doReturn(configurations("portal")).when(delegate).getTenantPortalConf(1L);
+        cachedConfigurationService.getTenantEngineConf(1L);
+        cachedConfigurationService.getTenantPortalConf(1L);
+
+        //when
+        cachedConfigurationService.deleteTenantConfiguration(1L);
+
+        //then
+        verify(delegate).deleteTenantConfiguration(1L);
+        assertThat(cachedConfigurationService.size()).isEqualTo(0);
+        assertThat(cachedConfigurationService.getCachedBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_invalidate_tenant_entries_when_storing_their_template() throws Exception {
+        //given
+        cachedConfigurationService = new CachedConfigurationService(delegate, 10, 1000);
+        doReturn(configurations("portal")).when(delegate).getTenantPortalConf(1L);
+        cachedConfigurationService.getTenantEngineConf(1L);
+        cachedConfigurationService.getTenantPortalConf(1L);
+
+        //when
+        cachedConfigurationService.storeTenantTemplateEngineConf(configurations("new template"));
+        cachedConfigurationService.getTenantEngineConf(1L);
+        cachedConfigurationService.getTenantPortalConf(1L);
+
+        //then
+        verify(delegate, times(2)).getTenantEngineConf(1L);
+        verify(delegate, times(1)).getTenantPortalConf(1L);
+    }
+
+    @Test
+    public void should_fetch_only_tenants_missing_from_cache_in_bulk() throws Exception {
+        //given
+        cachedConfigurationService = new CachedConfigurationService(delegate, 10, 1000);
+        cachedConfigurationService.getTenantEngineConf(1L);
+        final Map<Long, List<BonitaConfiguration>> loaded = new HashMap<>();
+        loaded.put(2L, configurations("tenant 2 content"));
+        loaded.put(3L, configurations("tenant 3 content"));
+        doReturn(loaded).when(delegate).getTenantsConfigurations(TENANT_ENGINE, Arrays.asList(2L, 3L));
+
+        //when
+        final Map<Long, List<BonitaConfiguration>> configurations = cachedConfigurationService.getTenantsConfigurations(TENANT_ENGINE,
+                Arrays.asList(3L, 1L, 2L));
+        cachedConfigurationService.getTenantEngineConf(3L);
+
+        //then
+        assertThat(configurations.keySet()).containsExactly(1L, 2L, 3L);
+        assertThat(configurations.get(1L)).isEqualTo(configurations("tenant 1 content"));
+        assertThat(configurations.get(3L)).isEqualTo(configurations("tenant 3 content"));
+        verify(delegate, never()).getTenantEngineConf(3L);
+    }
+
+    @Test
+    public void should_evict_least_recently_used_entry_when_max_entries_is_reached() throws Exception {
+        //given
+        cachedConfigurationService.getTenantEngineConf(1L);
+        cachedConfigurationService.getTenantEngineConf(2L);
+        cachedConfigurationService.getTenantEngineConf(1L);
+
+        //when
+        cachedConfigurationService.getTenantEngineConf(3L);
+
+        //then
+        assertThat(cachedConfigurationService.size()).isEqualTo(2);
+        assertThat(cachedConfigurationService.getEvictionCount()).isEqualTo(1);
+        cachedConfigurationService.getTenantEngineConf(1L);
+        cachedConfigurationService.getTenantEngineConf(2L);
+        verify(delegate, times(1)).getTenantEngineConf(1L);
+        verify(delegate, times(2)).getTenantEngineConf(2L);
+    }
+
+    @Test
+    public void should_not_cache_entry_bigger_than_max_bytes() throws Exception {
+        //given
+        doReturn(configurations(new String(new char[101]))).when(delegate).getTenantEngineConf(4L);
+
+        //when
+        cachedConfigurationService.getTenantEngineConf(4L);
+        cachedConfigurationService.getTenantEngineConf(4L);
+
+        //then
+        verify(delegate, times(2)).getTenantEngineConf(4L);
+        assertThat(cachedConfigurationService.getCachedBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_serve_single_portal_file_from_cached_list() throws Exception {
+        //given
+        doReturn(configurations("portal")).when(delegate).getTenantPortalConf(1L);
+        cachedConfigurationService.getTenantPortalConf(1L);
+
+        //when
+        final BonitaConfiguration configuration = cachedConfigurationService.getTenantPortalConfiguration(1L, "resource.properties");
+
+        //then
+        assertThat(configuration).isEqualTo(new BonitaConfiguration("resource.properties", "portal".getBytes()));
+        verify(delegate, never()).getTenantPortalConfiguration(anyLong(), anyString());
+    }
+
+    @Test
+    public void should_parse_properties_from_cached_configurations() throws Exception {
+        //given
+        doReturn(configurations("key=value")).when(delegate).getTenantEngineConf(4L);
+        cachedConfigurationService.getTenantEngineConf(4L);
+
+        //when
+        final ConfigurationProperties properties = cachedConfigurationService.getConfigurationProperties(TENANT_ENGINE, 4L, "resource.properties");
+
+        //then
+        assertThat(properties.getProperty("key")).isEqualTo("value");
+        assertThat(cachedConfigurationService.getConfigurationProperties(TENANT_ENGINE, 4L, "missing.properties")).isNull();
+        verify(delegate, never()).getConfigurationProperties(TENANT_ENGINE, 4L, "resource.properties");
+    }
+
+    @Test
+    public void should_not_alter_cache_when_returned_files_are_modified() throws Exception {
+        //given
+        final List<BonitaConfiguration> loaded = cachedConfigurationService.getTenantEngineConf(1L);
+        loaded.get(0).getResourceContent()[0] = 'X';
+        final List<BonitaConfiguration> cached = cachedConfigurationService.getTenantEngineConf(1L);
+
+        //when
+        cached.get(0).setResourceContent("modified".getBytes());
+        cached.get(0).setResourceName("renamed.properties");
+
+        //then
+        assertThat(cachedConfigurationService.getTenantEngineConf(1L))
+                .containsExactly(new BonitaConfiguration("resource.properties", "tenant 1 content".getBytes()));
+        assertThat(cachedConfigurationService.getCachedBytes()).isEqualTo("tenant 1 content".length());
+        verify(delegate, times(1)).getTenantEngineConf(1L);
+    }
+
+    private List<BonitaConfiguration> configurations(String content) {
+        return Collections.singletonList(new BonitaConfiguration("resource.properties", content.getBytes()));
+    }
+}
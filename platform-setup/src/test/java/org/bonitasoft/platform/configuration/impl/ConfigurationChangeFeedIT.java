@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_ENGINE;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_PORTAL;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.ConfigurationChange;
+import org.bonitasoft.platform.configuration.util.RecordConfigurationChangeInTransaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.RestoreSystemProperties;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Two nodes, each with its own data source, sharing an H2 file database.
+ */
+public class ConfigurationChangeFeedIT {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public RestoreSystemProperties restoreSystemProperties = new RestoreSystemProperties();
+
+    private ConfigurationServiceImpl firstNode;
+
+    private ConfigurationServiceImpl secondNode;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() throws Exception {
+        final String url = "jdbc:h2:file:" + new File(temporaryFolder.getRoot(), "bonita").getAbsolutePath() + ";MVCC=TRUE";
+        final DriverManagerDataSource firstDataSource = new DriverManagerDataSource(url, "sa", "");
+        final DriverManagerDataSource secondDataSource = new DriverManagerDataSource(url, "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("/sql/h2/createTables.sql"), new ClassPathResource("/sql/h2/initTables.sql"))
+                .execute(firstDataSource);
+        jdbcTemplate = new JdbcTemplate(firstDataSource);
+        firstNode = createService(firstDataSource);
+        secondNode = createService(secondDataSource);
+    }
+
+    private ConfigurationServiceImpl createService(DriverManagerDataSource dataSource) {
+        return new ConfigurationServiceImpl(new JdbcTemplate(dataSource), new TransactionTemplate(new DataSourceTransactionManager(dataSource)), "h2");
+    }
+
+    @Test
+    public void should_see_changes_made_by_another_node() throws Exception {
+        //given
+        final long knownChangeId = secondNode.getLastConfigurationChangeId();
+
+        //when
+        firstNode.storeTenantEngineConf(configurations("engine content"), 1L);
+        firstNode.storeTenantPortalConf(configurations("portal content"), 2L);
+        firstNode.deleteTenantConfiguration(2L);
+
+        //then
+        final long lastChangeId = secondNode.getLastConfigurationChangeId();
+        assertThat(lastChangeId).isEqualTo(knownChangeId + 3);
+        final List<ConfigurationChange> changes = secondNode.getConfigurationChangesSince(knownChangeId);
+        assertThat(changes).hasSize(3);
+        assertThat(changes.get(0).getChangeId()).isEqualTo(knownChangeId + 1);
+        assertThat(changes.get(0).concerns(TENANT_ENGINE, 1L)).isTrue();
+        assertThat(changes.get(0).concerns(TENANT_PORTAL, 1L)).isFalse();
+        assertThat(changes.get(1).concerns(TENANT_PORTAL, 2L)).isTrue();
+        assertThat(changes.get(2).getConfigurationType()).as("tenant deletion concerns all types").isNull();
+        assertThat(changes.get(2).concerns(TENANT_ENGINE, 2L)).isTrue();
+        assertThat(secondNode.getConfigurationChangesSince(lastChangeId)).isEmpty();
+    }
+
+    @Test
+    public void cached_service_should_refresh_entries_modified_by_another_node() throws Exception {
+        //given
+        firstNode.storeTenantEngineConf(configurations("first content"), 1L);
+        final CachedConfigurationService cachedSecondNode = new CachedConfigurationService(secondNode);
+        cachedSecondNode.refresh();
+        cachedSecondNode.getTenantEngineConf(1L);
+        firstNode.storeTenantEngineConf(configurations("second content"), 1L);
+
+        //when
+        final List<BonitaConfiguration> beforeRefresh = cachedSecondNode.getTenantEngineConf(1L);
+        cachedSecondNode.refresh();
+        final List<BonitaConfiguration> afterRefresh = cachedSecondNode.getTenantEngineConf(1L);
+
+        //then
+        assertThat(beforeRefresh).containsExactly(new BonitaConfiguration("resource.properties", "first content".getBytes()));
+        assertThat(afterRefresh).containsExactly(new BonitaConfiguration("resource.properties", "second content".getBytes()));
+    }
+
+    @Test
+    public void should_keep_only_latest_changes_and_refresh_all_entries_of_nodes_missing_deleted_ones() throws Exception {
+        //given
+        System.setProperty(RecordConfigurationChangeInTransaction.CHANGE_RETENTION, "2");
+        firstNode.storeTenantEngineConf(configurations("first content"), 1L);
+        final CachedConfigurationService cachedSecondNode = new CachedConfigurationService(secondNode);
+        final long knownChangeId = cachedSecondNode.refresh();
+        cachedSecondNode.getTenantEngineConf(1L);
+
+        //when
+        firstNode.storeTenantEngineConf(configurations("second content"), 1L);
+        firstNode.storeTenantPortalConf(configurations("portal content"), 2L);
+        firstNode.storeTenantPortalConf(configurations("portal content"), 3L);
+
+        //then
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "configuration_change")).isEqualTo(2);
+        assertThat(secondNode.getConfigurationChangesSince(knownChangeId).get(0).getChangeId()).isEqualTo(knownChangeId + 2);
+        assertThat(cachedSecondNode.refresh()).isEqualTo(knownChangeId + 3);
+        assertThat(cachedSecondNode.getTenantEngineConf(1L)).containsExactly(new BonitaConfiguration("resource.properties", "second content".getBytes()));
+    }
+
+    @Test
+    public void nodes_should_share_snapshot_written_by_first_reading_node() throws Exception {
+        //given
+        final File snapshotFile = new File(temporaryFolder.newFolder(), "configuration.snapshot");
+        firstNode.setSnapshotFile(snapshotFile.toPath());
+        secondNode.setSnapshotFile(snapshotFile.toPath());
+        firstNode.storeTenantEngineConf(configurations("first content"), 1L);
+        firstNode.getTenantEngineConf(1L);
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "configuration");
+
+        //when
+        final List<BonitaConfiguration> fromSnapshot = secondNode.getTenantEngineConf(1L);
+        firstNode.storeTenantEngineConf(configurations("second content"), 1L);
+        final List<BonitaConfiguration> afterChange = secondNode.getTenantEngineConf(1L);
+
+        //then
+        assertThat(fromSnapshot).containsExactly(new BonitaConfiguration("resource.properties", "first content".getBytes()));
+        assertThat(afterChange).containsExactly(new BonitaConfiguration("resource.properties", "second content".getBytes()));
+        assertThat(firstNode.getTenantEngineConf(1L)).containsExactly(new BonitaConfiguration("resource.properties", "second content".getBytes()));
+    }
+
+    private List<BonitaConfiguration> configurations(String content) {
+        return Collections.singletonList(new BonitaConfiguration("resource.properties", content.getBytes()));
+    }
+}
@@ -14,26 +14,55 @@
 package org.bonitasoft.platform.configuration.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_ENGINE;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_PORTAL;
 import static org.springframework.jdbc.datasource.init.ScriptUtils.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import javax.sql.DataSource;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
 import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.ConfigurationChangeReport;
+import org.bonitasoft.platform.configuration.model.ConfigurationIndex;
+import org.bonitasoft.platform.configuration.model.ConfigurationProperties;
+import org.bonitasoft.platform.configuration.model.ConfigurationRevision;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.ModifiedConfigurations;
+import org.bonitasoft.platform.configuration.util.ConfigurationBatches;
+import org.bonitasoft.platform.configuration.util.ContentCompression;
+import org.bonitasoft.platform.configuration.util.ContentDigest;
 import org.bonitasoft.platform.configuration.util.FolderComparator;
+import org.bonitasoft.platform.configuration.util.FullBonitaConfigurationConsumer;
+import org.bonitasoft.platform.configuration.util.GetTenantsConfigurationsInTransaction;
+import org.bonitasoft.platform.exception.PlatformException;
 import org.bonitasoft.platform.setup.PlatformSetupApplication;
 import org.bonitasoft.platform.setup.jndi.MemoryJNDISetup;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.contrib.java.lang.system.RestoreSystemProperties;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -84,6 +113,12 @@ public class ConfigurationServiceImplIT {
     @Rule
     public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Rule
+    public RestoreSystemProperties restoreSystemProperties = new RestoreSystemProperties();
+
     @Before
     public void setUpDb() throws Exception {
         dropTables();
@@ -92,6 +127,8 @@ public class ConfigurationServiceImplIT {
 
     @After
     public void cleanUpDB() throws Exception {
+        configurationService.setTenantOverlay(false);
+        configurationService.setSnapshotFile(null);
         dropTables();
     }
 
@@ -149,6 +186,27 @@ public class ConfigurationServiceImplIT {
                 new BonitaConfiguration("resourceOfTenant.xml", "resource content in tenant 1 modified".getBytes()));
     }
 
+    @Test
+    public void should_store_update_existing_rows_and_keep_others() throws Exception {
+        //given
+        configurationService.storeTenantEngineConf(Arrays.asList(
+                new BonitaConfiguration("a.xml", "content a".getBytes()),
+                new BonitaConfiguration("b.xml", "content b".getBytes())), TENANT_ID_1);
+
+        //when
+        configurationService.storeTenantEngineConf(Arrays.asList(
+                new BonitaConfiguration("b.xml", "content b modified".getBytes()),
+                new BonitaConfiguration("c.xml", "content c".getBytes())), TENANT_ID_1);
+
+        //then
+        assertThat(configurationService.getTenantEngineConf(TENANT_ID_1)).containsExactly(
+                new BonitaConfiguration("a.xml", "content a".getBytes()),
+                new BonitaConfiguration("b.xml", "content b modified".getBytes()),
+                new BonitaConfiguration("c.xml", "content c".getBytes()));
+        assertThat(jdbcTemplate.queryForObject("SELECT resource_hash FROM configuration WHERE resource_name = 'b.xml'", String.class))
+                .isEqualTo(ContentDigest.digest("content b modified".getBytes()));
+    }
+
     @Test
     public void should_store_configuration() throws Exception {
         //given
@@ -257,24 +315,651 @@ public class ConfigurationServiceImplIT {
         configurationService.storeTenantSecurityScripts(getBonitaConfigurationsSample(tenantId), tenantId);
     }
 
+    private Map<String, String> readFiles(File folder) throws Exception {
+        final Map<String, String> files = new HashMap<>();
+        for (File file : FileUtils.listFiles(folder, null, true)) {
+            files.put(folder.toPath().relativize(file.toPath()).toString(), FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+        }
+        return files;
+    }
+
     private List<BonitaConfiguration> getBonitaConfigurationsSample(long tenantId) {
         final String content = "resource content in tenant " + tenantId;
         return Collections.singletonList(
                 new BonitaConfiguration("resourceOfTenant.xml", content.getBytes()));
     }
 
+    @Test
+    public void should_retrieve_only_modified_configurations() throws Exception {
+        //given
+        configurationService.storeTenantEngineConf(Arrays.asList(
+                new BonitaConfiguration("unchanged.xml", "unchanged content".getBytes()),
+                new BonitaConfiguration("modified.xml", "new content".getBytes()),
+                new BonitaConfiguration("added.xml", "added content".getBytes())), TENANT_ID_1);
+        final Map<String, String> knownHashes = new HashMap<>();
+        knownHashes.put("unchanged.xml", ContentDigest.digest("unchanged content".getBytes()));
+        knownHashes.put("modified.xml", ContentDigest.digest("old content".getBytes()));
+        knownHashes.put("deleted.xml", ContentDigest.digest("deleted content".getBytes()));
+
+        //when
+        final ModifiedConfigurations modifiedConfigurations = configurationService.getModifiedConfigurations(TENANT_ENGINE, TENANT_ID_1, knownHashes);
+
+        //then
+        assertThat(modifiedConfigurations.getModified()).containsExactly(
+                new BonitaConfiguration("added.xml", "added content".getBytes()),
+                new BonitaConfiguration("modified.xml", "new content".getBytes()));
+        assertThat(modifiedConfigurations.getDeleted()).containsExactly("deleted.xml");
+        assertThat(jdbcTemplate.queryForObject("SELECT resource_hash FROM configuration WHERE resource_name = 'unchanged.xml'", String.class))
+                .isEqualTo(ContentDigest.digest("unchanged content".getBytes()));
+    }
+
+    @Test
+    public void should_retrieve_modified_configurations_resolved_from_template_in_overlay_mode() throws Exception {
+        //given
+        configurationService.setTenantOverlay(true);
+        configurationService.storeTenantTemplateEngineConf(Arrays.asList(
+                new BonitaConfiguration("inherited.xml", "template content".getBytes()),
+                new BonitaConfiguration("overridden.xml", "template content".getBytes()),
+                new BonitaConfiguration("template-modified.xml", "new template content".getBytes())));
+        configurationService.storeTenantEngineConf(Collections.singletonList(
+                new BonitaConfiguration("overridden.xml", "tenant content".getBytes())), TENANT_ID_1);
+        final Map<String, String> knownHashes = new HashMap<>();
+        knownHashes.put("inherited.xml", ContentDigest.digest("template content".getBytes()));
+        knownHashes.put("overridden.xml", ContentDigest.digest("template content".getBytes()));
+        knownHashes.put("template-modified.xml", ContentDigest.digest("old template content".getBytes()));
+        knownHashes.put("deleted.xml", ContentDigest.digest("deleted content".getBytes()));
+
+        //when
+        final ModifiedConfigurations modifiedConfigurations = configurationService.getModifiedConfigurations(TENANT_ENGINE, TENANT_ID_1, knownHashes);
+
+        //then
+        assertThat(modifiedConfigurations.getModified()).containsExactly(
+                new BonitaConfiguration("overridden.xml", "tenant content".getBytes()),
+                new BonitaConfiguration("template-modified.xml", "new template content".getBytes()));
+        assertThat(modifiedConfigurations.getDeleted()).containsExactly("deleted.xml");
+        assertThat(configurationService.getModifiedConfigurations(TENANT_ENGINE, TENANT_ID_5, null).getModified()).containsExactly(
+                new BonitaConfiguration("inherited.xml", "template content".getBytes()),
+                new BonitaConfiguration("overridden.xml", "template content".getBytes()),
+                new BonitaConfiguration("template-modified.xml", "new template content".getBytes()));
+    }
+
+    @Test
+    public void should_retrieve_nothing_when_all_hashes_are_known() throws Exception {
+        //given
+        storeTenantConfiguration(TENANT_ID_1);
+        final Map<String, String> knownHashes = Collections.singletonMap("resourceOfTenant.xml",
+                ContentDigest.digest("resource content in tenant 1".getBytes()));
+
+        //when
+        final ModifiedConfigurations modifiedConfigurations = configurationService.getModifiedConfigurations(TENANT_PORTAL, TENANT_ID_1, knownHashes);
+
+        //then
+        assertThat(modifiedConfigurations.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void should_compress_stored_content_and_still_read_uncompressed_rows() throws Exception {
+        //given
+        final StringBuilder properties = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            properties.append("bonita.tenant.property.").append(i).append("=value\n");
+        }
+        final byte[] content = properties.toString().getBytes();
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("uncompressed.properties", content)), TENANT_ID_1);
+        System.setProperty(ContentCompression.COMPRESSION, "true");
+
+        //when
+        configurationService.storeTenantPortalConf(Collections.singletonList(new BonitaConfiguration("compressed.properties", content)), TENANT_ID_1);
+
+        //then
+        assertThat(configurationService.getTenantEngineConf(TENANT_ID_1)).containsExactly(new BonitaConfiguration("uncompressed.properties", content));
+        assertThat(configurationService.getTenantPortalConf(TENANT_ID_1)).containsExactly(new BonitaConfiguration("compressed.properties", content));
+        final List<BonitaConfigurationDescriptor> descriptors = configurationService.getConfigurationDescriptors(TENANT_PORTAL, TENANT_ID_1);
+        assertThat(descriptors.get(0).getResourceLength()).isLessThan(content.length / 5);
+        assertThat(descriptors.get(0).getResourceHash()).isEqualTo(ContentDigest.digest(content));
+    }
+
+    @Test
+    public void should_retrieve_configurations_of_several_tenants_at_once() throws Exception {
+        //given
+        configurationService.storeTenantEngineConf(Arrays.asList(
+                new BonitaConfiguration("b.xml", "tenant 5 b".getBytes()),
+                new BonitaConfiguration("a.xml", "tenant 5 a".getBytes())), TENANT_ID_5);
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("a.xml", "tenant 1 a".getBytes())), TENANT_ID_1);
+        configurationService.storeTenantPortalConf(Collections.singletonList(new BonitaConfiguration("portal.xml", "portal".getBytes())), TENANT_ID_5);
+        final List<Long> tenantIds = new ArrayList<>();
+        for (long tenantId = 1; tenantId <= GetTenantsConfigurationsInTransaction.MAX_TENANTS_PER_QUERY + 10; tenantId++) {
+            tenantIds.add(tenantId);
+        }
+
+        //when
+        final Map<Long, List<BonitaConfiguration>> configurations = configurationService.getTenantsConfigurations(TENANT_ENGINE, tenantIds);
+
+        //then
+        assertThat(configurations).hasSize(tenantIds.size());
+        assertThat(configurations.keySet().iterator().next()).isEqualTo(TENANT_ID_1);
+        assertThat(configurations.get(TENANT_ID_1)).containsExactly(new BonitaConfiguration("a.xml", "tenant 1 a".getBytes()));
+        assertThat(configurations.get(TENANT_ID_5)).containsExactly(
+                new BonitaConfiguration("a.xml", "tenant 5 a".getBytes()),
+                new BonitaConfiguration("b.xml", "tenant 5 b".getBytes()));
+        assertThat(configurations.get(TENANT_ID_12)).isEmpty();
+    }
+
+    @Test
+    public void should_retrieve_overlaid_configurations_of_several_tenants_at_once() throws Exception {
+        //given
+        configurationService.setTenantOverlay(true);
+        configurationService.storeTenantTemplateEngineConf(Arrays.asList(
+                new BonitaConfiguration("a.xml", "template a".getBytes()),
+                new BonitaConfiguration("b.xml", "template b".getBytes())));
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("b.xml", "tenant 5 b".getBytes())), TENANT_ID_5);
+
+        //when
+        final Map<Long, List<BonitaConfiguration>> configurations = configurationService.getTenantsConfigurations(TENANT_ENGINE,
+                Arrays.asList(TENANT_ID_5, TENANT_ID_1));
+
+        //then
+        assertThat(configurations.get(TENANT_ID_1)).containsExactly(
+                new BonitaConfiguration("a.xml", "template a".getBytes()),
+                new BonitaConfiguration("b.xml", "template b".getBytes()));
+        assertThat(configurations.get(TENANT_ID_5)).containsExactly(
+                new BonitaConfiguration("a.xml", "template a".getBytes()),
+                new BonitaConfiguration("b.xml", "tenant 5 b".getBytes()));
+    }
+
+    @Test
+    public void should_create_tenant_configuration_from_template() throws Exception {
+        //given
+        configurationService.storeTenantTemplateEngineConf(Collections.singletonList(new BonitaConfiguration("engine.xml", "engine".getBytes())));
+        configurationService.storeTenantTemplatePortalConf(Arrays.asList(
+                new BonitaConfiguration("a.properties", "portal a".getBytes()),
+                new BonitaConfiguration("b.properties", "portal b".getBytes())));
+        configurationService.storeTenantTemplateSecurityScripts(Collections.singletonList(new BonitaConfiguration("Rule.groovy", "rule".getBytes())));
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("other.xml", "other".getBytes())), TENANT_ID_1);
+
+        //when
+        configurationService.createTenantConfigurationFromTemplate(TENANT_ID_5);
+
+        //then
+        assertThat(configurationService.getTenantEngineConf(TENANT_ID_5)).containsExactly(new BonitaConfiguration("engine.xml", "engine".getBytes()));
+        assertThat(configurationService.getTenantPortalConf(TENANT_ID_5)).containsExactly(
+                new BonitaConfiguration("a.properties", "portal a".getBytes()),
+                new BonitaConfiguration("b.properties", "portal b".getBytes()));
+        assertThat(configurationService.getTenantSecurityScripts(TENANT_ID_5)).containsExactly(new BonitaConfiguration("Rule.groovy", "rule".getBytes()));
+        assertThat(configurationService.getConfigurationDescriptors(TENANT_PORTAL, TENANT_ID_5)).extracting("resourceHash")
+                .containsExactly(ContentDigest.digest("portal a".getBytes()), ContentDigest.digest("portal b".getBytes()));
+        assertThat(configurationService.getTenantEngineConf(TENANT_ID_1)).containsExactly(new BonitaConfiguration("other.xml", "other".getBytes()));
+    }
+
+    @Test
+    public void should_resolve_tenant_files_from_template_and_store_only_overrides() throws Exception {
+        //given
+        configurationService.setTenantOverlay(true);
+        configurationService.storeTenantTemplatePortalConf(Arrays.asList(
+                new BonitaConfiguration("a.properties", "template a".getBytes()),
+                new BonitaConfiguration("b.properties", "template b".getBytes())));
+
+        //when
+        configurationService.storeTenantPortalConf(Arrays.asList(
+                new BonitaConfiguration("a.properties", "template a".getBytes()),
+                new BonitaConfiguration("b.properties", "tenant b".getBytes()),
+                new BonitaConfiguration("c.properties", "tenant c".getBytes())), TENANT_ID_5);
+
+        //then
+        assertThat(configurationService.getTenantPortalConf(TENANT_ID_5)).containsExactly(
+                new BonitaConfiguration("a.properties", "template a".getBytes()),
+                new BonitaConfiguration("b.properties", "tenant b".getBytes()),
+                new BonitaConfiguration("c.properties", "tenant c".getBytes()));
+        assertThat(configurationService.getTenantPortalConfiguration(TENANT_ID_5, "a.properties"))
+                .isEqualTo(new BonitaConfiguration("a.properties", "template a".getBytes()));
+        assertThat(configurationService.getConfigurationDescriptors(TENANT_PORTAL, TENANT_ID_5)).extracting("resourceName")
+                .containsExactly("b.properties", "c.properties");
+        assertThat(configurationService.getTenantPortalConf(TENANT_ID_12)).containsExactly(
+                new BonitaConfiguration("a.properties", "template a".getBytes()),
+                new BonitaConfiguration("b.properties", "template b".getBytes()));
+    }
+
+    @Test
+    public void should_delete_tenant_override_when_it_becomes_identical_to_template() throws Exception {
+        //given
+        configurationService.setTenantOverlay(true);
+        configurationService.storeTenantTemplateEngineConf(Collections.singletonList(new BonitaConfiguration("a.xml", "template".getBytes())));
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("a.xml", "tenant".getBytes())), TENANT_ID_1);
+
+        //when
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("a.xml", "template".getBytes())), TENANT_ID_1);
+
+        //then
+        assertThat(configurationService.getConfigurationDescriptors(TENANT_ENGINE, TENANT_ID_1)).isEmpty();
+        assertThat(configurationService.getTenantEngineConf(TENANT_ID_1)).containsExactly(new BonitaConfiguration("a.xml", "template".getBytes()));
+    }
+
+    @Test
+    public void should_list_configuration_descriptors_and_load_content_on_demand() throws Exception {
+        //given
+        configurationService.storeTenantEngineConf(Arrays.asList(
+                new BonitaConfiguration("a.xml", "content a".getBytes()),
+                new BonitaConfiguration("b.xml", "longer content b".getBytes())), TENANT_ID_1);
+        configurationService.storePlatformEngineConf(Collections.singletonList(
+                new BonitaConfiguration("platform.xml", "platform".getBytes())));
+
+        //when
+        final List<BonitaConfigurationDescriptor> descriptors = configurationService.getConfigurationDescriptors(TENANT_ENGINE, TENANT_ID_1);
+
+        //then
+        assertThat(descriptors).containsExactly(
+                new BonitaConfigurationDescriptor("a.xml", "TENANT_ENGINE", TENANT_ID_1, 9L, ContentDigest.digest("content a".getBytes())),
+                new BonitaConfigurationDescriptor("b.xml", "TENANT_ENGINE", TENANT_ID_1, 16L, ContentDigest.digest("longer content b".getBytes())));
+        assertThat(configurationService.getAllConfigurationDescriptors()).extracting("resourceName").containsExactly("platform.xml", "a.xml", "b.xml");
+        assertThat(configurationService.loadConfiguration(descriptors.get(1))).isEqualTo(
+                new BonitaConfiguration("b.xml", "longer content b".getBytes()));
+    }
+
+    @Test
+    public void should_push_and_pull_tenants_in_parallel() throws Exception {
+        //given
+        configurationService.storePlatformEngineConf(Collections.singletonList(new BonitaConfiguration("platform.xml", "platform".getBytes())));
+        storeTenantConfiguration(TENANT_ID_1);
+        storeTenantConfiguration(TENANT_ID_5);
+        storeTenantConfiguration(TENANT_ID_12);
+        final File sequentialFolder = temporaryFolder.newFolder();
+        configurationService.writeAllConfigurationToFolder(sequentialFolder, temporaryFolder.newFolder());
+        configurationService.deleteAllConfiguration();
+        System.setProperty(ConfigurationServiceImpl.PARALLELISM, "2");
+        System.setProperty(ConfigurationServiceImpl.PARALLEL_ATOMIC, "false");
+
+        //when
+        configurationService.storeAllConfiguration(sequentialFolder);
+        final File parallelFolder = temporaryFolder.newFolder();
+        configurationService.writeAllConfigurationToFolder(parallelFolder, temporaryFolder.newFolder());
+
+        //then
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "configuration")).isEqualTo(10);
+        assertThat(configurationService.getTenantPortalConf(TENANT_ID_5)).isEqualTo(getBonitaConfigurationsSample(TENANT_ID_5));
+        assertThat(readFiles(parallelFolder)).hasSize(10).isEqualTo(readFiles(sequentialFolder));
+    }
+
+    @Test
+    public void should_store_many_tenant_folders_through_bounded_queue() throws Exception {
+        //given
+        final File rootFolder = temporaryFolder.newFolder();
+        for (long tenantId = 1; tenantId <= 60; tenantId++) {
+            FileUtils.writeStringToFile(new File(rootFolder, "tenants/" + tenantId + "/tenant_engine/tenant.properties"), "tenant " + tenantId, StandardCharsets.UTF_8);
+        }
+        System.setProperty(ConfigurationBatches.BATCH_MAX_ROWS, "7");
+
+        //when
+        configurationService.storeAllConfiguration(rootFolder);
+
+        //then
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "configuration")).isEqualTo(60);
+        assertThat(configurationService.getTenantEngineConf(42L)).containsExactly(new BonitaConfiguration("tenant.properties", "tenant 42".getBytes()));
+    }
+
+    @Test
+    public void should_export_and_import_all_configuration_through_archive() throws Exception {
+        //given
+        configurationService.storePlatformEngineConf(Collections.singletonList(new BonitaConfiguration("platform.xml", "platform".getBytes())));
+        final File licensesFolder = temporaryFolder.newFolder();
+        FileUtils.writeStringToFile(new File(licensesFolder, "license.lic"), "license", StandardCharsets.UTF_8);
+        configurationService.storeLicenses(licensesFolder);
+        storeTenantConfiguration(TENANT_ID_1);
+        storeTenantConfiguration(TENANT_ID_5);
+        final File exportedFolder = temporaryFolder.newFolder();
+        configurationService.writeAllConfigurationToFolder(exportedFolder, exportedFolder);
+        final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        configurationService.exportAllConfiguration(archive);
+        configurationService.deleteAllConfiguration();
+        storeTenantConfiguration(TENANT_ID_12);
+
+        //when
+        configurationService.importAllConfiguration(new ByteArrayInputStream(archive.toByteArray()));
+
+        //then
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "configuration")).isEqualTo(8);
+        assertThat(configurationService.getTenantEngineConf(TENANT_ID_12)).as("should replace existing configuration").isEmpty();
+        final File importedFolder = temporaryFolder.newFolder();
+        configurationService.writeAllConfigurationToFolder(importedFolder, importedFolder);
+        assertThat(readFiles(importedFolder)).hasSize(8).isEqualTo(readFiles(exportedFolder));
+    }
+
+    @Test
+    public void should_not_modify_configuration_when_importing_corrupted_archive() throws Exception {
+        //given
+        storeTenantConfiguration(TENANT_ID_1);
+        final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        configurationService.exportAllConfiguration(archive);
+        final ByteArrayOutputStream corruptedArchive = new ByteArrayOutputStream();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()));
+                ZipOutputStream zipOutputStream = new ZipOutputStream(corruptedArchive)) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                zipOutputStream.putNextEntry(new ZipEntry(entry.getName()));
+                final byte[] content = IOUtils.toByteArray(zipInputStream);
+                zipOutputStream.write(entry.getName().equals("tenants/1/tenant_portal/resourceOfTenant.xml") ? "corrupted".getBytes() : content);
+                zipOutputStream.closeEntry();
+            }
+        }
+        storeTenantConfiguration(TENANT_ID_5);
+
+        //expect
+        expectedException.expect(PlatformException.class);
+        expectedException.expectMessage("does not match its hash in manifest: tenants/1/tenant_portal/resourceOfTenant.xml");
+
+        //when
+        try {
+            configurationService.importAllConfiguration(new ByteArrayInputStream(corruptedArchive.toByteArray()));
+        } finally {
+            //then
+            assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "configuration")).isEqualTo(6);
+        }
+    }
+
+    @Test
+    public void should_store_only_given_configuration_files() throws Exception {
+        //given
+        configurationService.storeTenantEngineConf(Arrays.asList(new BonitaConfiguration("unchanged.xml", "unchanged".getBytes()),
+                new BonitaConfiguration("updated.xml", "before".getBytes()), new BonitaConfiguration("deleted.xml", "deleted".getBytes()),
+                new BonitaConfiguration("untouched.xml", "untouched".getBytes())), TENANT_ID_1);
+
+        //when
+        final ConfigurationChangeReport report = configurationService.storeConfigurationFiles(
+                Arrays.asList(new FullBonitaConfiguration("unchanged.xml", "unchanged".getBytes(), TENANT_ENGINE.name(), TENANT_ID_1),
+                        new FullBonitaConfiguration("updated.xml", "after".getBytes(), TENANT_ENGINE.name(), TENANT_ID_1),
+                        new FullBonitaConfiguration("added.xml", "added".getBytes(), TENANT_PORTAL.name(), TENANT_ID_5)),
+                Arrays.asList(new BonitaConfigurationDescriptor("deleted.xml", TENANT_ENGINE.name(), TENANT_ID_1, 0, null),
+                        new BonitaConfigurationDescriptor("missing.xml", TENANT_ENGINE.name(), TENANT_ID_1, 0, null)));
+
+        //then
+        assertThat(getResourceNames(report.getAdded())).containsOnly("added.xml");
+        assertThat(getResourceNames(report.getUpdated())).containsOnly("updated.xml");
+        assertThat(getResourceNames(report.getDeleted())).containsOnly("deleted.xml");
+        assertThat(configurationService.getTenantEngineConf(TENANT_ID_1)).containsOnly(new BonitaConfiguration("unchanged.xml", "unchanged".getBytes()),
+                new BonitaConfiguration("updated.xml", "after".getBytes()), new BonitaConfiguration("untouched.xml", "untouched".getBytes()));
+        assertThat(configurationService.getTenantPortalConf(TENANT_ID_5)).containsOnly(new BonitaConfiguration("added.xml", "added".getBytes()));
+    }
+
+    @Test
+    public void should_read_configuration_from_snapshot_until_configuration_changes() throws Exception {
+        //given
+        final File snapshotFile = new File(temporaryFolder.newFolder(), "configuration.snapshot");
+        configurationService.setSnapshotFile(snapshotFile.toPath());
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("engine.xml", "before".getBytes())), TENANT_ID_1);
+        assertThat(configurationService.getTenantEngineConf(TENANT_ID_1)).containsOnly(new BonitaConfiguration("engine.xml", "before".getBytes()));
+        final long changeIdBefore = configurationService.getLastConfigurationChangeId();
+        assertThat(new File(snapshotFile.getPath() + "." + changeIdBefore)).exists();
+
+        //when
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "configuration");
+
+        //then
+        assertThat(configurationService.getTenantEngineConf(TENANT_ID_1)).containsOnly(new BonitaConfiguration("engine.xml", "before".getBytes()));
+        assertThat(configurationService.loadConfiguration(new BonitaConfigurationDescriptor("engine.xml", TENANT_ENGINE.name(), TENANT_ID_1, 0, null))
+                .getResourceContent()).isEqualTo("before".getBytes());
+
+        //when
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("engine.xml", "after".getBytes())), TENANT_ID_1);
+
+        //then
+        assertThat(configurationService.getTenantEngineConf(TENANT_ID_1)).containsOnly(new BonitaConfiguration("engine.xml", "after".getBytes()));
+        assertThat(configurationService.getTenantPortalConf(TENANT_ID_1)).isEmpty();
+        assertThat(new File(snapshotFile.getPath() + "." + changeIdBefore)).doesNotExist();
+        assertThat(new File(snapshotFile.getPath() + "." + configurationService.getLastConfigurationChangeId())).exists();
+    }
+
+    @Test
+    public void should_index_all_configuration() throws Exception {
+        //given
+        storeTenantConfiguration(TENANT_ID_1);
+        configurationService.storeTenantPortalConf(Collections.singletonList(new BonitaConfiguration("portal.xml", "portal".getBytes())), TENANT_ID_5);
+
+        //when
+        final ConfigurationIndex index = configurationService.getConfigurationIndex();
+
+        //then
+        assertThat(index.getChangeId()).isEqualTo(configurationService.getLastConfigurationChangeId());
+        assertThat(index.getTenantIds()).containsOnly(TENANT_ID_1, TENANT_ID_5);
+        assertThat(index.getFiles(TENANT_ID_1, TENANT_ENGINE)).hasSize(configurationService.getTenantEngineConf(TENANT_ID_1).size());
+        assertThat(index.getFile(TENANT_ID_5, TENANT_PORTAL, "portal.xml").toBonitaConfiguration())
+                .isEqualTo(new BonitaConfiguration("portal.xml", "portal".getBytes()));
+        assertThat(index.getFile(TENANT_ID_5, TENANT_ENGINE, "portal.xml")).isNull();
+    }
+
+    @Test
+    public void should_index_tenant_files_resolved_from_template_in_overlay_mode() throws Exception {
+        //given
+        configurationService.setTenantOverlay(true);
+        configurationService.storeTenantTemplateEngineConf(Arrays.asList(
+                new BonitaConfiguration("inherited.xml", "template".getBytes()),
+                new BonitaConfiguration("overridden.xml", "template".getBytes())));
+        configurationService.storeTenantTemplatePortalConf(Collections.singletonList(new BonitaConfiguration("portal.xml", "portal".getBytes())));
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("overridden.xml", "tenant".getBytes())), TENANT_ID_1);
+
+        //when
+        final ConfigurationIndex index = configurationService.getConfigurationIndex();
+
+        //then
+        assertThat(index.getTenantIds()).containsOnly(0L, TENANT_ID_1);
+        assertThat(index.getFiles(TENANT_ID_1, TENANT_ENGINE)).extracting("resourceName").containsExactly("inherited.xml", "overridden.xml");
+        assertThat(index.getFile(TENANT_ID_1, TENANT_ENGINE, "inherited.xml").toBonitaConfiguration())
+                .isEqualTo(new BonitaConfiguration("inherited.xml", "template".getBytes()));
+        assertThat(index.getFile(TENANT_ID_1, TENANT_ENGINE, "overridden.xml").toBonitaConfiguration())
+                .isEqualTo(new BonitaConfiguration("overridden.xml", "tenant".getBytes()));
+        assertThat(index.getFile(TENANT_ID_1, TENANT_PORTAL, "portal.xml").toBonitaConfiguration())
+                .isEqualTo(new BonitaConfiguration("portal.xml", "portal".getBytes()));
+        assertThat(index.getFileCount()).isEqualTo(6);
+    }
+
+    @Test
+    public void should_read_properties_content_only_when_its_hash_is_not_parsed_yet() throws Exception {
+        //given
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("tenant.properties", "key=value".getBytes())),
+                TENANT_ID_1);
+        final ConfigurationProperties parsed = configurationService.getConfigurationProperties(TENANT_ENGINE, TENANT_ID_1, "tenant.properties");
+        // content changed without changing its hash: only a read of the content would see it
+        jdbcTemplate.update("UPDATE configuration SET resource_content = ? WHERE resource_name = 'tenant.properties'", (Object) "key=changed".getBytes());
+
+        //when
+        final ConfigurationProperties cached = configurationService.getConfigurationProperties(TENANT_ENGINE, TENANT_ID_1, "tenant.properties");
+
+        //then
+        assertThat(cached).isSameAs(parsed);
+    }
+
+    @Test
+    public void should_parse_identical_properties_of_several_tenants_once() throws Exception {
+        //given
+        configurationService.setTenantOverlay(true);
+        configurationService.storeTenantTemplateEngineConf(Collections.singletonList(
+                new BonitaConfiguration("tenant.properties", "key=template value".getBytes())));
+        configurationService.storeTenantEngineConf(Collections.singletonList(
+                new BonitaConfiguration("tenant.properties", "key=template value".getBytes())), TENANT_ID_1);
+        configurationService.storeTenantEngineConf(Collections.singletonList(
+                new BonitaConfiguration("tenant.properties", "key=tenant 12 value".getBytes())), TENANT_ID_12);
+
+        //when
+        final ConfigurationProperties tenant1 = configurationService.getConfigurationProperties(TENANT_ENGINE, TENANT_ID_1, "tenant.properties");
+        final ConfigurationProperties tenant5 = configurationService.getConfigurationProperties(TENANT_ENGINE, TENANT_ID_5, "tenant.properties");
+        final ConfigurationProperties tenant12 = configurationService.getConfigurationProperties(TENANT_ENGINE, TENANT_ID_12, "tenant.properties");
+
+        //then
+        assertThat(tenant1.getProperty("key")).isEqualTo("template value");
+        assertThat(tenant5).as("tenant 5 file is resolved from template, with the same content as tenant 1 file").isSameAs(tenant1);
+        assertThat(tenant12.getProperty("key")).isEqualTo("tenant 12 value");
+        assertThat(configurationService.getConfigurationProperties(TENANT_ENGINE, TENANT_ID_1, "missing.properties")).isNull();
+    }
+
+    @Test
+    public void should_create_configuration_revision_only_when_configuration_changed() throws Exception {
+        //given
+        storeTenantConfiguration(TENANT_ID_1);
+        final long first = configurationService.createConfigurationRevision("first");
+
+        //when
+        final long unchanged = configurationService.createConfigurationRevision("unchanged");
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("new.xml", "new".getBytes())), TENANT_ID_1);
+        final long second = configurationService.createConfigurationRevision("second");
+
+        //then
+        assertThat(unchanged).isEqualTo(first);
+        assertThat(second).isEqualTo(first + 1);
+        final List<ConfigurationRevision> revisions = configurationService.getConfigurationRevisions();
+        assertThat(revisions).hasSize(2);
+        assertThat(revisions.get(0).getDescription()).isEqualTo("first");
+        assertThat(revisions.get(1).getDescription()).isEqualTo("second");
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "configuration_history")).as("should only add new file to history").isEqualTo(4);
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "configuration_content")).as("should store identical contents once")
+                .isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT resource_hash) FROM configuration", Integer.class));
+    }
+
+    @Test
+    public void should_number_revisions_after_existing_ones_when_revision_counter_is_missing() throws Exception {
+        //given
+        storeTenantConfiguration(TENANT_ID_1);
+        final long first = configurationService.createConfigurationRevision("first");
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "configuration_revision_counter");
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("new.xml", "new".getBytes())), TENANT_ID_1);
+
+        //when
+        final long second = configurationService.createConfigurationRevision("second");
+
+        //then
+        assertThat(second).isEqualTo(first + 1);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_revision FROM configuration_revision_counter", Long.class)).isEqualTo(second);
+    }
+
+    @Test
+    public void should_diff_configuration_revisions() throws Exception {
+        //given
+        configurationService.storeTenantEngineConf(Arrays.asList(new BonitaConfiguration("unchanged.xml", "unchanged".getBytes()),
+                new BonitaConfiguration("updated.xml", "before".getBytes()), new BonitaConfiguration("deleted.xml", "deleted".getBytes())), TENANT_ID_1);
+        final long before = configurationService.createConfigurationRevision("before");
+        configurationService.storeTenantEngineConf(Arrays.asList(new BonitaConfiguration("unchanged.xml", "unchanged".getBytes()),
+                new BonitaConfiguration("updated.xml", "after".getBytes()), new BonitaConfiguration("added.xml", "added".getBytes())), TENANT_ID_1);
+        jdbcTemplate.update("DELETE FROM configuration WHERE resource_name = 'deleted.xml'");
+        final long after = configurationService.createConfigurationRevision("after");
+
+        //when
+        final ConfigurationChangeReport report = configurationService.diffConfigurationRevisions(before, after);
+
+        //then
+        assertThat(getResourceNames(report.getAdded())).containsOnly("added.xml");
+        assertThat(getResourceNames(report.getUpdated())).containsOnly("updated.xml");
+        assertThat(getResourceNames(report.getDeleted())).containsOnly("deleted.xml");
+        assertThat(configurationService.diffConfigurationRevisions(after, after).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void should_rollback_configuration_to_revision() throws Exception {
+        //given
+        storeTenantConfiguration(TENANT_ID_1);
+        final File expectedFolder = temporaryFolder.newFolder();
+        configurationService.writeAllConfigurationToFolder(expectedFolder, expectedFolder);
+        final long revision = configurationService.createConfigurationRevision("initial");
+        configurationService.deleteAllConfiguration();
+        storeTenantConfiguration(TENANT_ID_5);
+        configurationService.storeTenantEngineConf(Collections.singletonList(new BonitaConfiguration("resourceOfTenant.xml", "modified".getBytes())),
+                TENANT_ID_1);
+
+        //when
+        final long rollbackRevision = configurationService.rollbackConfiguration(revision);
+
+        //then
+        final File rolledBackFolder = temporaryFolder.newFolder();
+        configurationService.writeAllConfigurationToFolder(rolledBackFolder, rolledBackFolder);
+        assertThat(readFiles(rolledBackFolder)).isEqualTo(readFiles(expectedFolder));
+        assertThat(configurationService.diffConfigurationRevisions(revision, rollbackRevision).isEmpty()).isTrue();
+        final List<ConfigurationRevision> revisions = configurationService.getConfigurationRevisions();
+        assertThat(revisions).hasSize(3);
+        assertThat(revisions.get(1).getDescription()).isEqualTo("before rollback to revision " + revision);
+        assertThat(configurationService.diffConfigurationRevisions(revision, revisions.get(1).getRevision()).getAdded()).hasSize(3);
+    }
+
+    @Test
+    public void should_not_rollback_configuration_to_unknown_revision() throws Exception {
+        //given
+        storeTenantConfiguration(TENANT_ID_1);
+
+        //expect
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("configuration revision 42 does not exist");
+
+        //when
+        try {
+            configurationService.rollbackConfiguration(42L);
+        } finally {
+            //then
+            assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "configuration")).isEqualTo(3);
+        }
+    }
+
+    private List<String> getResourceNames(List<BonitaConfigurationDescriptor> descriptors) {
+        final List<String> resourceNames = new ArrayList<>();
+        for (BonitaConfigurationDescriptor descriptor : descriptors) {
+            resourceNames.add(descriptor.getResourceName());
+        }
+        return resourceNames;
+    }
+
+    @Test
+    public void should_stream_all_configuration_in_order() throws Exception {
+        //given
+        storeTenantConfiguration(TENANT_ID_12);
+        storeTenantConfiguration(TENANT_ID_5);
+        configurationService.storePlatformEngineConf(Collections.singletonList(
+                new BonitaConfiguration("platform.xml", "platform".getBytes())));
+        final List<FullBonitaConfiguration> streamed = new ArrayList<>();
+
+        //when
+        configurationService.streamAllConfiguration(new FullBonitaConfigurationConsumer() {
+
+            @Override
+            public void accept(FullBonitaConfiguration fullBonitaConfiguration) {
+                streamed.add(fullBonitaConfiguration);
+            }
+        }, 2);
+
+        //then
+        assertThat(streamed).extracting("tenantId").containsExactly(0L, 5L, 5L, 5L, 12L, 12L, 12L);
+        assertThat(streamed.get(1)).isEqualTo(
+                new FullBonitaConfiguration("resourceOfTenant.xml", "resource content in tenant 5".getBytes(), "TENANT_ENGINE", TENANT_ID_5));
+    }
+
+    @Test
+    public void should_stop_streaming_when_consumer_fails() throws Exception {
+        //given
+        storeTenantConfiguration(TENANT_ID_1);
+        final PlatformException failure = new PlatformException("unable to write");
+
+        //expect
+        expectedException.expect(is(failure));
+
+        //when
+        configurationService.streamAllConfiguration(new FullBonitaConfigurationConsumer() {
+
+            @Override
+            public void accept(FullBonitaConfiguration fullBonitaConfiguration) throws PlatformException {
+                throw failure;
+            }
+        }, 0);
+    }
+
     private void createTables() throws Exception {
         final InputStream createTableResource = this.getClass().getResourceAsStream("/sql/" + dbVendor + "/createTables.sql");
-        ScriptUtils.executeSqlScript(getConnection(),
-                new EncodedResource(new InputStreamResource(createTableResource)), false, false, DEFAULT_COMMENT_PREFIX, getDefaultStatementSeparator(),
-                DEFAULT_BLOCK_COMMENT_START_DELIMITER, DEFAULT_BLOCK_COMMENT_END_DELIMITER);
+        try (Connection connection = getConnection()) {
+            ScriptUtils.executeSqlScript(connection,
+                    new EncodedResource(new InputStreamResource(createTableResource)), false, false, DEFAULT_COMMENT_PREFIX, getDefaultStatementSeparator(),
+                    DEFAULT_BLOCK_COMMENT_START_DELIMITER, DEFAULT_BLOCK_COMMENT_END_DELIMITER);
+        }
     }
 
     private void dropTables() throws Exception {
         final InputStream dropTablesResource = this.getClass().getResourceAsStream("/sql/" + dbVendor + "/dropTables.sql");
-        ScriptUtils.executeSqlScript(getConnection(),
-                new EncodedResource(new InputStreamResource(dropTablesResource)), true, true, DEFAULT_COMMENT_PREFIX, getDefaultStatementSeparator(),
-                DEFAULT_BLOCK_COMMENT_START_DELIMITER, DEFAULT_BLOCK_COMMENT_END_DELIMITER);
+        try (Connection connection = getConnection()) {
+            ScriptUtils.executeSqlScript(connection,
+                    new EncodedResource(new InputStreamResource(dropTablesResource)), true, true, DEFAULT_COMMENT_PREFIX, getDefaultStatementSeparator(),
+                    DEFAULT_BLOCK_COMMENT_START_DELIMITER, DEFAULT_BLOCK_COMMENT_END_DELIMITER);
+        }
     }
 
     private String getDefaultStatementSeparator() {
@@ -24,6 +24,7 @@ import java.util.List;
 
 import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
 import org.bonitasoft.platform.configuration.type.ConfigurationType;
+import org.bonitasoft.platform.configuration.util.FullBonitaConfigurationConsumer;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -31,7 +32,9 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 /**
  * @author laurent Leseigneur
@@ -99,11 +102,21 @@ public class ConfigurationServiceImplTest {
         //given
         final File configFolder = temporaryFolder.newFolder("conf");
         final File licFolder = temporaryFolder.newFolder("lic");
-        List<FullBonitaConfiguration> confs = new ArrayList<>();
+        final List<FullBonitaConfiguration> confs = new ArrayList<>();
         confs.add(new FullBonitaConfiguration("conf1.properties", "content 1".getBytes(), "PLATFORM_TYPE", 0L));
         confs.add(new FullBonitaConfiguration("conf2.properties", "content 2".getBytes(), "TENANT_TYPE", 5L));
 
-        doReturn(confs).when(configurationService).getAllConfiguration();
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                final FullBonitaConfigurationConsumer consumer = (FullBonitaConfigurationConsumer) invocation.getArguments()[0];
+                for (FullBonitaConfiguration conf : confs) {
+                    consumer.accept(conf);
+                }
+                return null;
+            }
+        }).when(configurationService).streamAllConfiguration(any(FullBonitaConfigurationConsumer.class), anyInt());
         doCallRealMethod().when(configurationService).writeAllConfigurationToFolder(configFolder, licFolder);
 
         //when
@@ -1,5 +1,7 @@
 package org.bonitasoft.platform.configuration.model;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import org.junit.Test;
 
 /**
@@ -19,4 +21,15 @@ public class BonitaConfigurationTest {
 
     }
 
+    @Test
+    public void equal_configurations_should_have_same_hash_code() {
+        //given
+        BonitaConfiguration bonitaConfiguration = new BonitaConfiguration("my resource", "my content".getBytes());
+        BonitaConfiguration sameConfiguration = new BonitaConfiguration("my resource", "my content".getBytes());
+
+        //then
+        assertThat(sameConfiguration).isEqualTo(bonitaConfiguration);
+        assertThat(sameConfiguration.hashCode()).isEqualTo(bonitaConfiguration.hashCode());
+    }
+
 }
@@ -0,0 +1,67 @@
+package org.bonitasoft.platform.configuration.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_ENGINE;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_PORTAL;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class ConfigurationFileTest {
+
+    @Test
+    public void files_with_same_key_and_content_should_be_deduplicated() throws Exception {
+        //given
+        final ConfigurationFile file = ConfigurationFile.of(TENANT_ENGINE, 1L, "a.xml", "content".getBytes());
+        final ConfigurationFile sameFromSlice = ConfigurationFile.of(TENANT_ENGINE, 1L, "a.xml",
+                (ByteBuffer) ByteBuffer.wrap("my content here".getBytes()).position(3).limit(10));
+
+        //when
+        final HashSet<ConfigurationFile> files = new HashSet<>(Arrays.asList(file, sameFromSlice,
+                ConfigurationFile.of(TENANT_ENGINE, 2L, "a.xml", "content".getBytes()),
+                ConfigurationFile.of(TENANT_PORTAL, 1L, "a.xml", "content".getBytes()),
+                ConfigurationFile.of(TENANT_ENGINE, 1L, "a.xml", "other content".getBytes())));
+
+        //then
+        assertThat(sameFromSlice).isEqualTo(file);
+        assertThat(sameFromSlice.getContentHash()).isEqualTo(file.getContentHash());
+        assertThat(files).hasSize(4);
+    }
+
+    @Test
+    public void content_should_be_read_only_and_shared() throws Exception {
+        //given
+        final byte[] bytes = "content".getBytes();
+        final ConfigurationFile file = ConfigurationFile.of(TENANT_ENGINE, 1L, "a.xml", bytes);
+
+        //when
+        final ByteBuffer content = file.getContent();
+        content.get(new byte[3]);
+
+        //then
+        assertThat(content.isReadOnly()).isTrue();
+        assertThat(file.getContentLength()).isEqualTo(7);
+        assertThat(file.getContent().position()).as("views have their own position").isEqualTo(0);
+        bytes[0] = 'C';
+        assertThat(file.getContent().get(0)).as("content is not copied").isEqualTo((byte) 'C');
+    }
+
+    @Test
+    public void should_convert_from_and_to_bonita_configuration() throws Exception {
+        //given
+        final FullBonitaConfiguration fullBonitaConfiguration = new FullBonitaConfiguration("a.xml", "content".getBytes(), TENANT_ENGINE.name(), 5L);
+
+        //when
+        final ConfigurationFile file = ConfigurationFile.of(fullBonitaConfiguration);
+
+        //then
+        assertThat(file.getType()).isEqualTo(TENANT_ENGINE);
+        assertThat(file.getTenantId()).isEqualTo(5L);
+        assertThat(file.toFullBonitaConfiguration()).isEqualTo(fullBonitaConfiguration);
+        assertThat(file.toBonitaConfiguration()).isEqualTo(new BonitaConfiguration("a.xml", "content".getBytes()));
+        assertThat(file.toBonitaConfiguration().getResourceContent()).isNotSameAs(fullBonitaConfiguration.getResourceContent());
+    }
+}
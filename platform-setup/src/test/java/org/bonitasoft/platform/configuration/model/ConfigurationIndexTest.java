@@ -0,0 +1,66 @@
+package org.bonitasoft.platform.configuration.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.PLATFORM_ENGINE;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_ENGINE;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_PORTAL;
+
+import org.junit.Test;
+
+public class ConfigurationIndexTest {
+
+    @Test
+    public void should_find_files_of_many_tenants() throws Exception {
+        //given
+        final ConfigurationIndex.Builder builder = new ConfigurationIndex.Builder();
+        builder.add(ConfigurationFile.of(PLATFORM_ENGINE, 0L, "platform.xml", "platform".getBytes()));
+        for (long tenantId = 1000; tenantId >= 1; tenantId--) {
+            builder.add(ConfigurationFile.of(TENANT_ENGINE, tenantId, "b.xml", ("b" + tenantId).getBytes()));
+            builder.add(ConfigurationFile.of(TENANT_ENGINE, tenantId, "a.xml", ("a" + tenantId).getBytes()));
+        }
+
+        //when
+        final ConfigurationIndex index = builder.build(7L);
+
+        //then
+        assertThat(index.getChangeId()).isEqualTo(7L);
+        assertThat(index.getTenantCount()).isEqualTo(1001);
+        assertThat(index.getFileCount()).isEqualTo(2001);
+        assertThat(index.getTenantIds()).hasSize(1001).startsWith(0L, 1L, 2L).endsWith(1000L);
+        assertThat(index.getFile(0L, PLATFORM_ENGINE, "platform.xml")).isEqualTo(ConfigurationFile.of(PLATFORM_ENGINE, 0L, "platform.xml",
+                "platform".getBytes()));
+        for (long tenantId = 1; tenantId <= 1000; tenantId++) {
+            assertThat(index.getFile(tenantId, TENANT_ENGINE, "a.xml").getContentBytes()).isEqualTo(("a" + tenantId).getBytes());
+            assertThat(index.getFile(tenantId, TENANT_ENGINE, "b.xml").getContentBytes()).isEqualTo(("b" + tenantId).getBytes());
+            assertThat(index.getFileCount(tenantId, TENANT_ENGINE)).isEqualTo(2);
+            assertThat(index.getFile(tenantId, TENANT_ENGINE, 0).getResourceName()).isEqualTo("a.xml");
+        }
+    }
+
+    @Test
+    public void should_not_find_missing_files() throws Exception {
+        //given
+        final ConfigurationIndex index = new ConfigurationIndex.Builder()
+                .add(ConfigurationFile.of(TENANT_ENGINE, 1L, "a.xml", "a".getBytes()))
+                .build(1L);
+
+        //then
+        assertThat(index.getFile(1L, TENANT_ENGINE, "missing.xml")).isNull();
+        assertThat(index.getFile(1L, TENANT_PORTAL, "a.xml")).isNull();
+        assertThat(index.getFile(2L, TENANT_ENGINE, "a.xml")).isNull();
+        assertThat(index.getFiles(1L, TENANT_PORTAL)).isEmpty();
+        assertThat(index.getFiles(2L, TENANT_ENGINE)).isEmpty();
+        assertThat(index.hasTenant(1L)).isTrue();
+        assertThat(index.hasTenant(0L)).isFalse();
+    }
+
+    @Test
+    public void empty_index_should_have_no_files() throws Exception {
+        //when
+        final ConfigurationIndex index = new ConfigurationIndex.Builder().build(0L);
+
+        //then
+        assertThat(index.getTenantIds()).isEmpty();
+        assertThat(index.getFile(0L, PLATFORM_ENGINE, "platform.xml")).isNull();
+    }
+}
@@ -0,0 +1,43 @@
+package org.bonitasoft.platform.configuration.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class ConfigurationPropertiesTest {
+
+    @Test
+    public void should_parse_properties() throws Exception {
+        //when
+        final ConfigurationProperties properties = ConfigurationProperties.parse("# comment\nb=value b\na = value a\nescaped=caf\\u00e9".getBytes());
+
+        //then
+        assertThat(properties.size()).isEqualTo(3);
+        assertThat(properties.getPropertyNames()).containsExactly("a", "b", "escaped");
+        assertThat(properties.getProperty("a")).isEqualTo("value a");
+        assertThat(properties.getProperty("escaped")).isEqualTo("caf\u00e9");
+        assertThat(properties.getProperty("missing")).isNull();
+        assertThat(properties.getProperty("missing", "default")).isEqualTo("default");
+        assertThat(properties.containsProperty("b")).isTrue();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void view_should_be_immutable() throws Exception {
+        ConfigurationProperties.parse("key=value".getBytes()).asMap().put("key", "modified");
+    }
+
+    @Test
+    public void should_give_mutable_copy() throws Exception {
+        //given
+        final ConfigurationProperties properties = ConfigurationProperties.parse("key=copied value".getBytes());
+
+        //when
+        final Properties copy = properties.toProperties();
+        copy.setProperty("key", "modified");
+
+        //then
+        assertThat(properties.getProperty("key")).isEqualTo("copied value");
+    }
+}
@@ -4,9 +4,11 @@ import java.io.File;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.assertj.core.api.Assertions;
 import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.exception.PlatformException;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,4 +50,30 @@ public class AllConfigurationResourceVisitorTest {
                         "bonita-platform-community.properties");
 
     }
+
+    @Test
+    public void should_stop_walk_when_consumer_fails() throws Exception {
+        //given
+        final File rootFolder = new File(this.getClass().getResource("/allConfiguration").getFile());
+        final PlatformException failure = new PlatformException("queue is closed");
+        final AtomicInteger received = new AtomicInteger();
+        final AllConfigurationResourceVisitor resourceVisitor = new AllConfigurationResourceVisitor(new FullBonitaConfigurationConsumer() {
+
+            @Override
+            public void accept(FullBonitaConfiguration fullBonitaConfiguration) throws PlatformException {
+                received.incrementAndGet();
+                throw failure;
+            }
+        });
+
+        //when
+        try {
+            Files.walkFileTree(rootFolder.toPath(), resourceVisitor);
+            Assertions.fail("walk should have been stopped");
+        } catch (AllConfigurationResourceVisitor.ConsumerIOException e) {
+            //then
+            Assertions.assertThat(e.getCause()).isSameAs(failure);
+        }
+        Assertions.assertThat(received.get()).isEqualTo(1);
+    }
 }
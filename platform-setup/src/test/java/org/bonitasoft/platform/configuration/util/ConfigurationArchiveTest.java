@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class ConfigurationArchiveTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void should_name_entries_as_pulled_files() {
+        assertThat(ConfigurationArchive.getEntryName(0L, "PLATFORM_ENGINE", "platform.xml")).isEqualTo("platform_engine/platform.xml");
+        assertThat(ConfigurationArchive.getEntryName(0L, "LICENSES", "license.lic")).isEqualTo("licenses/license.lic");
+        assertThat(ConfigurationArchive.getEntryName(12L, "TENANT_PORTAL", "portal.properties")).isEqualTo("tenants/12/tenant_portal/portal.properties");
+    }
+
+    @Test
+    public void should_read_written_manifest() throws Exception {
+        //given
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ConfigurationArchive.writeManifest(Arrays.asList(
+                new BonitaConfigurationDescriptor("platform.xml", "PLATFORM_ENGINE", 0L, 8L, ContentDigest.digest("platform".getBytes())),
+                new BonitaConfigurationDescriptor("file with spaces.properties", "TENANT_ENGINE", 5L, 3L, null)), outputStream);
+
+        //when
+        final Map<String, ConfigurationArchive.ManifestEntry> manifest = ConfigurationArchive.readManifest(
+                new ByteArrayInputStream(outputStream.toByteArray()));
+
+        //then
+        assertThat(manifest.keySet()).containsExactly("platform_engine/platform.xml", "tenants/5/tenant_engine/file with spaces.properties");
+        final ConfigurationArchive.ManifestEntry platformEntry = manifest.get("platform_engine/platform.xml");
+        assertThat(platformEntry.getResourceHash()).isEqualTo(ContentDigest.digest("platform".getBytes()));
+        assertThat(platformEntry.getTenantId()).isEqualTo(0L);
+        final ConfigurationArchive.ManifestEntry tenantEntry = manifest.get("tenants/5/tenant_engine/file with spaces.properties");
+        assertThat(tenantEntry.getResourceHash()).isNull();
+        assertThat(tenantEntry.getConfigurationType()).isEqualTo("TENANT_ENGINE");
+        assertThat(tenantEntry.getResourceName()).isEqualTo("file with spaces.properties");
+    }
+
+    @Test
+    public void should_reject_manifest_without_header() throws Exception {
+        //expect
+        expectedException.expect(PlatformException.class);
+        expectedException.expectMessage("manifest header is missing");
+
+        //when
+        ConfigurationArchive.readManifest(new ByteArrayInputStream("0\tPLATFORM_ENGINE\t-\tplatform.xml\n".getBytes()));
+    }
+
+    @Test
+    public void should_reject_unknown_configuration_type_in_manifest() throws Exception {
+        //expect
+        expectedException.expect(PlatformException.class);
+        expectedException.expectMessage("unknown configuration type");
+
+        //when
+        ConfigurationArchive.readManifest(new ByteArrayInputStream((ConfigurationArchive.MANIFEST_HEADER + "\n0\tPLATFORM_UNKNOWN\t-\tplatform.xml\n").getBytes()));
+    }
+
+    @Test
+    public void should_reject_tenant_id_not_matching_configuration_type_in_manifest() throws Exception {
+        //expect
+        expectedException.expect(PlatformException.class);
+        expectedException.expectMessage("tenant id does not match configuration type");
+
+        //when
+        ConfigurationArchive.readManifest(new ByteArrayInputStream((ConfigurationArchive.MANIFEST_HEADER + "\n5\tPLATFORM_ENGINE\t-\tplatform.xml\n").getBytes()));
+    }
+
+    @Test
+    public void should_reject_resource_name_with_line_break_in_manifest() throws Exception {
+        //expect
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("cannot contain tabs or line breaks");
+
+        //when
+        ConfigurationArchive.writeManifest(Arrays.asList(new BonitaConfigurationDescriptor("two\nlines.properties", "TENANT_ENGINE", 5L, 3L, null)),
+                new ByteArrayOutputStream());
+    }
+}
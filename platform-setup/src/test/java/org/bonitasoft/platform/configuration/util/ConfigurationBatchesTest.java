@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.junit.Test;
+
+public class ConfigurationBatchesTest {
+
+    @Test
+    public void should_split_by_number_of_rows() throws Exception {
+        //when
+        final List<List<BonitaConfiguration>> batches = ConfigurationBatches.split(configurations(1, 1, 1, 1, 1), 2, 100);
+
+        //then
+        assertThat(batches).hasSize(3);
+        assertThat(batches.get(0)).hasSize(2);
+        assertThat(batches.get(1)).hasSize(2);
+        assertThat(batches.get(2)).hasSize(1);
+    }
+
+    @Test
+    public void should_split_by_content_size() throws Exception {
+        //when
+        final List<List<BonitaConfiguration>> batches = ConfigurationBatches.split(configurations(4, 4, 3, 10, 1), 100, 10);
+
+        //then
+        assertThat(batches).hasSize(4);
+        assertThat(batches.get(0)).extracting("resourceName").containsExactly("file0", "file1");
+        assertThat(batches.get(1)).extracting("resourceName").containsExactly("file2");
+        assertThat(batches.get(2)).as("file bigger than limit should be alone").extracting("resourceName").containsExactly("file3");
+        assertThat(batches.get(3)).extracting("resourceName").containsExactly("file4");
+    }
+
+    @Test
+    public void should_return_no_batch_for_empty_list() throws Exception {
+        assertThat(ConfigurationBatches.split(new ArrayList<BonitaConfiguration>(), 10, 10)).isEmpty();
+    }
+
+    private List<BonitaConfiguration> configurations(int... sizes) {
+        final List<BonitaConfiguration> configurations = new ArrayList<>();
+        for (int i = 0; i < sizes.length; i++) {
+            configurations.add(new BonitaConfiguration("file" + i, new byte[sizes[i]]));
+        }
+        return configurations;
+    }
+}
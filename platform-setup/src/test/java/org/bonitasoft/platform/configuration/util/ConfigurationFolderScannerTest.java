@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConfigurationFolderScannerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_read_same_files_as_visitor() throws Exception {
+        //given
+        final File rootFolder = new File(this.getClass().getResource("/allConfiguration").getFile());
+        final List<FullBonitaConfiguration> visited = new ArrayList<>();
+        Files.walkFileTree(rootFolder.toPath(), new AllConfigurationResourceVisitor(visited));
+
+        //when
+        final List<FullBonitaConfiguration> scanned = scan(new ConfigurationFolderScanner(3), rootFolder);
+
+        //then
+        assertThat(scanned).hasSize(9).containsOnly(visited.toArray(new FullBonitaConfiguration[visited.size()]));
+    }
+
+    @Test
+    public void should_hand_files_in_path_order() throws Exception {
+        //given
+        final File rootFolder = temporaryFolder.newFolder();
+        for (int tenantId = 30; tenantId > 0; tenantId--) {
+            FileUtils.writeStringToFile(new File(rootFolder, "tenants/" + tenantId + "/tenant_portal/portal.properties"), "portal " + tenantId, StandardCharsets.UTF_8);
+            FileUtils.writeStringToFile(new File(rootFolder, "tenants/" + tenantId + "/tenant_engine/engine.properties"), "engine " + tenantId, StandardCharsets.UTF_8);
+        }
+
+        //when
+        final List<FullBonitaConfiguration> scanned = scan(new ConfigurationFolderScanner(4), rootFolder);
+
+        //then
+        assertThat(scanned).hasSize(60);
+        assertThat(scanned).isEqualTo(scan(new ConfigurationFolderScanner(1), rootFolder));
+        assertThat(scanned.get(0)).isEqualTo(new FullBonitaConfiguration("engine.properties", "engine 1".getBytes(), "TENANT_ENGINE", 1L));
+        assertThat(scanned.get(1)).isEqualTo(new FullBonitaConfiguration("portal.properties", "portal 1".getBytes(), "TENANT_PORTAL", 1L));
+        assertThat(scanned.get(2).getTenantId()).isEqualTo(10L);
+    }
+
+    @Test
+    public void should_read_empty_file() throws Exception {
+        //given
+        final File file = temporaryFolder.newFile();
+
+        //when
+        final byte[] content = ConfigurationFiles.readContent(file.toPath(), 0);
+
+        //then
+        assertThat(content).isEmpty();
+    }
+
+    @Test
+    public void should_read_whole_file_when_size_changed_since_visit() throws Exception {
+        //given
+        final File file = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(file, "content written after the visit", StandardCharsets.UTF_8);
+
+        //when
+        final byte[] grown = ConfigurationFiles.readContent(file.toPath(), 3);
+        final byte[] shrunk = ConfigurationFiles.readContent(file.toPath(), 100);
+
+        //then
+        assertThat(new String(grown)).isEqualTo("content written after the visit");
+        assertThat(new String(shrunk)).isEqualTo("content written after the visit");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_non_positive_parallelism() {
+        new ConfigurationFolderScanner(0);
+    }
+
+    private List<FullBonitaConfiguration> scan(ConfigurationFolderScanner scanner, File rootFolder) throws Exception {
+        final List<FullBonitaConfiguration> scanned = new ArrayList<>();
+        scanner.scan(rootFolder.toPath(), new FullBonitaConfigurationConsumer() {
+
+            @Override
+            public void accept(FullBonitaConfiguration fullBonitaConfiguration) {
+                scanned.add(fullBonitaConfiguration);
+            }
+        });
+        return scanned;
+    }
+}
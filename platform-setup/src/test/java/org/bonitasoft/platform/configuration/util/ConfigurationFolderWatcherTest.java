@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.bonitasoft.platform.configuration.model.BonitaConfigurationDescriptor;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConfigurationFolderWatcherTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test(timeout = 30000)
+    public void should_return_written_and_deleted_files_in_one_batch() throws Exception {
+        //given
+        final File rootFolder = temporaryFolder.newFolder();
+        FileUtils.writeStringToFile(new File(rootFolder, "platform_engine/platform.properties"), "platform", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(rootFolder, "tenants/1/tenant_engine/deleted.properties"), "deleted", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(rootFolder, "tenants/1/tenant_engine/unchanged.properties"), "unchanged", StandardCharsets.UTF_8);
+
+        try (ConfigurationFolderWatcher watcher = new ConfigurationFolderWatcher(rootFolder.toPath(), 200)) {
+            FileUtils.writeStringToFile(new File(rootFolder, "platform_engine/platform.properties"), "modified", StandardCharsets.UTF_8);
+            FileUtils.writeStringToFile(new File(rootFolder, "platform_engine/platform.properties"), "modified twice", StandardCharsets.UTF_8);
+            FileUtils.forceDelete(new File(rootFolder, "tenants/1/tenant_engine/deleted.properties"));
+            FileUtils.writeStringToFile(new File(rootFolder, "tenants/2/tenant_portal/new.properties"), "new", StandardCharsets.UTF_8);
+            FileUtils.writeStringToFile(new File(rootFolder, "not_a_configuration_folder/ignored.properties"), "ignored", StandardCharsets.UTF_8);
+
+            //when
+            final ConfigurationFolderWatcher.Changes changes = watcher.awaitChanges();
+
+            //then
+            assertThat(changes.getWrittenFiles()).containsOnly(
+                    new FullBonitaConfiguration("platform.properties", "modified twice".getBytes(), "PLATFORM_ENGINE", 0L),
+                    new FullBonitaConfiguration("new.properties", "new".getBytes(), "TENANT_PORTAL", 2L));
+            assertThat(changes.getDeletedFiles()).containsOnly(new BonitaConfigurationDescriptor("deleted.properties", "TENANT_ENGINE", 1L, 0, null));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void should_return_files_of_a_removed_tenant_folder_as_deleted() throws Exception {
+        //given
+        final File rootFolder = temporaryFolder.newFolder();
+        FileUtils.writeStringToFile(new File(rootFolder, "tenants/1/tenant_engine/engine.properties"), "engine", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(rootFolder, "tenants/1/tenant_portal/portal.properties"), "portal", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(rootFolder, "tenants/2/tenant_engine/kept.properties"), "kept", StandardCharsets.UTF_8);
+
+        try (ConfigurationFolderWatcher watcher = new ConfigurationFolderWatcher(rootFolder.toPath(), 200)) {
+            FileUtils.writeStringToFile(new File(rootFolder, "tenants/1/tenant_engine/created.properties"), "created", StandardCharsets.UTF_8);
+            watcher.awaitChanges();
+            // moving the folder away gives no event for the files it contains
+            FileUtils.moveDirectory(new File(rootFolder, "tenants/1"), temporaryFolder.getRoot().toPath().resolve("removed-tenant").toFile());
+
+            //when
+            final ConfigurationFolderWatcher.Changes changes = watcher.awaitChanges();
+
+            //then
+            assertThat(changes.getWrittenFiles()).isEmpty();
+            assertThat(changes.getDeletedFiles()).containsOnly(
+                    new BonitaConfigurationDescriptor("engine.properties", "TENANT_ENGINE", 1L, 0, null),
+                    new BonitaConfigurationDescriptor("created.properties", "TENANT_ENGINE", 1L, 0, null),
+                    new BonitaConfigurationDescriptor("portal.properties", "TENANT_PORTAL", 1L, 0, null));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void should_keep_watching_a_folder_replaced_by_a_pull() throws Exception {
+        //given
+        final File rootFolder = temporaryFolder.newFolder();
+        FileUtils.writeStringToFile(new File(rootFolder, "platform_engine/platform.properties"), "platform", StandardCharsets.UTF_8);
+
+        try (ConfigurationFolderWatcher watcher = new ConfigurationFolderWatcher(rootFolder.toPath(), 200)) {
+            final File previousFolder = new File(rootFolder.getPath() + ".previous");
+            FileUtils.moveDirectory(rootFolder, previousFolder);
+            FileUtils.writeStringToFile(new File(rootFolder, "platform_engine/platform.properties"), "pulled", StandardCharsets.UTF_8);
+            FileUtils.deleteDirectory(previousFolder);
+
+            //when
+            ConfigurationFolderWatcher.Changes changes = watcher.awaitChanges();
+            while (!changes.getWrittenFiles().contains(new FullBonitaConfiguration("platform.properties", "pulled".getBytes(), "PLATFORM_ENGINE", 0L))) {
+                changes = watcher.awaitChanges();
+            }
+            FileUtils.writeStringToFile(new File(rootFolder, "platform_engine/platform.properties"), "modified after pull", StandardCharsets.UTF_8);
+            changes = watcher.awaitChanges();
+
+            //then
+            assertThat(changes.getWrittenFiles()).containsOnly(
+                    new FullBonitaConfiguration("platform.properties", "modified after pull".getBytes(), "PLATFORM_ENGINE", 0L));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.bonitasoft.platform.configuration.impl.FolderResolver;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+public class ConfigurationFolderWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void should_write_files_to_sub_folders() throws Exception {
+        //given
+        final File configurationFolder = temporaryFolder.newFolder();
+        final ConfigurationFolderWriter writer = new ConfigurationFolderWriter(new FolderResolver(configurationFolder.toPath(),
+                temporaryFolder.newFolder().toPath()), null, 2);
+
+        //when
+        for (long tenantId = 1; tenantId <= 20; tenantId++) {
+            writer.accept(new FullBonitaConfiguration("engine.properties", ("tenant " + tenantId).getBytes(), "TENANT_ENGINE", tenantId));
+        }
+        writer.awaitWrites();
+
+        //then
+        assertThat(writer.getWrittenFiles()).isEqualTo(20);
+        assertThat(Files.readAllBytes(configurationFolder.toPath().resolve("tenants/12/tenant_engine/engine.properties"))).isEqualTo(
+                "tenant 12".getBytes());
+    }
+
+    @Test
+    public void should_only_write_files_that_differ_from_previous_folder() throws Exception {
+        //given
+        final Path previousFolder = temporaryFolder.newFolder().toPath();
+        final Path licenseFolder = temporaryFolder.newFolder().toPath();
+        final ConfigurationFolderWriter previousWriter = new ConfigurationFolderWriter(new FolderResolver(previousFolder, licenseFolder), null, 1);
+        previousWriter.accept(unchanged());
+        previousWriter.accept(new FullBonitaConfiguration("modified.properties", "old".getBytes(), "PLATFORM_ENGINE", 0L));
+        previousWriter.awaitWrites();
+        final Path configurationFolder = temporaryFolder.newFolder().toPath();
+        final ConfigurationFolderWriter writer = new ConfigurationFolderWriter(new FolderResolver(configurationFolder, licenseFolder),
+                new FolderResolver(previousFolder, licenseFolder), 2);
+
+        //when
+        writer.accept(unchanged());
+        writer.accept(new FullBonitaConfiguration("modified.properties", "new".getBytes(), "PLATFORM_ENGINE", 0L));
+        writer.accept(new FullBonitaConfiguration("added.properties", "added".getBytes(), "PLATFORM_ENGINE", 0L));
+        writer.awaitWrites();
+
+        //then
+        assertThat(writer.getUnchangedFiles()).isEqualTo(1);
+        assertThat(writer.getWrittenFiles()).isEqualTo(2);
+        final Path platformEngine = configurationFolder.resolve("platform_engine");
+        assertThat(Files.readAllBytes(platformEngine.resolve("unchanged.properties"))).isEqualTo("unchanged".getBytes());
+        assertThat(Files.readAllBytes(platformEngine.resolve("modified.properties"))).isEqualTo("new".getBytes());
+        assertThat(Files.readAllBytes(previousFolder.resolve("platform_engine").resolve("modified.properties"))).as("should not modify previous folder")
+                .isEqualTo("old".getBytes());
+    }
+
+    @Test
+    public void should_report_write_failure() throws Exception {
+        //given
+        final File notAFolder = temporaryFolder.newFile();
+        final ConfigurationFolderWriter writer = new ConfigurationFolderWriter(new FolderResolver(notAFolder.toPath(), notAFolder.toPath()), null, 1);
+
+        //expect
+        expectedException.expect(PlatformException.class);
+        expectedException.expectMessage("unable to write configuration files");
+
+        //when
+        writer.accept(unchanged());
+        writer.awaitWrites();
+    }
+
+    private FullBonitaConfiguration unchanged() {
+        return new FullBonitaConfiguration("unchanged.properties", "unchanged".getBytes(), "PLATFORM_ENGINE", 0L);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.bonitasoft.platform.configuration.model.ConfigurationProperties;
+import org.junit.Test;
+
+public class ConfigurationPropertiesCacheTest {
+
+    @Test
+    public void same_content_should_be_parsed_once() throws Exception {
+        //given
+        final ConfigurationPropertiesCache cache = new ConfigurationPropertiesCache(10);
+
+        //when
+        final ConfigurationProperties properties = cache.parse(null, "key=shared value".getBytes());
+        final ConfigurationProperties same = cache.parse(ContentDigest.digest("key=shared value".getBytes()), "key=shared value".getBytes());
+        final ConfigurationProperties other = cache.parse(null, "key = shared value".getBytes());
+
+        //then
+        assertThat(same).isSameAs(properties);
+        assertThat(cache.get(properties.getContentHash())).isSameAs(properties);
+        assertThat(other).isNotSameAs(properties).isEqualTo(properties);
+        assertThat(other.getContentHash()).isNotEqualTo(properties.getContentHash());
+    }
+
+    @Test
+    public void should_evict_least_recently_used_contents() throws Exception {
+        //given
+        final ConfigurationPropertiesCache cache = new ConfigurationPropertiesCache(2);
+        final ConfigurationProperties first = cache.parse(null, "key=first".getBytes());
+        cache.parse(null, "key=second".getBytes());
+        cache.get(first.getContentHash());
+
+        //when
+        cache.parse(null, "key=third".getBytes());
+
+        //then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(first.getContentHash())).isSameAs(first);
+        assertThat(cache.get(ContentDigest.digest("key=second".getBytes()))).isNull();
+    }
+
+    @Test
+    public void should_clear_parsed_contents() throws Exception {
+        //given
+        final ConfigurationPropertiesCache cache = new ConfigurationPropertiesCache(2);
+        final ConfigurationProperties parsed = cache.parse(null, "key=value".getBytes());
+
+        //when
+        cache.clear();
+
+        //then
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.parse(null, "key=value".getBytes())).isNotSameAs(parsed).isEqualTo(parsed);
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.PLATFORM_ENGINE;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_ENGINE;
+import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_PORTAL;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.bonitasoft.platform.configuration.model.BonitaConfiguration;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+public class ConfigurationSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void should_read_configurations_written_in_snapshot() throws Exception {
+        //given
+        final Path file = temporaryFolder.newFolder().toPath().resolve("configuration.snapshot");
+        writeSnapshot(file, 42L);
+
+        //when
+        final ConfigurationSnapshot snapshot = ConfigurationSnapshot.open(file);
+
+        //then
+        assertThat(snapshot.getChangeId()).isEqualTo(42L);
+        assertThat(snapshot.getConfigurations(PLATFORM_ENGINE, 0L)).containsExactly(new BonitaConfiguration("platform.xml", "platform".getBytes()));
+        assertThat(snapshot.getConfigurations(TENANT_ENGINE, 1L)).containsOnly(new BonitaConfiguration("a.xml", "a".getBytes()),
+                new BonitaConfiguration("empty.xml", new byte[0]));
+        assertThat(snapshot.getConfiguration(TENANT_ENGINE, 2L, "a.xml")).isEqualTo(new BonitaConfiguration("a.xml", "other tenant".getBytes()));
+        assertThat(snapshot.getConfigurations(TENANT_PORTAL, 1L)).isEmpty();
+        assertThat(snapshot.getConfiguration(TENANT_ENGINE, 1L, "missing.xml")).isNull();
+        assertThat(file.getParent().toFile().list()).containsOnly("configuration.snapshot");
+    }
+
+    @Test
+    public void should_find_all_files_of_large_snapshot() throws Exception {
+        //given
+        final Path file = temporaryFolder.newFolder().toPath().resolve("configuration.snapshot");
+        try (ConfigurationSnapshot.Writer writer = new ConfigurationSnapshot.Writer(file, 1L)) {
+            for (long tenantId = 1; tenantId <= 50; tenantId++) {
+                for (int i = 0; i < 20; i++) {
+                    writer.accept(new FullBonitaConfiguration("file" + i + ".xml", (tenantId + "/" + i).getBytes(), TENANT_ENGINE.name(), tenantId));
+                }
+            }
+            writer.commit();
+        }
+
+        //when
+        final ConfigurationSnapshot snapshot = ConfigurationSnapshot.open(file);
+
+        //then
+        for (long tenantId = 1; tenantId <= 50; tenantId++) {
+            final List<BonitaConfiguration> configurations = snapshot.getConfigurations(TENANT_ENGINE, tenantId);
+            assertThat(configurations).hasSize(20);
+            for (int i = 0; i < 20; i++) {
+                assertThat(configurations.get(i)).isEqualTo(new BonitaConfiguration("file" + i + ".xml", (tenantId + "/" + i).getBytes()));
+                assertThat(snapshot.getConfiguration(TENANT_ENGINE, tenantId, "file" + i + ".xml")).isEqualTo(configurations.get(i));
+            }
+        }
+        assertThat(snapshot.getConfigurations(TENANT_ENGINE, 51L)).isEmpty();
+    }
+
+    @Test
+    public void should_give_read_only_view_of_content() throws Exception {
+        //given
+        final Path file = temporaryFolder.newFolder().toPath().resolve("configuration.snapshot");
+        writeSnapshot(file, 1L);
+
+        //when
+        final ByteBuffer content = ConfigurationSnapshot.open(file).getContent(TENANT_ENGINE, 2L, "a.xml");
+
+        //then
+        assertThat(content.isReadOnly()).isTrue();
+        final byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        assertThat(new String(bytes)).isEqualTo("other tenant");
+        assertThat(ConfigurationSnapshot.open(file).getContent(TENANT_PORTAL, 2L, "a.xml")).isNull();
+    }
+
+    @Test
+    public void should_not_replace_snapshot_when_not_committed() throws Exception {
+        //given
+        final Path file = temporaryFolder.newFolder().toPath().resolve("configuration.snapshot");
+        writeSnapshot(file, 1L);
+
+        //when
+        try (ConfigurationSnapshot.Writer writer = new ConfigurationSnapshot.Writer(file, 2L)) {
+            writer.accept(new FullBonitaConfiguration("a.xml", "not committed".getBytes(), TENANT_ENGINE.name(), 1L));
+        }
+
+        //then
+        assertThat(ConfigurationSnapshot.open(file).getChangeId()).isEqualTo(1L);
+        assertThat(file.getParent().toFile().list()).containsOnly("configuration.snapshot");
+    }
+
+    @Test
+    public void should_reject_truncated_snapshot() throws Exception {
+        //given
+        final Path file = temporaryFolder.newFolder().toPath().resolve("configuration.snapshot");
+        writeSnapshot(file, 1L);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.setLength(randomAccessFile.length() - 3);
+        }
+
+        //then
+        expectedException.expect(IOException.class);
+
+        //when
+        ConfigurationSnapshot.open(file);
+    }
+
+    private void writeSnapshot(Path file, long changeId) throws Exception {
+        try (ConfigurationSnapshot.Writer writer = new ConfigurationSnapshot.Writer(file, changeId)) {
+            writer.accept(new FullBonitaConfiguration("platform.xml", "platform".getBytes(), PLATFORM_ENGINE.name(), 0L));
+            writer.accept(new FullBonitaConfiguration("a.xml", "a".getBytes(), TENANT_ENGINE.name(), 1L));
+            writer.accept(new FullBonitaConfiguration("empty.xml", new byte[0], TENANT_ENGINE.name(), 1L));
+            writer.accept(new FullBonitaConfiguration("a.xml", "other tenant".getBytes(), TENANT_ENGINE.name(), 2L));
+            writer.commit();
+        }
+    }
+}
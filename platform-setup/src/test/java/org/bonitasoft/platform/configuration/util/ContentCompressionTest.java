@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class ContentCompressionTest {
+
+    private static final byte[] PROPERTIES = "bonita.property=value\nbonita.property=value\nbonita.property=value\nbonita.property=value\n".getBytes();
+
+    @Test
+    public void should_compress_with_header_and_decode_back() throws Exception {
+        //when
+        final byte[] stored = ContentCompression.encode(PROPERTIES, true);
+
+        //then
+        assertThat(stored.length).isLessThan(PROPERTIES.length);
+        assertThat(stored[0]).isEqualTo(ContentCompression.COMPRESSED_HEADER);
+        assertThat(ContentCompression.decode(stored)).isEqualTo(PROPERTIES);
+    }
+
+    @Test
+    public void should_store_as_is_when_compression_is_disabled() throws Exception {
+        assertThat(ContentCompression.encode(PROPERTIES, false)).isSameAs(PROPERTIES);
+    }
+
+    @Test
+    public void should_store_as_is_when_compression_does_not_reduce_size() throws Exception {
+        final byte[] content = "a=b".getBytes();
+
+        assertThat(ContentCompression.encode(content, true)).isSameAs(content);
+    }
+
+    @Test
+    public void should_read_uncompressed_content_as_is() throws Exception {
+        assertThat(ContentCompression.decode(PROPERTIES)).isSameAs(PROPERTIES);
+        assertThat(ContentCompression.decode(new byte[0])).isEmpty();
+        assertThat(ContentCompression.decode(null)).isNull();
+    }
+
+    @Test
+    public void should_compress_content_looking_compressed_so_that_it_reads_unchanged() throws Exception {
+        //given
+        final byte[] content = new byte[] { 0x00, 0x1f, (byte) 0x8b, 1, 2 };
+
+        //when
+        final byte[] stored = ContentCompression.encode(content, false);
+
+        //then
+        assertThat(stored).isNotEqualTo(content);
+        assertThat(ContentCompression.decode(stored)).isEqualTo(content);
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.configuration.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+
+import org.bonitasoft.platform.configuration.impl.BonitaAllConfigurationPreparedStatementSetter;
+import org.bonitasoft.platform.configuration.impl.ConfigurationChangeRowMapper;
+import org.bonitasoft.platform.configuration.model.FullBonitaConfiguration;
+import org.bonitasoft.platform.dialect.H2Dialect;
+import org.bonitasoft.platform.exception.PlatformException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParallelConfigurationTransferTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ParallelConfigurationTransfer parallelConfigurationTransfer;
+
+    @Before
+    public void setUp() throws Exception {
+        doAnswer(new Answer<TransactionStatus>() {
+
+            @Override
+            public TransactionStatus answer(InvocationOnMock invocation) throws Throwable {
+                return new SimpleTransactionStatus();
+            }
+        }).when(transactionManager).getTransaction(any(TransactionDefinition.class));
+        parallelConfigurationTransfer = new ParallelConfigurationTransfer(jdbcTemplate, new TransactionTemplate(transactionManager), new H2Dialect(), 3);
+    }
+
+    @Test
+    public void should_store_a_folder_while_it_is_scanned() throws Exception {
+        //given
+        final File rootFolder = temporaryFolder.newFolder();
+        for (long tenantId = 1; tenantId <= 5; tenantId++) {
+            FileUtils.writeStringToFile(new File(rootFolder, "tenants/" + tenantId + "/tenant_engine/engine.properties"), "engine " + tenantId,
+                    StandardCharsets.UTF_8);
+        }
+        final AtomicInteger storedFiles = new AtomicInteger();
+        doAnswer(new Answer<int[]>() {
+
+            @Override
+            public int[] answer(InvocationOnMock invocation) throws Throwable {
+                storedFiles.addAndGet(((BonitaAllConfigurationPreparedStatementSetter) invocation.getArguments()[1]).getBatchSize());
+                return new int[] { 1 };
+            }
+        }).when(jdbcTemplate).batchUpdate(anyString(), any(BonitaAllConfigurationPreparedStatementSetter.class));
+
+        //when
+        parallelConfigurationTransfer.storeAll(rootFolder.toPath(), new ConfigurationFolderScanner(2), true);
+
+        //then
+        assertThat(storedFiles.get()).isEqualTo(5);
+        verify(transactionManager, times(3)).commit(any(TransactionStatus.class));
+        verify(jdbcTemplate, times(5)).update(eq(ConfigurationChangeRowMapper.INSERT_CHANGE), any(Object[].class), any(int[].class));
+    }
+
+    @Test(timeout = 10000)
+    public void should_roll_back_instead_of_waiting_forever_when_connections_are_missing() throws Exception {
+        //given
+        final Semaphore connections = new Semaphore(2);
+        doAnswer(new Answer<TransactionStatus>() {
+
+            @Override
+            public TransactionStatus answer(InvocationOnMock invocation) throws Throwable {
+                connections.acquire();
+                return new SimpleTransactionStatus();
+            }
+        }).when(transactionManager).getTransaction(any(TransactionDefinition.class));
+        final Answer<Void> release = new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                connections.release();
+                return null;
+            }
+        };
+        doAnswer(release).when(transactionManager).commit(any(TransactionStatus.class));
+        doAnswer(release).when(transactionManager).rollback(any(TransactionStatus.class));
+        parallelConfigurationTransfer = new ParallelConfigurationTransfer(jdbcTemplate, new TransactionTemplate(transactionManager), new H2Dialect(), 3,
+                500);
+
+        //when
+        PlatformException thrown = null;
+        try {
+            parallelConfigurationTransfer.storeAll(Arrays.asList(file("a", 1L), file("b", 2L), file("c", 3L)), true);
+        } catch (PlatformException e) {
+            thrown = e;
+        }
+
+        //then
+        assertThat(thrown).isNotNull();
+        assertThat(connections.availablePermits()).isEqualTo(2);
+        verify(jdbcTemplate, never()).update(eq(ConfigurationChangeRowMapper.INSERT_CHANGE), any(Object[].class), any(int[].class));
+    }
+
+    @Test
+    public void should_roll_back_all_tenants_when_one_fails_in_atomic_mode() throws Exception {
+        //given
+        final List<FullBonitaConfiguration> files = Arrays.asList(file("a", 1L), file("b", 2L), file("c", 3L));
+        failFirstBatch();
+
+        //when
+        PlatformException thrown = null;
+        try {
+            parallelConfigurationTransfer.storeAll(files, true);
+        } catch (PlatformException e) {
+            thrown = e;
+        }
+
+        //then
+        assertThat(thrown).isNotNull();
+        final ArgumentCaptor<TransactionStatus> committed = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager, times(2)).commit(committed.capture());
+        for (TransactionStatus status : committed.getAllValues()) {
+            assertThat(status.isRollbackOnly()).isTrue();
+        }
+        verify(transactionManager).rollback(any(TransactionStatus.class));
+        verify(jdbcTemplate, never()).update(eq(ConfigurationChangeRowMapper.INSERT_CHANGE), any(Object[].class), any(int[].class));
+    }
+
+    @Test
+    public void should_commit_other_tenants_when_one_fails_in_per_tenant_mode() throws Exception {
+        //given
+        final List<FullBonitaConfiguration> files = Arrays.asList(file("a", 1L), file("b", 2L), file("c", 3L));
+        failFirstBatch();
+
+        //when
+        PlatformException thrown = null;
+        try {
+            parallelConfigurationTransfer.storeAll(files, false);
+        } catch (PlatformException e) {
+            thrown = e;
+        }
+
+        //then
+        assertThat(thrown.getMessage()).contains("tenant");
+        final ArgumentCaptor<TransactionStatus> committed = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager, times(2)).commit(committed.capture());
+        for (TransactionStatus status : committed.getAllValues()) {
+            assertThat(status.isRollbackOnly()).isFalse();
+        }
+        verify(transactionManager).rollback(any(TransactionStatus.class));
+        verify(jdbcTemplate, times(2)).update(eq(ConfigurationChangeRowMapper.INSERT_CHANGE), any(Object[].class), any(int[].class));
+    }
+
+    @Test
+    public void should_record_change_of_each_tenant_in_atomic_mode() throws Exception {
+        //given
+        final List<FullBonitaConfiguration> files = Arrays.asList(file("platform", 0L), file("a", 1L), file("b", 2L));
+
+        //when
+        parallelConfigurationTransfer.storeAll(files, true);
+
+        //then
+        final ArgumentCaptor<Object[]> changes = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(3)).update(eq(ConfigurationChangeRowMapper.INSERT_CHANGE), changes.capture(), any(int[].class));
+        final List<Object> tenantIds = new ArrayList<>();
+        for (Object[] change : changes.getAllValues()) {
+            tenantIds.add(change[1]);
+        }
+        assertThat(tenantIds).as("platform files concern all tenants").containsOnly(null, 1L, 2L);
+    }
+
+    private void failFirstBatch() {
+        final AtomicInteger calls = new AtomicInteger();
+        doAnswer(new Answer<int[]>() {
+
+            @Override
+            public int[] answer(InvocationOnMock invocation) throws Throwable {
+                if (calls.getAndIncrement() == 0) {
+                    throw new DataIntegrityViolationException("tenant failure");
+                }
+                return new int[] { 1 };
+            }
+        }).when(jdbcTemplate).batchUpdate(anyString(), any(BonitaAllConfigurationPreparedStatementSetter.class));
+    }
+
+    private FullBonitaConfiguration file(String resourceName, long tenantId) {
+        return new FullBonitaConfiguration(resourceName, resourceName.getBytes(), "TENANT_ENGINE", tenantId);
+    }
+}
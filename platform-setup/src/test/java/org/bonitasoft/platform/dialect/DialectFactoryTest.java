@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2016 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.platform.dialect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.MapEntry.entry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.RestoreSystemProperties;
+
+public class DialectFactoryTest {
+
+    private static final String[] VENDORS = { "h2", "postgres", "mysql", "oracle", "sqlserver" };
+
+    @Rule
+    public final RestoreSystemProperties restoreSystemProperties = new RestoreSystemProperties();
+
+    @Test
+    public void should_resolve_dialect_of_each_vendor() throws Exception {
+        assertThat(DialectFactory.getDialect("h2")).isInstanceOf(H2Dialect.class);
+        assertThat(DialectFactory.getDialect("postgres")).isInstanceOf(PostgresDialect.class);
+        assertThat(DialectFactory.getDialect("mysql")).isInstanceOf(MySQLDialect.class);
+        assertThat(DialectFactory.getDialect("oracle")).isInstanceOf(OracleDialect.class);
+        assertThat(DialectFactory.getDialect("sqlserver")).isInstanceOf(SQLServerDialect.class);
+        for (String dbVendor : VENDORS) {
+            assertThat(DialectFactory.getDialect(dbVendor).getVendor()).isEqualTo(dbVendor);
+        }
+    }
+
+    @Test
+    public void should_use_system_property_when_vendor_is_not_set() throws Exception {
+        //given
+        System.setProperty(DialectFactory.DB_VENDOR_SYSTEM_PROPERTY, "postgres");
+
+        //then
+        assertThat(DialectFactory.getDialect(null)).isInstanceOf(PostgresDialect.class);
+        assertThat(DialectFactory.getSystemPropertyVendor()).isEqualTo("postgres");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_unknown_vendor() throws Exception {
+        DialectFactory.getDialect("unknown");
+    }
+
+    @Test
+    public void should_use_vendor_specific_upsert() throws Exception {
+        assertThat(DialectFactory.getDialect("h2").getUpsertConfigurationQuery()).startsWith("MERGE INTO configuration(")
+                .contains("KEY(tenant_id, content_type, resource_name)");
+        assertThat(DialectFactory.getDialect("postgres").getUpsertConfigurationQuery())
+                .contains("ON CONFLICT (tenant_id, content_type, resource_name) DO UPDATE");
+        assertThat(DialectFactory.getDialect("mysql").getUpsertConfigurationQuery()).contains("ON DUPLICATE KEY UPDATE");
+        assertThat(DialectFactory.getDialect("oracle").getUpsertConfigurationQuery()).startsWith("DECLARE ")
+                .contains("IF SQL%ROWCOUNT = 0 THEN INSERT INTO configuration(").doesNotContain("MERGE");
+        assertThat(DialectFactory.getDialect("sqlserver").getUpsertConfigurationQuery()).startsWith("MERGE INTO configuration AS target").endsWith(";");
+    }
+
+    @Test
+    public void should_bind_five_parameters_in_configuration_columns_order() throws Exception {
+        for (String dbVendor : VENDORS) {
+            assertThat(DialectFactory.getDialect(dbVendor).getUpsertConfigurationQuery().replaceAll("[^?]", "")).as(dbVendor).isEqualTo("?????");
+        }
+    }
+
+    @Test
+    public void should_use_go_separator_only_on_sqlserver() throws Exception {
+        assertThat(DialectFactory.getDialect("sqlserver").getScriptSeparator()).isEqualTo("GO");
+        assertThat(DialectFactory.getDialect("postgres").getScriptSeparator()).isEqualTo(";");
+    }
+
+    @Test
+    public void should_stream_mysql_result_sets_row_by_row() throws Exception {
+        assertThat(DialectFactory.getDialect("mysql").getDefaultFetchSize()).isEqualTo(Integer.MIN_VALUE);
+        assertThat(DialectFactory.getDialect("h2").getDefaultFetchSize()).isEqualTo(AbstractDialect.DEFAULT_FETCH_SIZE);
+    }
+
+    @Test
+    public void should_recommend_batch_rewriting_jdbc_properties() throws Exception {
+        assertThat(DialectFactory.getDialect("mysql").getRecommendedJdbcProperties()).contains(entry("rewriteBatchedStatements", "true"));
+        assertThat(DialectFactory.getDialect("postgres").getRecommendedJdbcProperties()).contains(entry("reWriteBatchedInserts", "true"));
+        assertThat(DialectFactory.getDialect("h2").getRecommendedJdbcProperties()).isEmpty();
+    }
+}
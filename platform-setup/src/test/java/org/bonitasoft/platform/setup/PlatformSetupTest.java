@@ -18,14 +18,18 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.platform.configuration.type.ConfigurationType.PLATFORM_ENGINE;
 import static org.bonitasoft.platform.configuration.type.ConfigurationType.TENANT_TEMPLATE_PORTAL;
 import static org.bonitasoft.platform.setup.PlatformSetup.BONITA_SETUP_FOLDER;
+import static org.bonitasoft.platform.setup.PlatformSetup.BONITA_SETUP_PUSH_INCREMENTAL;
+import static org.bonitasoft.platform.setup.PlatformSetup.BONITA_SETUP_ROLLBACK_REVISION;
 import static org.bonitasoft.platform.setup.PlatformSetup.PLATFORM_CONF_FOLDER_NAME;
 import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -62,7 +66,8 @@ import org.springframework.test.jdbc.JdbcTestUtils;
 public class PlatformSetupTest {
 
     @Rule
-    public final ClearSystemProperties clearSystemProperties = new ClearSystemProperties(BONITA_SETUP_FOLDER);
+    public final ClearSystemProperties clearSystemProperties = new ClearSystemProperties(BONITA_SETUP_FOLDER, BONITA_SETUP_PUSH_INCREMENTAL,
+            BONITA_SETUP_ROLLBACK_REVISION);
 
     @Rule
     public final SystemOutRule systemOutRule = new SystemOutRule().enableLog().muteForSuccessfulTests();
@@ -357,6 +362,118 @@ public class PlatformSetupTest {
         assertThat(configurations).as("should remove all files").isEmpty();
     }
 
+    @Test
+    public void pull_should_replace_previous_folder_keeping_unchanged_files() throws Exception {
+        //given
+        final File pullRoot = temporaryFolder.newFolder("pullRoot");
+        final Path path = Files.createDirectory(pullRoot.toPath().resolve("pulled"));
+        final Path licensePath = Files.createDirectory(pullRoot.toPath().resolve("pulledLicenses"));
+        platformSetup.init();
+        platformSetup.pull(path, licensePath);
+        final Path pulledFile = path.resolve(PLATFORM_ENGINE.name().toLowerCase()).resolve("bonita-platform-custom.xml");
+        final byte[] pulledContent = Files.readAllBytes(pulledFile);
+        FileUtils.writeByteArrayToFile(path.resolve("stale").resolve("stale.properties").toFile(), "stale".getBytes());
+
+        //when
+        platformSetup.pull(path, licensePath);
+
+        //then
+        assertThat(Files.readAllBytes(pulledFile)).isEqualTo(pulledContent);
+        assertThat(path.resolve("stale").toFile()).as("should remove files not in database").doesNotExist();
+        assertThat(pullRoot.list()).as("should not leave staging folders").containsOnly("pulled", "pulledLicenses");
+    }
+
+    @Test
+    public void should_complete_pull_interrupted_while_replacing_folders() throws Exception {
+        //given
+        final File pullRoot = temporaryFolder.newFolder("interruptedPullRoot");
+        final Path path = pullRoot.toPath().resolve("pulled");
+        final Path licensePath = pullRoot.toPath().resolve("pulledLicenses");
+        FileUtils.writeStringToFile(path.resolve("old.properties").toFile(), "old", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(licensePath.resolve("old.lic").toFile(), "old", StandardCharsets.UTF_8);
+        // interrupted after configuration folder was moved away, before its staging folder was renamed, and before licenses were replaced
+        FileUtils.writeStringToFile(pullRoot.toPath().resolve("pulled.pulling").resolve("new.properties").toFile(), "new", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(pullRoot.toPath().resolve("pulledLicenses.pulling").resolve("new.lic").toFile(), "new", StandardCharsets.UTF_8);
+        Files.move(path, pullRoot.toPath().resolve("pulled.previous"));
+        Files.write(pullRoot.toPath().resolve("pulled.swapping"),
+                Arrays.asList(path.toAbsolutePath().toString(), licensePath.toAbsolutePath().toString()), StandardCharsets.UTF_8);
+
+        //when
+        platformSetup.completeInterruptedPull(path);
+
+        //then
+        assertThat(path.toFile().list()).containsOnly("new.properties");
+        assertThat(licensePath.toFile().list()).containsOnly("new.lic");
+        assertThat(pullRoot.list()).as("should not leave staging folders").containsOnly("pulled", "pulledLicenses");
+    }
+
+    @Test
+    public void export_and_import_should_restore_configuration() throws Exception {
+        //given
+        platformSetup.init();
+        final Path exportedPath = temporaryFolder.newFolder("exported").toPath();
+        final Path importedPath = temporaryFolder.newFolder("imported").toPath();
+        final Path licensePath = temporaryFolder.newFolder("archiveLicenses").toPath();
+        final Path archive = temporaryFolder.getRoot().toPath().resolve("configuration.zip");
+        platformSetup.pull(exportedPath, licensePath);
+
+        //when
+        platformSetup.exportConfiguration(archive);
+        platformSetup.clean();
+        platformSetup.importConfiguration(archive);
+
+        //then
+        platformSetup.pull(importedPath, licensePath);
+        List<FullBonitaConfiguration> exported = new ArrayList<>();
+        Files.walkFileTree(exportedPath, new AllConfigurationResourceVisitor(exported));
+        List<FullBonitaConfiguration> imported = new ArrayList<>();
+        Files.walkFileTree(importedPath, new AllConfigurationResourceVisitor(imported));
+        assertThat(imported).isNotEmpty().containsOnly(exported.toArray(new FullBonitaConfiguration[exported.size()]));
+        assertThat(imported).hasSameSizeAs(exported);
+        assertThat(archive.resolveSibling("configuration.zip.exporting").toFile()).as("should not leave staging archive").doesNotExist();
+    }
+
+    @Test
+    public void rollback_should_restore_configuration_recorded_by_init() throws Exception {
+        //given
+        platformSetup.init();
+        final Path initPath = temporaryFolder.newFolder("beforeRollback").toPath();
+        final Path rolledBackPath = temporaryFolder.newFolder("rolledBack").toPath();
+        final Path licensePath = temporaryFolder.newFolder("rollbackLicenses").toPath();
+        platformSetup.pull(initPath, licensePath);
+        platformSetup.clean();
+
+        //when
+        platformSetup.rollback(1L);
+
+        //then
+        platformSetup.pull(rolledBackPath, licensePath);
+        List<FullBonitaConfiguration> initial = new ArrayList<>();
+        Files.walkFileTree(initPath, new AllConfigurationResourceVisitor(initial));
+        List<FullBonitaConfiguration> rolledBack = new ArrayList<>();
+        Files.walkFileTree(rolledBackPath, new AllConfigurationResourceVisitor(rolledBack));
+        assertThat(rolledBack).isNotEmpty().containsOnly(initial.toArray(new FullBonitaConfiguration[initial.size()]));
+        assertThat(rolledBack).hasSameSizeAs(initial);
+    }
+
+    @Test
+    public void rollback_should_record_configuration_before_rollback_once() throws Exception {
+        //given
+        platformSetup.init();
+        platformSetup.clean();
+        System.setProperty(BONITA_SETUP_ROLLBACK_REVISION, "1");
+
+        //when
+        platformSetup.rollback();
+
+        //then
+        assertThat(jdbcTemplate.queryForList("SELECT description FROM configuration_revision ORDER BY revision", String.class))
+                .containsExactly("init", "before rollback to revision 1", "rollback to revision 1");
+        final String log = systemOutRule.getLogWithNormalizedLineSeparator();
+        assertThat(log).contains("Added file: ").doesNotContain("Deleted file: ");
+        assertThat(log).contains("Configuration successfully rolled back to revision 1, recorded as revision 3.");
+    }
+
     @Test
     public void push_method_should_clean_previous_config() throws Exception {
         //given
@@ -391,6 +508,40 @@ public class PlatformSetupTest {
                 .extracting("resourceName").containsOnly("current.properties");
     }
 
+    @Test
+    public void incremental_push_should_only_write_modified_files() throws Exception {
+        //given
+        final Path setupPath = temporaryFolder.newFolder("setup").toPath();
+        final Path initialPath = setupPath.resolve(PLATFORM_CONF_FOLDER_NAME).resolve("initial").resolve(PLATFORM_ENGINE.name().toLowerCase());
+        final Path currentPath = setupPath.resolve(PLATFORM_CONF_FOLDER_NAME).resolve("current").resolve(PLATFORM_ENGINE.name().toLowerCase());
+        FileUtils.writeByteArrayToFile(initialPath.resolve("unchanged.properties").toFile(), "key1=value1".getBytes());
+        FileUtils.writeByteArrayToFile(initialPath.resolve("modified.properties").toFile(), "key2=value2".getBytes());
+        FileUtils.writeByteArrayToFile(initialPath.resolve("deleted.properties").toFile(), "key3=value3".getBytes());
+        FileUtils.writeByteArrayToFile(currentPath.resolve("unchanged.properties").toFile(), "key1=value1".getBytes());
+        FileUtils.writeByteArrayToFile(currentPath.resolve("modified.properties").toFile(), "key2=new value".getBytes());
+        FileUtils.writeByteArrayToFile(currentPath.resolve("added.properties").toFile(), "key4=value4".getBytes());
+        System.setProperty(BONITA_SETUP_FOLDER, setupPath.toString());
+        configurationFolderUtil.buildSqlFolder(setupPath, dbVendor);
+        platformSetup.init();
+
+        //when
+        System.setProperty(BONITA_SETUP_PUSH_INCREMENTAL, "true");
+        systemOutRule.clearLog();
+        platformSetup.push();
+
+        //then
+        final String log = systemOutRule.getLogWithNormalizedLineSeparator();
+        assertThat(log).contains("Added file: platform_engine/added.properties")
+                .contains("Updated file: platform_engine/modified.properties")
+                .contains("Deleted file: platform_engine/deleted.properties")
+                .contains("1 file(s) added, 1 file(s) updated, 1 file(s) deleted.")
+                .doesNotContain("Updated file: platform_engine/unchanged.properties");
+        assertThat(jdbcTemplate.queryForList("SELECT resource_name FROM configuration ORDER BY resource_name", String.class))
+                .containsExactly("added.properties", "modified.properties", "unchanged.properties");
+        assertThat(jdbcTemplate.queryForObject("SELECT resource_content FROM configuration WHERE resource_name = 'modified.properties'", byte[].class))
+                .isEqualTo("key2=new value".getBytes());
+    }
+
     @Test
     public void push_method_should_throw_exception_if_no_current_folder() throws Exception {
         //given